@@ -0,0 +1,212 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Small benchmark harness with no dependencies. Each benchmark is warmed up, then timed over several iterations of
+ * at least {@link #ITERATION_NANOS} each. The allocation per operation is read from the thread's allocation counter
+ * and the garbage collections are read from the collector beans, which is what the JMH GC profiler reports. Only the
+ * calling thread's allocation is counted, so work done in fork/join worker threads shows as time but not as bytes. Results
+ * are written in the same JSON layout as JMH so the same comparison tools can read them.
+ */
+public class BenchmarkRunner {
+    //Shortest time an iteration runs for, long operations run once per iteration
+    private static final long ITERATION_NANOS = 200_000_000L;
+
+    //Results are kept away from the optimizer by being written here
+    private static volatile Object sink;
+
+    //List variables
+    private final int warmupIterations;
+    private final int measurementIterations;
+    private final List<Result> results = new ArrayList<>();
+    private final com.sun.management.ThreadMXBean threads;
+
+    /**
+     * An operation to time. The return value is kept so the work can't be optimized away.
+     */
+    public interface Operation {
+        Object run() throws Exception;
+    }
+
+    /**
+     * Constructor for a runner.
+     * @param warmupIterations the untimed iterations before each benchmark.
+     * @param measurementIterations the timed iterations of each benchmark.
+     */
+    public BenchmarkRunner(int warmupIterations, int measurementIterations) {
+        this.warmupIterations = warmupIterations;
+        this.measurementIterations = measurementIterations;
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        this.threads = bean instanceof com.sun.management.ThreadMXBean ? (com.sun.management.ThreadMXBean) bean : null;
+    }
+
+    /**
+     * Method to time an operation and keep the result.
+     * @param name the benchmark name.
+     * @param size the sequence length, written as the "size" parameter.
+     * @param operation the operation to time.
+     * @throws Exception if the operation fails.
+     */
+    public void run(String name, long size, Operation operation) throws Exception {
+        for (int i = 0; i < this.warmupIterations; i++) {
+            iteration(operation);
+        }
+        double[] scores = new double[this.measurementIterations];
+        long operations = 0, allocated = 0, collections = 0, collectionMillis = 0;
+        for (int i = 0; i < scores.length; i++) {
+            long[] gcBefore = collections();
+            long allocatedBefore = allocatedBytes();
+            long[] timing = iteration(operation);
+            allocated += allocatedBytes() - allocatedBefore;
+            long[] gcAfter = collections();
+            collections += gcAfter[0] - gcBefore[0];
+            collectionMillis += gcAfter[1] - gcBefore[1];
+            scores[i] = (double) timing[0] / timing[1];
+            operations += timing[1];
+        }
+        Result result = new Result(name, size, scores, this.threads == null ? Double.NaN : (double) allocated / operations, collections, collectionMillis);
+        this.results.add(result);
+        System.err.println(result);
+    }
+
+    private long[] iteration(Operation operation) throws Exception {
+        //Runs the operation until the iteration is long enough, returning the time and operation count
+        long operations = 0;
+        long start = System.nanoTime(), elapsed;
+        do {
+            sink = operation.run();
+            operations++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < ITERATION_NANOS);
+        return new long[]{elapsed, operations};
+    }
+
+    private long allocatedBytes() {
+        return this.threads == null ? 0 : this.threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static long[] collections() {
+        long count = 0, millis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, collector.getCollectionCount());
+            millis += Math.max(0, collector.getCollectionTime());
+        }
+        return new long[]{count, millis};
+    }
+
+    /**
+     * Method to run an operation with System.out thrown away, for operations that print.
+     * @param operation the operation.
+     * @return the operation with its printing silenced.
+     */
+    public static Operation silenced(Operation operation) {
+        PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+        return () -> {
+            PrintStream out = System.out;
+            System.setOut(discard);
+            try {
+                return operation.run();
+            } finally {
+                System.setOut(out);
+            }
+        };
+    }
+
+    /**
+     * Method to write every result as JMH-style JSON.
+     * @param file the file to write.
+     * @throws IOException if the file can't be written.
+     */
+    public void writeJson(Path file) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("[\n");
+            for (int i = 0; i < this.results.size(); i++) {
+                writer.write(this.results.get(i).toJson());
+                writer.write(i + 1 < this.results.size() ? ",\n" : "\n");
+            }
+            writer.write("]\n");
+        }
+    }
+
+    /**
+     * Timing of one benchmark.
+     */
+    private static class Result {
+        private final String name;
+        private final long size;
+        private final double[] scores;
+        private final double allocatedPerOperation;
+        private final long collections;
+        private final long collectionMillis;
+
+        Result(String name, long size, double[] scores, double allocatedPerOperation, long collections, long collectionMillis) {
+            this.name = name;
+            this.size = size;
+            this.scores = scores;
+            this.allocatedPerOperation = allocatedPerOperation;
+            this.collections = collections;
+            this.collectionMillis = collectionMillis;
+        }
+
+        double mean() {
+            double total = 0;
+            for (double score : this.scores) {
+                total += score;
+            }
+            return total / this.scores.length;
+        }
+
+        double error() {
+            //Half width of a 99.9% confidence interval, using the normal approximation
+            if (this.scores.length < 2) {
+                return Double.NaN;
+            }
+            double mean = mean(), squares = 0;
+            for (double score : this.scores) {
+                squares += (score - mean) * (score - mean);
+            }
+            return 3.29 * Math.sqrt(squares / (this.scores.length - 1)) / Math.sqrt(this.scores.length);
+        }
+
+        String toJson() {
+            StringBuilder raw = new StringBuilder();
+            for (double score : this.scores) {
+                raw.append(raw.length() == 0 ? "" : ", ").append(number(score));
+            }
+            return String.format(Locale.ROOT, """
+                      {
+                        "benchmark": "SequenceBenchmarks.%s",
+                        "mode": "avgt",
+                        "measurementIterations": %d,
+                        "params": {"size": "%d"},
+                        "primaryMetric": {"score": %s, "scoreError": %s, "scoreUnit": "ns/op", "rawData": [[%s]]},
+                        "secondaryMetrics": {
+                          "gc.alloc.rate.norm": {"score": %s, "scoreUnit": "B/op"},
+                          "gc.count": {"score": %d, "scoreUnit": "counts"},
+                          "gc.time": {"score": %d, "scoreUnit": "ms"}
+                        }
+                      }""", this.name, this.scores.length, this.size, number(mean()), number(error()), raw,
+                    number(this.allocatedPerOperation), this.collections, this.collectionMillis);
+        }
+
+        private static String number(double value) {
+            return Double.isNaN(value) ? "\"NaN\"" : String.format(Locale.ROOT, "%.3f", value);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%-40s size %,14d  %,16.1f ns/op  %,14.1f B/op  %d GCs", this.name, this.size, mean(),
+                    this.allocatedPerOperation, this.collections);
+        }
+    }
+}
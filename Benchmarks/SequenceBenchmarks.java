@@ -0,0 +1,117 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Benchmarks of the main Sequence operations on random sequences, from 1 kbp up to whatever sizes are asked for.
+ * Run with "run-benchmarks" (or "run-benchmarks.bat") from this folder, for example:
+ * <pre>
+ *     ./run-benchmarks --sizes 1000,1000000,100000000 --out results.json
+ * </pre>
+ * Sizes of 1 Gbp need a heap of several gigabytes, which can be set with the JAVA_OPTS environment variable.
+ */
+public class SequenceBenchmarks {
+    public static void main(String[] args) throws Exception {
+        //Options
+        long[] sizes = {1_000, 1_000_000};
+        int warmup = 3, iterations = 5;
+        String filter = "";
+        Path output = Path.of("benchmark-results.json");
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--sizes" -> {
+                    String[] values = args[i + 1].split(",");
+                    sizes = new long[values.length];
+                    for (int j = 0; j < values.length; j++) {
+                        sizes[j] = Long.parseLong(values[j].trim());
+                    }
+                }
+                case "--warmup" -> warmup = Integer.parseInt(args[i + 1]);
+                case "--iterations" -> iterations = Integer.parseInt(args[i + 1]);
+                case "--filter" -> filter = args[i + 1];
+                case "--out" -> output = Path.of(args[i + 1]);
+                default -> {
+                    System.err.println("Usage: SequenceBenchmarks [--sizes 1000,1000000] [--warmup 3] [--iterations 5] [--filter name] [--out file.json]");
+                    System.exit(2);
+                }
+            }
+        }
+
+        BenchmarkRunner runner = new BenchmarkRunner(warmup, iterations);
+        for (long size : sizes) {
+            if (size > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException("Sequences are limited to " + (Integer.MAX_VALUE - 8) + " nucleotides");
+            }
+            run(runner, (int) size, filter);
+        }
+        runner.writeJson(output);
+        System.err.println("Results written to " + output.toAbsolutePath());
+    }
+
+    private static void run(BenchmarkRunner runner, int size, String filter) throws Exception {
+        //The same random sequence every run, with the pattern for getIndex taken from its end so the whole sequence is searched
+        String data = randomSequence(size, 42);
+        String pattern = data.substring(Math.max(0, size - 20));
+        File fasta = writeFasta(data);
+        try {
+            Sequence sequence = new Sequence(true, 1, "DNA", data);
+            StringBuilder builder = new StringBuilder(data);
+
+            time(runner, filter, "fileConstructor", size, () -> new Sequence(true, 1, "DNA", fasta));
+            time(runner, filter, "setSequenceData", size, () -> {
+                sequence.setSequenceData(builder);
+                return sequence;
+            });
+            time(runner, filter, "getReverse", size, sequence::getReverse);
+            time(runner, filter, "getReverse.copy", size, () -> sequence.getReverse().getSequenceData());
+            time(runner, filter, "getComplimentary", size, sequence::getComplimentary);
+            time(runner, filter, "getComplimentary.copy", size, () -> sequence.getComplimentary().getSequenceData());
+            time(runner, filter, "getComplimentaryReverse", size, sequence::getComplimentaryReverse);
+            time(runner, filter, "getComplimentaryReverse.copy", size, () -> sequence.getComplimentaryReverse().getSequenceData());
+            time(runner, filter, "toRNA.toDNA", size, () -> sequence.toRNA().toDNA());
+            time(runner, filter, "getIndex", size, () -> sequence.getIndex(pattern));
+            time(runner, filter, "printNucleotides", size, BenchmarkRunner.silenced(() -> {
+                sequence.printNucleotides();
+                return null;
+            }));
+            time(runner, filter, "printAminoAcids", size, BenchmarkRunner.silenced(() -> {
+                sequence.printAminoAcids();
+                return null;
+            }));
+        } finally {
+            Files.deleteIfExists(fasta.toPath());
+        }
+    }
+
+    private static void time(BenchmarkRunner runner, String filter, String name, int size, BenchmarkRunner.Operation operation) throws Exception {
+        if (name.contains(filter)) {
+            runner.run(name, size, operation);
+        }
+    }
+
+    private static String randomSequence(int size, long seed) {
+        Random random = new Random(seed);
+        char[] output = new char[size];
+        for (int i = 0; i < size; i++) {
+            output[i] = "ACGT".charAt(random.nextInt(4));
+        }
+        return new String(output);
+    }
+
+    private static File writeFasta(String data) throws IOException {
+        //Lines of 60 nucleotides like most FASTA files
+        File file = File.createTempFile("benchmark", ".fa");
+        try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.US_ASCII)) {
+            writer.write(">benchmark\n");
+            for (int i = 0; i < data.length(); i += 60) {
+                writer.write(data, i, Math.min(60, data.length() - i));
+                writer.write('\n');
+            }
+        }
+        return file;
+    }
+}
@@ -0,0 +1,6 @@
+@echo off
+rem Compiles the tool and the benchmarks, then runs them. Options are passed on, for example:
+rem   run-benchmarks.bat --sizes 1000,1000000,1000000000 --out results.json
+if "%JAVA_OPTS%"=="" set JAVA_OPTS=-Xmx4g
+javac -d "%~dp0classes" "%~dp0..\Driver-and-Code\*.java" "%~dp0*.java" || exit /b 1
+java %JAVA_OPTS% -cp "%~dp0classes" SequenceBenchmarks %*
@@ -0,0 +1,329 @@
+import java.util.Arrays;
+
+/**
+ * Pairwise alignment with a match score and mismatch and gap penalties. Global alignment is Needleman-Wunsch and
+ * local alignment is Smith-Waterman. The traceback uses Hirschberg's divide and conquer, so memory grows with the
+ * length of the sequences instead of their product: each half of the query is scored in linear space to find where
+ * the best path crosses the middle row, until the blocks are small enough to trace in full. Global alignments can be
+ * limited to a band of diagonals around the main diagonal, which skips every cell outside the band.
+ */
+public class Aligner {
+    /**
+     * Global alignments cover both sequences from end to end, local alignments cover the best scoring parts.
+     */
+    public enum Mode {
+        GLOBAL, LOCAL
+    }
+
+    //Blocks with at most this many cells are traced in full
+    private static final int FULL_BLOCK_CELLS = 1 << 20;
+
+    //Score of cells outside of the band, low enough that adding penalties can't overflow
+    private static final int NONE = Integer.MIN_VALUE / 4;
+
+    //Trace directions
+    private static final byte DIAGONAL = 0, UP = 1, LEFT = 2;
+
+    //Codes of A, C, G and T/U in either case, everything else is 4 and never matches
+    private static final byte[] CODES = new byte[128];
+
+    static {
+        Arrays.fill(CODES, (byte) 4);
+        for (char nucleotide : "ACGTU".toCharArray()) {
+            CODES[nucleotide] = (byte) PackedSequence.codeOf(nucleotide);
+            CODES[Character.toLowerCase(nucleotide)] = (byte) PackedSequence.codeOf(nucleotide);
+        }
+    }
+
+    //List variables
+    private final Mode mode;
+    private final int gapPenalty;
+    private final int band;
+    private final int[][] substitution = new int[5][5];
+
+    /**
+     * Constructor using a match score of 2, a mismatch penalty of 3, a gap penalty of 5 and no band.
+     * @param mode global or local alignment.
+     */
+    public Aligner(Mode mode) {
+        this(mode, 2, 3, 5, 0);
+    }
+
+    /**
+     * Constructor for an aligner.
+     * @param mode global or local alignment.
+     * @param matchScore the score added for each match.
+     * @param mismatchPenalty the score taken away for each mismatch.
+     * @param gapPenalty the score taken away for each nucleotide aligned to a gap.
+     * @param band how far global alignments may stray from the main diagonal, 0 for no band. Ignored by local alignments.
+     */
+    public Aligner(Mode mode, int matchScore, int mismatchPenalty, int gapPenalty, int band) {
+        if (matchScore < 0 || mismatchPenalty < 0 || gapPenalty < 0 || band < 0) {
+            throw new IllegalArgumentException("Scores, penalties and the band can't be negative");
+        }
+        this.mode = mode;
+        this.gapPenalty = gapPenalty;
+        this.band = band;
+
+        //Row q holds the score of query code q against every target code
+        for (int query = 0; query < 5; query++) {
+            for (int target = 0; target < 5; target++) {
+                this.substitution[query][target] = query == target && query < 4 ? matchScore : -mismatchPenalty;
+            }
+        }
+    }
+
+    /**
+     * Method to align two sequences.
+     * @param query the sequence being aligned.
+     * @param target the sequence it is aligned to, such as a reference.
+     * @return the best alignment.
+     */
+    public Alignment align(CharSequence query, CharSequence target) {
+        Problem problem = new Problem(encode(query), encode(target));
+        if (this.mode == Mode.GLOBAL) {
+            int diagonal = target.length() - query.length();
+            problem.lowDiagonal = this.band == 0 ? Integer.MIN_VALUE / 2 : Math.min(0, diagonal) - this.band;
+            problem.highDiagonal = this.band == 0 ? Integer.MAX_VALUE / 2 : Math.max(0, diagonal) + this.band;
+            int score = align(problem, 0, query.length(), 0, target.length());
+            return new Alignment(score, 0, query.length(), 0, target.length(), problem.cigar(), true);
+        }
+
+        //Finds where the best local alignment ends, then where it starts, then aligns that part globally
+        int[] end = findLocalEnd(problem);
+        if (end[0] <= 0) {
+            return new Alignment(0, 0, 0, 0, 0, "", true);
+        }
+        int[] start = findLocalStart(problem, end[1], end[2], end[0]);
+        problem.lowDiagonal = Integer.MIN_VALUE / 2;
+        problem.highDiagonal = Integer.MAX_VALUE / 2;
+        align(problem, start[0], end[1], start[1], end[2]);
+        return new Alignment(end[0], start[0], end[1], start[1], end[2], problem.cigar(), true);
+    }
+
+    private static byte[] encode(CharSequence sequenceData) {
+        byte[] output = new byte[sequenceData.length()];
+        for (int i = 0; i < output.length; i++) {
+            char nucleotide = sequenceData.charAt(i);
+            output[i] = nucleotide < 128 ? CODES[nucleotide] : 4;
+        }
+        return output;
+    }
+
+    private int align(Problem problem, int queryFrom, int queryTo, int targetFrom, int targetTo) {
+        //Global alignment of a block, adding its operations to the problem's CIGAR in order
+        int rows = queryTo - queryFrom, columns = targetTo - targetFrom;
+        if (rows <= 1 || columns <= 1 || (long) (rows + 1) * (columns + 1) <= FULL_BLOCK_CELLS) {
+            return alignFull(problem, queryFrom, queryTo, targetFrom, targetTo);
+        }
+
+        //Scores the top half forwards and the bottom half backwards to the middle row
+        int middle = (queryFrom + queryTo) >>> 1;
+        int[] top = scorePass(problem, false, queryFrom, middle, targetFrom, targetTo);
+        int[] bottom = scorePass(problem, true, middle, queryTo, targetFrom, targetTo);
+        int bestColumn = -1, best = NONE;
+        for (int column = 0; column <= columns; column++) {
+            int score = top[column] + bottom[columns - column];
+            if (top[column] > NONE && bottom[columns - column] > NONE && score > best) {
+                best = score;
+                bestColumn = column;
+            }
+        }
+        align(problem, queryFrom, middle, targetFrom, targetFrom + bestColumn);
+        align(problem, middle, queryTo, targetFrom + bestColumn, targetTo);
+        return best;
+    }
+
+    private int[] scorePass(Problem problem, boolean backwards, int queryFrom, int queryTo, int targetFrom, int targetTo) {
+        //Scores of the last row of a block, read forwards from its top left or backwards from its bottom right.
+        //Cells are numbered from the starting corner, so the band becomes a range of column - row
+        int rows = queryTo - queryFrom, columns = targetTo - targetFrom;
+        int low, high;
+        if (backwards) {
+            low = (targetTo - queryTo) - problem.highDiagonal;
+            high = (targetTo - queryTo) - problem.lowDiagonal;
+        } else {
+            low = problem.lowDiagonal - (targetFrom - queryFrom);
+            high = problem.highDiagonal - (targetFrom - queryFrom);
+        }
+
+        int[] row = new int[columns + 1];
+        Arrays.fill(row, NONE);
+        row[0] = 0;
+        for (int column = 1; column <= Math.min(columns, high); column++) {
+            row[column] = row[column - 1] - this.gapPenalty;
+        }
+        for (int r = 1; r <= rows; r++) {
+            int[] scores = this.substitution[problem.query[backwards ? queryTo - r : queryFrom + r - 1]];
+            int first = Math.max(0, r + low), last = Math.min(columns, r + high);
+            int diagonal = first > 0 ? row[first - 1] : NONE;
+            int left = NONE;
+            for (int column = first; column <= last; column++) {
+                int up = row[column];
+                int score = Math.max(up, left) - this.gapPenalty;
+                if (column > 0) {
+                    score = Math.max(score, diagonal + scores[problem.target[backwards ? targetTo - column : targetFrom + column - 1]]);
+                }
+                score = Math.max(score, NONE);
+                diagonal = up;
+                row[column] = score;
+                left = score;
+            }
+        }
+
+        //Cells left of the band still hold scores from earlier rows
+        if (rows > 0) {
+            Arrays.fill(row, 0, Math.max(0, Math.min(columns + 1, rows + low)), NONE);
+        }
+        return row;
+    }
+
+    private int alignFull(Problem problem, int queryFrom, int queryTo, int targetFrom, int targetTo) {
+        //Fills the whole block keeping a trace direction per cell, then follows it back from the bottom right
+        int rows = queryTo - queryFrom, columns = targetTo - targetFrom;
+        byte[] trace = new byte[(rows + 1) * (columns + 1)];
+        int[] row = new int[columns + 1];
+        for (int column = 0; column <= columns; column++) {
+            row[column] = inBand(problem, queryFrom, targetFrom + column) ? -column * this.gapPenalty : NONE;
+            trace[column] = LEFT;
+        }
+        for (int r = 1; r <= rows; r++) {
+            int[] scores = this.substitution[problem.query[queryFrom + r - 1]];
+            int diagonal = row[0];
+            row[0] = inBand(problem, queryFrom + r, targetFrom) ? Math.max(NONE, row[0] - this.gapPenalty) : NONE;
+            trace[r * (columns + 1)] = UP;
+            for (int column = 1; column <= columns; column++) {
+                int up = row[column];
+                int score = NONE;
+                byte direction = DIAGONAL;
+                if (inBand(problem, queryFrom + r, targetFrom + column)) {
+                    score = diagonal + scores[problem.target[targetFrom + column - 1]];
+                    if (up - this.gapPenalty > score) {
+                        score = up - this.gapPenalty;
+                        direction = UP;
+                    }
+                    if (row[column - 1] - this.gapPenalty > score) {
+                        score = row[column - 1] - this.gapPenalty;
+                        direction = LEFT;
+                    }
+                    score = Math.max(score, NONE);
+                }
+                trace[r * (columns + 1) + column] = direction;
+                diagonal = up;
+                row[column] = score;
+            }
+        }
+
+        byte[] operations = new byte[rows + columns];
+        int count = 0, r = rows, column = columns;
+        while (r > 0 || column > 0) {
+            byte direction = trace[r * (columns + 1) + column];
+            if (direction == DIAGONAL && r > 0 && column > 0) {
+                operations[count++] = 'M';
+                r--;
+                column--;
+            } else if (direction == UP && r > 0 || column == 0) {
+                operations[count++] = 'I';
+                r--;
+            } else {
+                operations[count++] = 'D';
+                column--;
+            }
+        }
+        for (int i = count - 1; i >= 0; i--) {
+            problem.addOperation(operations[i]);
+        }
+        return row[columns];
+    }
+
+    private static boolean inBand(Problem problem, int queryIndex, int targetIndex) {
+        int diagonal = targetIndex - queryIndex;
+        return diagonal >= problem.lowDiagonal && diagonal <= problem.highDiagonal;
+    }
+
+    private int[] findLocalEnd(Problem problem) {
+        //Smith-Waterman scores in linear space, keeping the first cell with the best score
+        int[] row = new int[problem.target.length + 1];
+        int best = 0, bestRow = 0, bestColumn = 0;
+        for (int r = 1; r <= problem.query.length; r++) {
+            int[] scores = this.substitution[problem.query[r - 1]];
+            int diagonal = 0, left = 0;
+            for (int column = 1; column <= problem.target.length; column++) {
+                int up = row[column];
+                int score = Math.max(0, Math.max(diagonal + scores[problem.target[column - 1]], Math.max(up, left) - this.gapPenalty));
+                if (score > best) {
+                    best = score;
+                    bestRow = r;
+                    bestColumn = column;
+                }
+                diagonal = up;
+                row[column] = score;
+                left = score;
+            }
+        }
+        return new int[]{best, bestRow, bestColumn};
+    }
+
+    private int[] findLocalStart(Problem problem, int queryEnd, int targetEnd, int best) {
+        //Scores alignments backwards from the end, the first cell reaching the best score is where it starts
+        int[] row = new int[targetEnd + 1];
+        for (int column = 1; column <= targetEnd; column++) {
+            row[column] = row[column - 1] - this.gapPenalty;
+        }
+        if (best == 0) {
+            return new int[]{queryEnd, targetEnd};
+        }
+        for (int r = 1; r <= queryEnd; r++) {
+            int[] scores = this.substitution[problem.query[queryEnd - r]];
+            int diagonal = row[0];
+            row[0] = Math.max(NONE, row[0] - this.gapPenalty);
+            for (int column = 1; column <= targetEnd; column++) {
+                int up = row[column];
+                int score = Math.max(diagonal + scores[problem.target[targetEnd - column]], Math.max(up, row[column - 1]) - this.gapPenalty);
+                score = Math.max(score, NONE);
+                if (score == best) {
+                    return new int[]{queryEnd - r, targetEnd - column};
+                }
+                diagonal = up;
+                row[column] = score;
+            }
+        }
+        throw new IllegalStateException("Local alignment start not found");
+    }
+
+    /**
+     * The encoded sequences of one alignment and the CIGAR built so far.
+     */
+    private static class Problem {
+        private final byte[] query;
+        private final byte[] target;
+        private int lowDiagonal;
+        private int highDiagonal;
+        private final StringBuilder cigar = new StringBuilder();
+        private byte lastOperation;
+        private int lastLength;
+
+        Problem(byte[] query, byte[] target) {
+            this.query = query;
+            this.target = target;
+        }
+
+        void addOperation(byte operation) {
+            //Joins repeats of the same operation as they are added
+            if (operation != this.lastOperation && this.lastLength > 0) {
+                this.cigar.append(this.lastLength).append((char) this.lastOperation);
+                this.lastLength = 0;
+            }
+            this.lastOperation = operation;
+            this.lastLength++;
+        }
+
+        String cigar() {
+            if (this.lastLength > 0) {
+                this.cigar.append(this.lastLength).append((char) this.lastOperation);
+                this.lastLength = 0;
+            }
+            return this.cigar.toString();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/**
+ * Result of a pairwise alignment: the score, where the aligned parts start and end on each sequence, and the CIGAR
+ * string of the alignment. M is a match or mismatch, I is a nucleotide only in the query and D is a nucleotide only in
+ * the target, the same as in SAM files.
+ */
+public class Alignment {
+    //List variables
+    private final int score;
+    private final int queryStart;
+    private final int queryEnd;
+    private final int targetStart;
+    private final int targetEnd;
+    private final String cigar;
+    private final boolean forwardStrand;
+
+    /**
+     * Constructor for an alignment.
+     * @param score the alignment score.
+     * @param queryStart the index of the first aligned nucleotide of the query.
+     * @param queryEnd the index after the last aligned nucleotide of the query.
+     * @param targetStart the index of the first aligned nucleotide of the target.
+     * @param targetEnd the index after the last aligned nucleotide of the target.
+     * @param cigar the CIGAR string.
+     * @param forwardStrand true if the query was aligned as given, false if its reverse compliment was aligned.
+     */
+    public Alignment(int score, int queryStart, int queryEnd, int targetStart, int targetEnd, String cigar, boolean forwardStrand) {
+        this.score = score;
+        this.queryStart = queryStart;
+        this.queryEnd = queryEnd;
+        this.targetStart = targetStart;
+        this.targetEnd = targetEnd;
+        this.cigar = cigar;
+        this.forwardStrand = forwardStrand;
+    }
+
+    /**
+     * Method to get the alignment score.
+     * @return the match scores less the mismatch and gap penalties.
+     */
+    public int getScore() {
+        return this.score;
+    }
+
+    /**
+     * Method to get where the aligned part of the query starts.
+     * @return the index on the query, or on its reverse compliment if the alignment is on the reverse strand.
+     */
+    public int getQueryStart() {
+        return this.queryStart;
+    }
+
+    /**
+     * Method to get where the aligned part of the query ends.
+     * @return the index after the last aligned nucleotide, on the same strand as {@link #getQueryStart()}.
+     */
+    public int getQueryEnd() {
+        return this.queryEnd;
+    }
+
+    /**
+     * Method to get where the aligned part of the target starts.
+     * @return the index on the target.
+     */
+    public int getTargetStart() {
+        return this.targetStart;
+    }
+
+    /**
+     * Method to get where the aligned part of the target ends.
+     * @return the index after the last aligned nucleotide of the target.
+     */
+    public int getTargetEnd() {
+        return this.targetEnd;
+    }
+
+    /**
+     * Method to get the CIGAR string of the alignment.
+     * @return the CIGAR string, empty if nothing was aligned.
+     */
+    public String getCigar() {
+        return this.cigar;
+    }
+
+    /**
+     * Method to check which strand of the query was aligned.
+     * @return true if the query was aligned as given, false if its reverse compliment was aligned.
+     */
+    public boolean isForwardStrand() {
+        return this.forwardStrand;
+    }
+
+    /**
+     * Method to get the same alignment marked as being of the reverse compliment of the query.
+     * @return the alignment on the reverse strand.
+     */
+    Alignment onReverseStrand() {
+        return new Alignment(this.score, this.queryStart, this.queryEnd, this.targetStart, this.targetEnd, this.cigar, false);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Score %d: query %d to %d, target %d to %d on the %s strand, CIGAR %s", this.score, this.queryStart,
+                this.queryEnd, this.targetStart, this.targetEnd, this.forwardStrand ? "forward" : "reverse complimentary",
+                this.cigar.isEmpty() ? "*" : this.cigar);
+    }
+}
@@ -0,0 +1,11 @@
+/**
+ * Receives amino acids one codon at a time during a translation.
+ */
+public interface AminoAcidListener {
+    /**
+     * Method called for every codon translated.
+     * @param index the index of the first nucleotide of the codon.
+     * @param aminoAcid the one letter amino acid, '*' for a stop codon and 'X' for an unknown codon.
+     */
+    void aminoAcidFound(int index, char aminoAcid);
+}
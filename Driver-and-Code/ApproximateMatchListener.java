@@ -0,0 +1,14 @@
+/**
+ * Receives the hits of an approximate search as they are found.
+ */
+public interface ApproximateMatchListener {
+    /**
+     * Method called for every hit.
+     * @param pattern the pattern as it was given to the search.
+     * @param start the index on the searched sequence where the hit starts.
+     * @param end the index just after the last nucleotide of the hit.
+     * @param distance the number of mismatches, or of edits when insertions and deletions are allowed.
+     * @param forwardStrand true if the pattern was found as given, false if its reverse compliment was found.
+     */
+    void matchFound(String pattern, int start, int end, int distance, boolean forwardStrand);
+}
@@ -0,0 +1,181 @@
+import java.util.Arrays;
+
+/**
+ * Finds every place a pattern of up to 64 nucleotides appears, on both strands, with up to k mismatches or up to k
+ * edits. Both run bit-parallel with the whole pattern in one long, so each nucleotide of the sequence costs a few word
+ * operations however long the pattern is: mismatches use Wu-Manber's extension of shift-and, and edits use Myers'
+ * bit-vector edit distance. Patterns may hold IUPAC ambiguity codes, such as N for any nucleotide.
+ */
+public class ApproximateSearcher {
+    //Longest pattern that fits in a long
+    public static final int MAX_PATTERN_LENGTH = 64;
+
+    //Nucleotides each IUPAC code stands for
+    private static final String[] IUPAC = {"AA", "CC", "GG", "TT", "UT", "RAG", "YCT", "SCG", "WAT", "KGT", "MAC",
+            "BCGT", "DAGT", "HACT", "VACG", "NACGT"};
+
+    //List variables
+    private final String pattern;
+    private final int maxDistance;
+    private final boolean allowIndels;
+    private final int length;
+    private final long[] forwardMasks = new long[128];
+    private final long[] reverseMasks = new long[128];
+    private final boolean palindrome;
+
+    /**
+     * Constructor for an approximate search.
+     * @param pattern the pattern, up to 64 nucleotides or IUPAC codes. Case is ignored.
+     * @param maxDistance the most mismatches or edits a hit may have.
+     * @param allowIndels false to count only mismatches, true to count insertions and deletions as well (edit distance).
+     */
+    public ApproximateSearcher(String pattern, int maxDistance, boolean allowIndels) {
+        if (pattern.isEmpty() || pattern.length() > MAX_PATTERN_LENGTH) {
+            throw new IllegalArgumentException("Patterns must be 1 to " + MAX_PATTERN_LENGTH + " nucleotides long");
+        }
+        if (maxDistance < 0 || maxDistance >= pattern.length()) {
+            throw new IllegalArgumentException("The distance must be at least 0 and less than the pattern length");
+        }
+        this.pattern = pattern;
+        this.maxDistance = maxDistance;
+        this.allowIndels = allowIndels;
+        this.length = pattern.length();
+
+        //Bit i of the mask of a nucleotide is set if position i of the pattern accepts it
+        String upper = pattern.toUpperCase();
+        String reverse = NucleotideTransforms.getComplimentaryReverse(upper, false).toString();
+        fillMasks(upper, this.forwardMasks);
+        fillMasks(reverse, this.reverseMasks);
+        this.palindrome = upper.equals(reverse);
+    }
+
+    private static void fillMasks(String pattern, long[] masks) {
+        for (int i = 0; i < pattern.length(); i++) {
+            String nucleotides = null;
+            for (String code : IUPAC) {
+                if (code.charAt(0) == pattern.charAt(i)) {
+                    nucleotides = code.substring(1);
+                }
+            }
+            if (nucleotides == null) {
+                throw new IllegalArgumentException("Invalid pattern character \"" + pattern.charAt(i) + "\"");
+            }
+            for (char nucleotide : nucleotides.toCharArray()) {
+                masks[nucleotide] |= 1L << i;
+                masks[Character.toLowerCase(nucleotide)] |= 1L << i;
+                if (nucleotide == 'T') {
+                    masks['U'] |= 1L << i;
+                    masks['u'] |= 1L << i;
+                }
+            }
+        }
+    }
+
+    /**
+     * Method to get the pattern.
+     * @return the pattern as it was given.
+     */
+    public String getPattern() {
+        return this.pattern;
+    }
+
+    /**
+     * Method to search a sequence on both strands. Every end index within the distance is a hit, so a hit with indels
+     * allowed is usually surrounded by hits one edit further away. Palindromic patterns are only searched once.
+     * @param sequenceData the sequence to search.
+     * @param listener receives each hit in order along the sequence, forward strand first for the same end.
+     * @return the number of hits.
+     */
+    public long search(CharSequence sequenceData, ApproximateMatchListener listener) {
+        long hits = searchStrand(sequenceData, this.forwardMasks, true, listener);
+        if (!this.palindrome) {
+            hits += searchStrand(sequenceData, this.reverseMasks, false, listener);
+        }
+        return hits;
+    }
+
+    private long searchStrand(CharSequence sequenceData, long[] masks, boolean forwardStrand, ApproximateMatchListener listener) {
+        return this.allowIndels ? searchEdits(sequenceData, masks, forwardStrand, listener)
+                : searchMismatches(sequenceData, masks, forwardStrand, listener);
+    }
+
+    private long searchMismatches(CharSequence sequenceData, long[] masks, boolean forwardStrand, ApproximateMatchListener listener) {
+        //states[d] has bit i set if the last i + 1 nucleotides match the start of the pattern with d mismatches or fewer
+        long[] states = new long[this.maxDistance + 1];
+        long last = 1L << (this.length - 1);
+        long hits = 0;
+        for (int i = 0; i < sequenceData.length(); i++) {
+            char nucleotide = sequenceData.charAt(i);
+            long mask = nucleotide < 128 ? masks[nucleotide] : 0;
+            long previous = states[0];
+            states[0] = (previous << 1 | 1) & mask;
+            for (int d = 1; d <= this.maxDistance; d++) {
+                long current = states[d];
+                states[d] = (current << 1 | 1) & mask | previous << 1 | 1;
+                previous = current;
+            }
+            for (int d = 0; d <= this.maxDistance; d++) {
+                if ((states[d] & last) != 0) {
+                    listener.matchFound(this.pattern, i + 1 - this.length, i + 1, d, forwardStrand);
+                    hits++;
+                    break;
+                }
+            }
+        }
+        return hits;
+    }
+
+    private long searchEdits(CharSequence sequenceData, long[] masks, boolean forwardStrand, ApproximateMatchListener listener) {
+        //Myers' algorithm keeps the differences between neighbouring cells of a column of the edit distance table
+        long positive = -1L, negative = 0;
+        long last = 1L << (this.length - 1);
+        int distance = this.length;
+        long hits = 0;
+        for (int i = 0; i < sequenceData.length(); i++) {
+            char nucleotide = sequenceData.charAt(i);
+            long mask = nucleotide < 128 ? masks[nucleotide] : 0;
+            long vertical = mask | negative;
+            long horizontal = ((mask & positive) + positive ^ positive) | mask;
+            long horizontalPositive = negative | ~(horizontal | positive);
+            long horizontalNegative = positive & horizontal;
+            if ((horizontalPositive & last) != 0) {
+                distance++;
+            } else if ((horizontalNegative & last) != 0) {
+                distance--;
+            }
+            horizontalPositive <<= 1;
+            horizontalNegative <<= 1;
+            positive = horizontalNegative | ~(vertical | horizontalPositive);
+            negative = horizontalPositive & vertical;
+            if (distance <= this.maxDistance) {
+                listener.matchFound(this.pattern, findStart(sequenceData, i + 1, masks, distance), i + 1, distance, forwardStrand);
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    private int findStart(CharSequence sequenceData, int end, long[] masks, int distance) {
+        //Aligns the pattern backwards from the end, the shortest stretch of sequence reaching the distance is the hit
+        int[] column = new int[this.length + 1];
+        for (int j = 0; j <= this.length; j++) {
+            column[j] = j;
+        }
+        for (int used = 1; used <= Math.min(end, this.length + this.maxDistance); used++) {
+            char nucleotide = sequenceData.charAt(end - used);
+            long mask = nucleotide < 128 ? masks[nucleotide] : 0;
+            int diagonal = column[0];
+            column[0] = used;
+            for (int j = 1; j <= this.length; j++) {
+                int cost = (mask >>> (this.length - j) & 1) != 0 ? 0 : 1;
+                int score = Math.min(diagonal + cost, Math.min(column[j], column[j - 1]) + 1);
+                diagonal = column[j];
+                column[j] = score;
+            }
+            if (column[this.length] == distance) {
+                return end - used;
+            }
+        }
+        return Math.max(0, end - this.length);
+    }
+}
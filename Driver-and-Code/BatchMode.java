@@ -0,0 +1,861 @@
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Non-interactive command line mode, for example {@code jgsmt revcomp --in x.fa --out y.fa} or
+ * {@code jgsmt count --frames 6 a.fa b.fa}. Every record of every input is processed on a bounded pool of worker
+ * threads and the results are written in input order. With no input files, FASTA is read from stdin. Inputs ending in
+ * ".jgs" are read as {@link SequenceArchive} files, which the "pack" command writes. FASTQ input is recognized by its
+ * first record and read in reusable batches by a {@link ReadProcessor} rather than one {@link Sequence} per read.
+ */
+public class BatchMode {
+    //Width of sequence lines in FASTA output
+    private static final int LINE_WIDTH = SequenceWriter.LINE_WIDTH;
+
+    //Records at least this long are written a buffer at a time by the commands that only change strand or format
+    private static final int STREAM_LENGTH = 1 << 20;
+
+    private static final String USAGE = """
+            Usage: jgsmt <command> [options] [files...]
+
+            Commands:
+              reverse       Reverse strand of each record (FASTA)
+              complement    Complimentary strand of each record (FASTA)
+              revcomp       Reverse complimentary strand of each record (FASTA)
+              rna           Each record in RNA format (FASTA)
+              dna           Each record in DNA format (FASTA)
+              translate     Protein of each record in --frame (FASTA)
+              count         Nucleotide counts, or amino acid counts with --frames
+              search        Every hit of --pattern on both strands
+              orfs          Open reading frames in all six frames
+              kmers         Count of every k-mer of length --k
+              windows       BEDGraph of --measure in sliding windows
+              align         Best alignment of the first record of --query to each record, on both strands
+              pack          Save every record to a binary archive (--out, ending in .jgs) that loads without parsing
+              sketch        Save a MinHash sketch of every record (--out, ending in .jgsk) for distance
+              distance      Matrix of Mash distances between every pair of records and saved sketches
+              serve         Keep every record loaded and answer queries over HTTP on --port until stopped
+
+            FASTQ input is recognized by its first line. reverse, complement, revcomp, rna and dna then write FASTQ,
+            with the quality scores kept with their bases, and count, search and translate work on each read.
+
+            Options:
+              --in <file>        Input FASTA or FASTQ file, may be repeated and may be gzip or BGZF compressed.
+                                 Files can also be listed at the end. Default: stdin
+              --out <file>       Output file, gzip compressed if it ends in .gz. Default: stdout
+              --type <DNA|RNA>   Sequence type of the input. Default: DNA
+              --frame <n>        Reading frame used by translate and count --frames 1 (1 to 3 or -1 to -3). Default: 1
+              --frames <1|3|6>   Count amino acids in the reading frame, frames 1 to 3, or all six frames
+              --table <n>        NCBI translation table. Default: 1
+              --pattern <list>   Comma separated motifs for search
+              --mismatches <n>   Let search hits have up to n mismatches (patterns up to 64 nucleotides)
+              --edits <n>        Let search hits have up to n mismatches, insertions or deletions
+              --min <n>          Minimum open reading frame length in amino acids. Default: 100
+              --k <n>            K-mer length for kmers, sketch and distance, 1 to 31. Default: 21
+              --sketch <n>       Hashes kept in each sketch by sketch and distance. Default: 1000
+              --canonical        Count each k-mer together with its reverse compliment
+              --window <n>       Window size for windows. Default: 100
+              --step <n>         Step between windows. Default: the window size
+              --measure <name>   gc, skew, cpg or entropy. Default: gc
+              --query <file>     FASTA file holding the sequence to align
+              --mode <name>      global or local alignment. Default: local
+              --band <n>         Band around the main diagonal for global alignment, 0 for none. Default: 0
+              --index            Build and store a subsequence index of each record with pack
+              --uncompressed     Store every block of a pack as it is, for the fastest loading
+              --threads <n>      Worker threads, or requests served at once. Default: number of processors
+              --batch <n>        Reads per batch for FASTQ input. Default: 4096
+              --port <n>         Local port for serve, 0 for any free port. Default: 8765
+              --queue <n>        Requests serve lets wait before turning more away. Default: 256
+              --cache <MiB>      Cache translations, counts, open reading frames and indexes of records with the
+                                 same nucleotides in this much memory. Default: 0, no cache
+              --spill <dir>      Write results pushed out of the cache to this directory, up to 4 times --cache
+              --metrics          Print the timing of every operation to stderr when done
+            """;
+
+    //List variables
+    private final String command;
+    private final List<String> inputs = new ArrayList<>();
+    private String output;
+    private String sequenceType = "DNA";
+    private int readingFrame = 1;
+    private int frames;
+    private GeneticCode geneticCode = GeneticCode.STANDARD;
+    private List<String> patterns = new ArrayList<>();
+    private int minimumLength = 100;
+    private int maxDistance = -1;
+    private boolean allowIndels;
+    private int k = MinHashSketch.DEFAULT_K;
+    private int sketchSize = MinHashSketch.DEFAULT_SIZE;
+    private boolean canonical;
+    private int windowSize = 100;
+    private int stepSize;
+    private WindowProfiler.Measure measure = WindowProfiler.Measure.GC_CONTENT;
+    private String queryFile;
+    private Aligner.Mode alignmentMode = Aligner.Mode.LOCAL;
+    private int band;
+    private Sequence query;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private boolean metrics;
+    private boolean index;
+    private boolean compressed = true;
+    private int batchSize = ReadProcessor.DEFAULT_BATCH_SIZE;
+    private int port = SequenceServer.DEFAULT_PORT;
+    private int queueLength = 256;
+    private long cacheBytes;
+    private String spillDirectory;
+    private MotifSearcher motifSearcher;
+    private List<ApproximateSearcher> approximateSearchers;
+    private OperationMetrics operation;
+
+    private BatchMode(String command) {
+        this.command = command;
+    }
+
+    /**
+     * Method to run a command line.
+     * @param args the command and its options.
+     * @return the exit code: 0 on success, 1 on an error and 2 on a usage error.
+     */
+    public static int run(String[] args) {
+        //Warnings go to stderr, so stdout only carries results
+        PrintStream stdout = System.out;
+        BatchMode batch = null;
+        try {
+            try {
+                batch = parse(args);
+            } catch (IllegalArgumentException e) {
+                System.err.println("Error: " + e.getMessage() + "\n");
+                System.err.print(USAGE);
+                return 2;
+            }
+            if (batch == null) {
+                stdout.print(USAGE);
+                return 0;
+            }
+            batch.execute(stdout);
+            return 0;
+        } catch (IOException | ExecutionException | IllegalArgumentException e) {
+            //Bad input found while running, such as two records with the same name in a pack
+            Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+            System.err.println("Error: " + cause.getMessage());
+            return 1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 1;
+        } finally {
+            ResultCache cache = Sequence.getResultCache();
+            if (batch != null && batch.metrics) {
+                System.err.print(Metrics.getReport());
+                if (cache != null) {
+                    System.err.println(cache);
+                }
+            }
+            if (cache != null) {
+                Sequence.setResultCache(null);
+                cache.close();
+            }
+        }
+    }
+
+    private static BatchMode parse(String[] args) {
+        if (args.length == 0 || args[0].equals("help") || args[0].equals("--help") || args[0].equals("-h")) {
+            return null;
+        }
+        BatchMode batch = new BatchMode(args[0]);
+        if (!List.of("reverse", "complement", "revcomp", "rna", "dna", "translate", "count", "search", "orfs", "kmers", "windows", "align", "pack", "serve", "sketch", "distance").contains(batch.command)) {
+            throw new IllegalArgumentException("Unknown command \"" + batch.command + "\"");
+        }
+        for (int i = 1; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                batch.inputs.add(arg);
+                continue;
+            }
+            if (List.of("--canonical", "--metrics", "--index", "--uncompressed").contains(arg)) {
+                switch (arg) {
+                    case "--canonical" -> batch.canonical = true;
+                    case "--metrics" -> batch.metrics = true;
+                    case "--index" -> batch.index = true;
+                    default -> batch.compressed = false;
+                }
+                continue;
+            }
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + arg);
+            }
+            String value = args[++i];
+            try {
+                switch (arg) {
+                    case "--in" -> batch.inputs.add(value);
+                    case "--out" -> batch.output = value;
+                    case "--type" -> {
+                        if (!value.equalsIgnoreCase("DNA") && !value.equalsIgnoreCase("RNA")) {
+                            throw new IllegalArgumentException("Sequence type must be DNA or RNA");
+                        }
+                        batch.sequenceType = value.toUpperCase();
+                    }
+                    case "--frame" -> {
+                        batch.readingFrame = Integer.parseInt(value);
+                        if (batch.readingFrame == 0 || Math.abs(batch.readingFrame) > 3) {
+                            throw new IllegalArgumentException("Reading frame must be 1 to 3 or -1 to -3");
+                        }
+                    }
+                    case "--frames" -> {
+                        batch.frames = Integer.parseInt(value);
+                        if (batch.frames != 1 && batch.frames != 3 && batch.frames != 6) {
+                            throw new IllegalArgumentException("Frames must be 1, 3 or 6");
+                        }
+                    }
+                    case "--table" -> batch.geneticCode = GeneticCode.forTable(Integer.parseInt(value));
+                    case "--pattern" -> batch.patterns = Arrays.asList(value.split(","));
+                    case "--min" -> batch.minimumLength = Integer.parseInt(value);
+                    case "--mismatches", "--edits" -> {
+                        batch.maxDistance = Integer.parseInt(value);
+                        batch.allowIndels = arg.equals("--edits");
+                    }
+                    case "--k" -> {
+                        batch.k = Integer.parseInt(value);
+                        if (batch.k < 1 || batch.k > KmerCounter.MAX_K) {
+                            throw new IllegalArgumentException("K-mer length must be 1 to " + KmerCounter.MAX_K);
+                        }
+                    }
+                    case "--sketch" -> {
+                        batch.sketchSize = Integer.parseInt(value);
+                        if (batch.sketchSize < 1) {
+                            throw new IllegalArgumentException("Sketch size must be at least 1");
+                        }
+                    }
+                    case "--window" -> batch.windowSize = Integer.parseInt(value);
+                    case "--step" -> batch.stepSize = Integer.parseInt(value);
+                    case "--measure" -> batch.measure = switch (value.toLowerCase()) {
+                        case "gc" -> WindowProfiler.Measure.GC_CONTENT;
+                        case "skew" -> WindowProfiler.Measure.GC_SKEW;
+                        case "cpg" -> WindowProfiler.Measure.CPG_RATIO;
+                        case "entropy" -> WindowProfiler.Measure.ENTROPY;
+                        default -> throw new IllegalArgumentException("Measure must be gc, skew, cpg or entropy");
+                    };
+                    case "--query" -> batch.queryFile = value;
+                    case "--mode" -> batch.alignmentMode = switch (value.toLowerCase()) {
+                        case "global" -> Aligner.Mode.GLOBAL;
+                        case "local" -> Aligner.Mode.LOCAL;
+                        default -> throw new IllegalArgumentException("Mode must be global or local");
+                    };
+                    case "--band" -> batch.band = Integer.parseInt(value);
+                    case "--threads" -> batch.threads = Math.max(1, Integer.parseInt(value));
+                    case "--batch" -> batch.batchSize = Math.max(1, Integer.parseInt(value));
+                    case "--port" -> batch.port = Integer.parseInt(value);
+                    case "--queue" -> batch.queueLength = Math.max(0, Integer.parseInt(value));
+                    case "--cache" -> batch.cacheBytes = Math.max(0, Long.parseLong(value)) << 20;
+                    case "--spill" -> batch.spillDirectory = value;
+                    default -> throw new IllegalArgumentException("Unknown option " + arg);
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid number for " + arg + ": " + value);
+            }
+        }
+        if (batch.stepSize == 0) {
+            batch.stepSize = batch.windowSize;
+        }
+        if (batch.windowSize < 1 || batch.stepSize < 1) {
+            throw new IllegalArgumentException("Window and step sizes must be at least 1");
+        }
+        if (batch.command.equals("align") && batch.queryFile == null) {
+            throw new IllegalArgumentException("align needs --query");
+        }
+        if (batch.band < 0) {
+            throw new IllegalArgumentException("Band can't be negative");
+        }
+        if (batch.command.equals("pack") && batch.output == null) {
+            throw new IllegalArgumentException("pack needs --out");
+        }
+        if (batch.command.equals("sketch") && batch.output == null) {
+            throw new IllegalArgumentException("sketch needs --out");
+        }
+        if (batch.spillDirectory != null && batch.cacheBytes == 0) {
+            throw new IllegalArgumentException("--spill needs --cache");
+        }
+        if (batch.command.equals("search") && batch.patterns.isEmpty()) {
+            throw new IllegalArgumentException("search needs --pattern");
+        }
+        if (batch.maxDistance >= 0) {
+            //Checks the patterns here so a bad one is a usage error
+            for (String pattern : batch.patterns) {
+                new ApproximateSearcher(pattern, batch.maxDistance, batch.allowIndels);
+            }
+        }
+        batch.operation = Metrics.operation("Batch." + batch.command);
+        return batch;
+    }
+
+    private void execute(PrintStream stdout) throws IOException, InterruptedException, ExecutionException {
+        if (this.inputs.isEmpty()) {
+            this.inputs.add("-");
+        }
+        if (this.queryFile != null) {
+            this.query = new Sequence(true, 1, this.sequenceType, new File(this.queryFile));
+        }
+        if (this.cacheBytes > 0) {
+            File spill = this.spillDirectory == null ? null : new File(this.spillDirectory);
+            Sequence.setResultCache(new ResultCache("Batch", this.cacheBytes, spill, 4 * this.cacheBytes));
+        }
+        if (this.command.equals("pack")) {
+            pack();
+            return;
+        }
+        if (this.command.equals("serve")) {
+            serve();
+            return;
+        }
+        if (this.command.equals("sketch") || this.command.equals("distance")) {
+            compare(stdout);
+            return;
+        }
+        if (this.command.equals("search")) {
+            //Built once and shared by the threads searching FASTQ reads
+            this.motifSearcher = new MotifSearcher(this.patterns, this.sequenceType.equals("RNA"));
+            this.approximateSearchers = new ArrayList<>();
+            for (String pattern : this.maxDistance < 0 ? List.<String>of() : this.patterns) {
+                this.approximateSearchers.add(new ApproximateSearcher(pattern, this.maxDistance, this.allowIndels));
+            }
+        }
+        OutputStream file = this.output == null ? stdout : new FileOutputStream(this.output);
+        OutputStream target = this.output != null && this.output.endsWith(".gz") ? new GZIPOutputStream(file, 1 << 16) : file;
+        ExecutorService pool = Executors.newFixedThreadPool(this.threads);
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), 1 << 16)) {
+            writeHeader(writer);
+            SequenceWriter sequenceWriter = new SequenceWriter(target, LINE_WIDTH, false);
+
+            //Results are written in input order, at most a couple of records per thread are in flight
+            ArrayDeque<Future<String>> pending = new ArrayDeque<>();
+            int capacity = this.threads * 2;
+            for (String input : this.inputs) {
+                readInput(input, false, record -> {
+                    if (record.length() >= STREAM_LENGTH && List.of("reverse", "complement", "revcomp", "rna", "dna").contains(this.command)) {
+                        //Long records are written straight from their view, after the results of every record before them
+                        while (!pending.isEmpty()) {
+                            writer.write(pending.poll().get());
+                        }
+                        writer.flush();
+                        stream(record, sequenceWriter);
+                        return;
+                    }
+                    pending.add(pool.submit(() -> process(record)));
+                    while (pending.size() >= capacity) {
+                        writer.write(pending.poll().get());
+                    }
+                }, reader -> {
+                    if (!List.of("reverse", "complement", "revcomp", "rna", "dna", "translate", "count", "search").contains(this.command)) {
+                        throw new IllegalArgumentException(this.command + " needs FASTA input, " + input + " is FASTQ");
+                    }
+                    //Reads are written straight to the output, after the results of every record before them
+                    while (!pending.isEmpty()) {
+                        writer.write(pending.poll().get());
+                    }
+                    writer.flush();
+                    new ReadProcessor(pool, this.threads, this.batchSize).process(reader, this::process, target);
+                });
+            }
+            while (!pending.isEmpty()) {
+                writer.write(pending.poll().get());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private void pack() throws IOException, InterruptedException, ExecutionException {
+        //Records are read packed, so the archive is built without holding any sequence as characters
+        List<Sequence> sequences = new ArrayList<>();
+        for (String input : this.inputs) {
+            readInput(input, true, record -> sequences.add(record.toSequence(true, 1, this.sequenceType)), null);
+        }
+        if (this.index) {
+            ExecutorService pool = Executors.newFixedThreadPool(this.threads);
+            try {
+                List<Future<?>> built = new ArrayList<>();
+                for (Sequence sequence : sequences) {
+                    built.add(pool.submit(sequence::buildSubsequenceIndex));
+                }
+                for (Future<?> future : built) {
+                    future.get();
+                }
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+        SequenceArchive.write(new File(this.output), sequences, this.compressed);
+        long nucleotides = 0;
+        for (Sequence sequence : sequences) {
+            nucleotides += sequence.length();
+        }
+        System.err.println("Packed " + sequences.size() + " records (" + nucleotides + " nt) into " + this.output);
+    }
+
+    private void serve() throws IOException, InterruptedException, ExecutionException {
+        //Records are loaded once and answer every query until the process is stopped
+        Map<String, Sequence> references = new LinkedHashMap<>();
+        for (String input : this.inputs) {
+            readInput(input, false, record -> {
+                if (references.putIfAbsent(record.getId(), record.toSequence(true, 1, this.sequenceType)) != null) {
+                    throw new IllegalArgumentException("Two records are named \"" + record.getId() + "\"");
+                }
+            }, null);
+        }
+        SequenceServer server = new SequenceServer(references, new InetSocketAddress(InetAddress.getLoopbackAddress(), this.port),
+                this.threads, this.queueLength);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        server.start();
+        System.err.println("Serving " + references.size() + " records on http://" + server.getAddress().getHostString() + ":"
+                + server.getAddress().getPort() + (server.usesVirtualThreads() ? " with virtual threads" : "") + ", stop with Ctrl+C");
+        server.awaitClose();
+    }
+
+    private void compare(PrintStream stdout) throws IOException, InterruptedException, ExecutionException {
+        ExecutorService pool = Executors.newFixedThreadPool(this.threads);
+        try {
+            List<MinHashSketch> sketches = sketch(pool);
+            if (this.command.equals("sketch")) {
+                MinHashSketch.save(new File(this.output), sketches);
+                System.err.println("Sketched " + sketches.size() + " records into " + this.output);
+                return;
+            }
+
+            //Rows are worked out on the pool and written in order, a couple per thread in flight
+            OutputStream file = this.output == null ? stdout : new FileOutputStream(this.output);
+            OutputStream target = this.output != null && this.output.endsWith(".gz") ? new GZIPOutputStream(file, 1 << 16) : file;
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), 1 << 16)) {
+                writer.write("#name");
+                for (MinHashSketch sketch : sketches) {
+                    writer.write('\t' + sketch.getName());
+                }
+                writer.write('\n');
+                ArrayDeque<Future<String>> pending = new ArrayDeque<>();
+                for (MinHashSketch row : sketches) {
+                    pending.add(pool.submit(() -> distances(row, sketches)));
+                    while (pending.size() >= this.threads * 2) {
+                        writer.write(pending.poll().get());
+                    }
+                }
+                while (!pending.isEmpty()) {
+                    writer.write(pending.poll().get());
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private List<MinHashSketch> sketch(ExecutorService pool) throws IOException, InterruptedException, ExecutionException {
+        //Records are sketched on the pool, several at a time, and saved sketches are loaded in their place in the order
+        List<MinHashSketch> output = new ArrayList<>();
+        ArrayDeque<Future<MinHashSketch>> pending = new ArrayDeque<>();
+        for (String input : this.inputs) {
+            if (input.endsWith(MinHashSketch.EXTENSION)) {
+                while (!pending.isEmpty()) {
+                    output.add(pending.poll().get());
+                }
+                for (MinHashSketch sketch : MinHashSketch.load(new File(input))) {
+                    if (sketch.getK() != this.k || sketch.getSize() != this.sketchSize) {
+                        throw new IllegalArgumentException(input + " holds sketches of k " + sketch.getK() + " and size " + sketch.getSize()
+                                + ", use the same --k and --sketch");
+                    }
+                    output.add(sketch);
+                }
+                continue;
+            }
+            readInput(input, false, record -> {
+                pending.add(pool.submit(() -> {
+                    Sequence sequence = record.toSequence(true, 1, this.sequenceType);
+                    return this.operation.time(sequence.length(), () -> sequence.sketch(this.k, this.sketchSize));
+                }));
+                while (pending.size() >= this.threads * 2) {
+                    output.add(pending.poll().get());
+                }
+            }, null);
+        }
+        while (!pending.isEmpty()) {
+            output.add(pending.poll().get());
+        }
+        return output;
+    }
+
+    private static String distances(MinHashSketch row, List<MinHashSketch> sketches) {
+        StringBuilder output = new StringBuilder(row.getName());
+        for (MinHashSketch column : sketches) {
+            output.append('\t').append(String.format(Locale.ROOT, "%.6f", row.distance(column)));
+        }
+        return output.append('\n').toString();
+    }
+
+    private void readInput(String input, boolean packed, RecordHandler handler, ReadsHandler reads) throws IOException, InterruptedException, ExecutionException {
+        //Archives hold no descriptions, only names
+        if (input.endsWith(SequenceArchive.EXTENSION)) {
+            try (SequenceArchive archive = new SequenceArchive(new File(input))) {
+                for (String name : archive.getNames()) {
+                    handler.accept(new FastaRecord(name, "", archive.loadPacked(name)));
+                }
+            }
+            return;
+        }
+        //FASTQ is told apart from FASTA by its first record, after any decompression
+        InputStream in = CompressedInputStream.open(input.equals("-") ? System.in : new FileInputStream(input), this.threads);
+        if (!in.markSupported()) {
+            in = new BufferedInputStream(in, 1 << 16);
+        }
+        if (FastqReader.isFastq(in)) {
+            if (reads == null) {
+                in.close();
+                throw new IllegalArgumentException(this.command + " needs FASTA input, " + input + " is FASTQ");
+            }
+            try (FastqReader reader = new FastqReader(in)) {
+                reads.accept(reader);
+            }
+            return;
+        }
+        try (FastaReader reader = new FastaReader(in)) {
+            reader.setPacked(packed);
+            FastaRecord record;
+            while ((record = reader.nextRecord()) != null) {
+                handler.accept(record);
+            }
+        }
+    }
+
+    /**
+     * Receives each record of an input in order.
+     */
+    private interface RecordHandler {
+        void accept(FastaRecord record) throws IOException, InterruptedException, ExecutionException;
+    }
+
+    /**
+     * Receives an input that holds FASTQ reads.
+     */
+    private interface ReadsHandler {
+        void accept(FastqReader reader) throws IOException, InterruptedException, ExecutionException;
+    }
+
+    private void writeHeader(Writer writer) throws IOException {
+        //Column names for the table outputs
+        switch (this.command) {
+            case "count" -> {
+                if (this.frames == 0) {
+                    writer.write("#name\tA\tC\tG\t" + (this.sequenceType.equals("RNA") ? "U" : "T") + "\tother\n");
+                } else {
+                    writer.write("#name\tframe\t" + String.join("\t", GeneticCode.AMINO_ACIDS.split("")) + "\n");
+                }
+            }
+            case "search" -> writer.write(this.maxDistance < 0 ? "#name\tmotif\tindex\tstrand\n" : "#name\tpattern\tstart\tend\tdistance\tstrand\n");
+            case "orfs" -> writer.write("#name\tframe\tstart\tend\tamino_acids\n");
+            case "kmers" -> writer.write("#name\tkmer\tcount\n");
+            case "align" -> writer.write("#name\tscore\tstrand\tquery_start\tquery_end\ttarget_start\ttarget_end\tcigar\n");
+            case "windows" -> writer.write("track type=bedGraph name=\"" + this.measure.name().toLowerCase() + "\"\n");
+            default -> {
+            }
+        }
+    }
+
+    private String process(FastaRecord record) {
+        Sequence sequence = record.toSequence(true, this.readingFrame, this.sequenceType);
+        return this.operation.time(sequence.length(), () -> process(record, sequence));
+    }
+
+    private String process(FastaRecord record, Sequence sequence) {
+        String name = record.getId();
+        if (!sequence.getValidationReport().isValid()) {
+            System.err.println("Warning! " + name + ": " + sequence.getValidationReport());
+        }
+        StringBuilder output = new StringBuilder();
+        switch (this.command) {
+            case "reverse" -> appendFasta(output, record, sequence.getReverse());
+            case "complement" -> appendFasta(output, record, sequence.getComplimentary());
+            case "revcomp" -> appendFasta(output, record, sequence.getComplimentaryReverse());
+            case "rna" -> appendFasta(output, record, sequence.getRNA());
+            case "dna" -> appendFasta(output, record, sequence.getDNA());
+            case "translate" -> {
+                //Reverse frames are translated from a reverse complimentary view
+                Sequence strand = this.readingFrame < 0 ? sequence.getComplimentaryReverse() : sequence;
+                strand.setReadingFrame(Math.abs(this.readingFrame));
+                appendFasta(output, record, strand.getProtein(this.geneticCode));
+            }
+            case "count" -> {
+                if (this.frames == 0) {
+                    appendNucleotideCounts(output, name, sequence);
+                } else {
+                    appendAminoAcidCounts(output, name, sequence);
+                }
+            }
+            case "search" -> {
+                if (this.maxDistance < 0) {
+                    sequence.searchMotifs(this.patterns, (motif, index, forwardStrand) ->
+                            output.append(name).append('\t').append(motif).append('\t').append(index).append('\t').append(forwardStrand ? '+' : '-').append('\n'));
+                } else {
+                    for (String pattern : this.patterns) {
+                        sequence.searchApproximate(pattern, this.maxDistance, this.allowIndels, (hit, start, end, distance, forwardStrand) ->
+                                output.append(name).append('\t').append(hit).append('\t').append(start).append('\t').append(end)
+                                        .append('\t').append(distance).append('\t').append(forwardStrand ? '+' : '-').append('\n'));
+                    }
+                }
+            }
+            case "orfs" -> {
+                for (OpenReadingFrame frame : sequence.findOpenReadingFrames(this.geneticCode, this.minimumLength)) {
+                    output.append(name).append('\t').append(String.format("%+d", frame.getReadingFrame())).append('\t').append(frame.getStart())
+                            .append('\t').append(frame.getEnd()).append('\t').append(frame.getProteinLength()).append('\n');
+                }
+            }
+            case "kmers" -> {
+                KmerTable table = sequence.countKmers(this.k, this.canonical);
+                for (long kmer : table.sortedKmers()) {
+                    output.append(name).append('\t').append(KmerCounter.decode(kmer, this.k)).append('\t').append(table.get(kmer)).append('\n');
+                }
+            }
+            case "windows" -> {
+                StringWriter track = new StringWriter();
+                try {
+                    new WindowProfiler(this.windowSize, this.stepSize).writeBedGraph(name, sequence.getSequenceData(), this.measure, track);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                output.append(track.getBuffer());
+            }
+            case "align" -> {
+                Alignment alignment = this.query.align(sequence, new Aligner(this.alignmentMode, 2, 3, 5, this.band));
+                output.append(name).append('\t').append(alignment.getScore()).append('\t').append(alignment.isForwardStrand() ? '+' : '-')
+                        .append('\t').append(alignment.getQueryStart()).append('\t').append(alignment.getQueryEnd())
+                        .append('\t').append(alignment.getTargetStart()).append('\t').append(alignment.getTargetEnd())
+                        .append('\t').append(alignment.getCigar().isEmpty() ? "*" : alignment.getCigar()).append('\n');
+            }
+            default -> throw new IllegalStateException(this.command);
+        }
+        return output.toString();
+    }
+
+    private void stream(FastaRecord record, SequenceWriter out) throws IOException {
+        Sequence sequence = record.toSequence(true, this.readingFrame, this.sequenceType);
+        this.operation.time(sequence.length(), () -> {
+            if (!sequence.getValidationReport().isValid()) {
+                System.err.println("Warning! " + record.getId() + ": " + sequence.getValidationReport());
+            }
+            Sequence strand = switch (this.command) {
+                case "reverse" -> sequence.getReverse();
+                case "complement" -> sequence.getComplimentary();
+                case "revcomp" -> sequence.getComplimentaryReverse();
+                case "rna" -> sequence.getRNA();
+                case "dna" -> sequence.getDNA();
+                default -> throw new IllegalStateException(this.command);
+            };
+            out.writeRecord(record.getDescription().isEmpty() ? record.getId() : record.getId() + " " + record.getDescription(), strand);
+            out.flush();
+        });
+    }
+
+    private void appendFasta(StringBuilder output, FastaRecord record, Sequence sequence) {
+        output.append('>').append(record.getId());
+        if (!record.getDescription().isEmpty()) {
+            output.append(' ').append(record.getDescription());
+        }
+        output.append('\n');
+        for (int i = 0; i < sequence.length(); i++) {
+            output.append(sequence.charAt(i));
+            if ((i + 1) % LINE_WIDTH == 0 || i == sequence.length() - 1) {
+                output.append('\n');
+            }
+        }
+    }
+
+    private void appendFasta(StringBuilder output, FastaRecord record, String protein) {
+        output.append('>').append(record.getId());
+        if (!record.getDescription().isEmpty()) {
+            output.append(' ').append(record.getDescription());
+        }
+        output.append('\n');
+        for (int i = 0; i < protein.length(); i += LINE_WIDTH) {
+            output.append(protein, i, Math.min(protein.length(), i + LINE_WIDTH)).append('\n');
+        }
+    }
+
+    private void appendNucleotideCounts(StringBuilder output, String name, Sequence sequence) {
+        long[] counts = new ParallelScanner().countSymbols(sequence.getSequenceData());
+        long adenine = counts['A'], cytosine = counts['C'], guanine = counts['G'], thymine = counts['T'] + counts['U'];
+        long other = sequence.length() - adenine - cytosine - guanine - thymine;
+        output.append(name).append('\t').append(adenine).append('\t').append(cytosine).append('\t').append(guanine)
+                .append('\t').append(thymine).append('\t').append(other).append('\n');
+    }
+
+    private void appendAminoAcidCounts(StringBuilder output, String name, Sequence sequence) {
+        //Reverse frames are counted on a reverse complimentary view, which copies nothing
+        int[] readingFrames = switch (this.frames) {
+            case 1 -> new int[]{this.readingFrame};
+            case 3 -> new int[]{1, 2, 3};
+            default -> new int[]{1, 2, 3, -1, -2, -3};
+        };
+        Sequence reverse = null;
+        for (int frame : readingFrames) {
+            Sequence strand = sequence;
+            if (frame < 0) {
+                reverse = reverse == null ? sequence.getComplimentaryReverse() : reverse;
+                strand = reverse;
+            }
+            strand.setReadingFrame(Math.abs(frame));
+            output.append(name).append('\t').append(String.format("%+d", frame));
+            for (int count : strand.countAminoAcids(this.geneticCode)) {
+                output.append('\t').append(count);
+            }
+            output.append('\n');
+        }
+    }
+
+    private void process(ReadBatch batch, ReadProcessor.Output output) {
+        //A whole batch of FASTQ reads, each read straight from the batch's arrays
+        this.operation.time(batch.getTotalLength(), () -> {
+            switch (this.command) {
+                case "translate" -> appendProteins(batch, output);
+                case "count" -> {
+                    if (this.frames == 0) {
+                        appendNucleotideCounts(batch, output);
+                    } else {
+                        appendAminoAcidCounts(batch, output);
+                    }
+                }
+                case "search" -> appendHits(batch, output);
+                default -> appendFastq(batch, output);
+            }
+        });
+    }
+
+    private void appendFastq(ReadBatch batch, ReadProcessor.Output output) {
+        //Quality scores stay with their bases, so they are reversed along with the strand
+        boolean reverse = this.command.equals("reverse") || this.command.equals("revcomp");
+        boolean compliment = this.command.equals("complement") || this.command.equals("revcomp");
+        boolean rna = compliment ? this.sequenceType.equals("RNA") : this.command.equals("rna");
+        for (int read = 0; read < batch.size(); read++) {
+            int offset = batch.getOffset(read), length = batch.getLength(read);
+            output.append('@').append(batch.getHeaders(), batch.getHeaderOffset(read), batch.getHeaderLength(read)).append('\n');
+            int at = output.reserve(length);
+            if (compliment) {
+                NucleotideTransforms.copyComplimentary(batch.getBases(), offset, length, output.getBuffer(), at, rna, reverse);
+            } else if (reverse) {
+                NucleotideTransforms.copyReverse(batch.getBases(), offset, length, output.getBuffer(), at);
+            } else {
+                NucleotideTransforms.copyConverted(batch.getBases(), offset, length, output.getBuffer(), at, rna);
+            }
+            output.append("\n+\n");
+            if (reverse) {
+                at = output.reserve(length);
+                NucleotideTransforms.copyReverse(batch.getQualities(), offset, length, output.getBuffer(), at);
+            } else {
+                output.append(batch.getQualities(), offset, length);
+            }
+            output.append('\n');
+        }
+    }
+
+    private void appendProteins(ReadBatch batch, ReadProcessor.Output output) {
+        boolean forward = this.readingFrame > 0;
+        for (int read = 0; read < batch.size(); read++) {
+            int offset = batch.getOffset(read), length = batch.getLength(read);
+            output.append('>').append(batch.getHeaders(), batch.getHeaderOffset(read), batch.getHeaderLength(read)).append('\n');
+            int aminoAcids = 0;
+            for (int i = Math.abs(this.readingFrame) - 1; i + 3 <= length; i += 3) {
+                output.append(this.geneticCode.getAminoAcid(codonIndex(batch.getBases(), offset, length, i, forward)));
+                if (++aminoAcids % LINE_WIDTH == 0) {
+                    output.append('\n');
+                }
+            }
+            if (aminoAcids % LINE_WIDTH != 0) {
+                output.append('\n');
+            }
+        }
+    }
+
+    private void appendNucleotideCounts(ReadBatch batch, ReadProcessor.Output output) {
+        byte[] bases = batch.getBases();
+        for (int read = 0; read < batch.size(); read++) {
+            int offset = batch.getOffset(read), length = batch.getLength(read);
+            long adenine = 0, cytosine = 0, guanine = 0, thymine = 0;
+            for (int i = offset; i < offset + length; i++) {
+                switch (bases[i]) {
+                    case 'A' -> adenine++;
+                    case 'C' -> cytosine++;
+                    case 'G' -> guanine++;
+                    case 'T', 'U' -> thymine++;
+                    default -> {
+                    }
+                }
+            }
+            appendName(batch, read, output).append('\t').append(adenine).append('\t').append(cytosine).append('\t').append(guanine)
+                    .append('\t').append(thymine).append('\t').append(length - adenine - cytosine - guanine - thymine).append('\n');
+        }
+    }
+
+    private void appendAminoAcidCounts(ReadBatch batch, ReadProcessor.Output output) {
+        int[] readingFrames = switch (this.frames) {
+            case 1 -> new int[]{this.readingFrame};
+            case 3 -> new int[]{1, 2, 3};
+            default -> new int[]{1, 2, 3, -1, -2, -3};
+        };
+        int[] counts = new int[GeneticCode.AMINO_ACIDS.length()];
+        for (int read = 0; read < batch.size(); read++) {
+            int offset = batch.getOffset(read), length = batch.getLength(read);
+            for (int frame : readingFrames) {
+                Arrays.fill(counts, 0);
+                for (int i = Math.abs(frame) - 1; i + 3 <= length; i += 3) {
+                    int aminoAcid = this.geneticCode.getAminoAcidIndex(codonIndex(batch.getBases(), offset, length, i, frame > 0));
+                    if (aminoAcid != GeneticCode.UNKNOWN) {
+                        counts[aminoAcid]++;
+                    }
+                }
+                appendName(batch, read, output).append('\t').append(frame > 0 ? "+" + frame : Integer.toString(frame));
+                for (int count : counts) {
+                    output.append('\t').append(count);
+                }
+                output.append('\n');
+            }
+        }
+    }
+
+    private void appendHits(ReadBatch batch, ReadProcessor.Output output) {
+        //One view and one listener for the whole batch, pointed at each read in turn
+        ReadBatch.View view = batch.view();
+        int[] current = new int[1];
+        MotifListener motifListener = (motif, index, forwardStrand) -> appendName(batch, current[0], output).append('\t')
+                .append(motif).append('\t').append(index).append('\t').append(forwardStrand ? '+' : '-').append('\n');
+        ApproximateMatchListener approximateListener = (hit, start, end, distance, forwardStrand) -> appendName(batch, current[0], output)
+                .append('\t').append(hit).append('\t').append(start).append('\t').append(end).append('\t').append(distance)
+                .append('\t').append(forwardStrand ? '+' : '-').append('\n');
+        for (int read = 0; read < batch.size(); read++) {
+            current[0] = read;
+            view.select(read);
+            if (this.maxDistance < 0) {
+                this.motifSearcher.search(view, motifListener);
+            } else {
+                for (ApproximateSearcher searcher : this.approximateSearchers) {
+                    searcher.search(view, approximateListener);
+                }
+            }
+        }
+    }
+
+    private static ReadProcessor.Output appendName(ReadBatch batch, int read, ReadProcessor.Output output) {
+        //Copied from the header bytes, so no name is made per read
+        return output.append(batch.getHeaders(), batch.getHeaderOffset(read), batch.getNameLength(read));
+    }
+
+    private static int codonIndex(byte[] bases, int offset, int length, int start, boolean forward) {
+        //Codon of a read, or of its reverse compliment counted from the other end, without copying the read
+        int codon = 0;
+        for (int i = start; i < start + 3; i++) {
+            int code = PackedSequence.codeOf((char) (bases[forward ? offset + i : offset + length - 1 - i] & 0xFF));
+            if (code < 0) {
+                return -1;
+            }
+            codon = codon << 2 | (forward ? code : PackedSequence.T - code);
+        }
+        return codon;
+    }
+}
@@ -0,0 +1,260 @@
+import java.io.*;
+import java.util.concurrent.*;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+/**
+ * Transparent decompression of gzip and BGZF (blocked gzip, as written by bgzip and samtools) input, see
+ * {@link #open(InputStream)}. BGZF blocks are at most 64 KiB each and stand alone, so one thread reads them in order
+ * and a pool of threads inflates them, with the inflated blocks handed back in order through a bounded queue. Plain
+ * gzip can only be inflated in order, so it is inflated on one background thread while the caller parses the
+ * previous chunk. Either way the compressed file never has to be written back to disk, and the queue keeps the
+ * memory used to a few blocks per thread.
+ */
+public class CompressedInputStream extends InputStream {
+    //Longest header that is checked for the gzip and BGZF signatures
+    private static final int SIGNATURE_LENGTH = 18;
+
+    //Size of the chunks plain gzip is inflated in
+    private static final int CHUNK_SIZE = 1 << 20;
+
+    //Queued in place of a block at the end of the input
+    private static final Future<byte[]> END = CompletableFuture.completedFuture(new byte[0]);
+
+    //List variables
+    private final InputStream in;
+    private final BlockingQueue<Future<byte[]>> blocks;
+    private final ExecutorService inflaters;
+    private final Thread reader;
+    private byte[] current = new byte[0];
+    private int position;
+    private boolean finished;
+    private volatile boolean closed;
+
+    /**
+     * Method to open input that may be compressed. Gzip is recognized by its first bytes, not the file name, and BGZF
+     * by the "BC" field every block carries. Anything else is returned buffered but otherwise as it is.
+     * @param in the input, closed with the returned stream.
+     * @return the decompressed input.
+     */
+    public static InputStream open(InputStream in) throws IOException {
+        return open(in, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Method to open input that may be compressed, see {@link #open(InputStream)}.
+     * @param in the input, closed with the returned stream.
+     * @param threads the threads that inflate BGZF blocks.
+     * @return the decompressed input.
+     */
+    public static InputStream open(InputStream in, int threads) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(in, 1 << 16);
+        buffered.mark(SIGNATURE_LENGTH);
+        byte[] signature = buffered.readNBytes(SIGNATURE_LENGTH);
+        buffered.reset();
+        if (signature.length < 2 || (signature[0] & 0xFF) != 0x1F || (signature[1] & 0xFF) != 0x8B) {
+            return buffered;
+        }
+        return new CompressedInputStream(buffered, isBgzf(signature), Math.max(1, threads));
+    }
+
+    private CompressedInputStream(InputStream in, boolean bgzf, int threads) {
+        this.in = in;
+        this.blocks = new ArrayBlockingQueue<>(4 * threads);
+        if (bgzf) {
+            this.inflaters = Executors.newFixedThreadPool(threads, runnable -> daemon(runnable, "bgzf-inflater"));
+            this.reader = daemon(this::readBlocks, "bgzf-reader");
+        } else {
+            this.inflaters = null;
+            this.reader = daemon(this::inflateStream, "gzip-inflater");
+        }
+        this.reader.start();
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!next()) {
+            return -1;
+        }
+        return this.current[this.position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (!next()) {
+            return -1;
+        }
+        int count = Math.min(length, this.current.length - this.position);
+        System.arraycopy(this.current, this.position, buffer, offset, count);
+        this.position += count;
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.closed = true;
+        this.reader.interrupt();
+        if (this.inflaters != null) {
+            this.inflaters.shutdownNow();
+        }
+        this.in.close();
+    }
+
+    private boolean next() throws IOException {
+        //Takes the next inflated block once the current one is used up
+        while (this.position == this.current.length) {
+            if (this.finished || this.closed) {
+                return false;
+            }
+            try {
+                Future<byte[]> block = this.blocks.take();
+                if (block == END) {
+                    this.finished = true;
+                    return false;
+                }
+                this.current = block.get();
+                this.position = 0;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            } catch (ExecutionException e) {
+                this.finished = true;
+                throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+            }
+        }
+        return true;
+    }
+
+    private void readBlocks() {
+        //Reads whole BGZF blocks in order and queues their inflation, waiting while the queue is full
+        try {
+            byte[] block;
+            while ((block = readBlock()) != null) {
+                byte[] compressed = block;
+                this.blocks.put(this.inflaters.submit(() -> inflateBlock(compressed)));
+            }
+            this.blocks.put(END);
+        } catch (IOException e) {
+            fail(e);
+        } catch (InterruptedException e) {
+            //Closed before the end of the input
+        } finally {
+            this.inflaters.shutdown();
+        }
+    }
+
+    private byte[] readBlock() throws IOException {
+        //Fixed header, then the extra field holding the block size
+        byte[] header = this.in.readNBytes(12);
+        if (header.length == 0) {
+            return null;
+        }
+        if (header.length < 12 || (header[0] & 0xFF) != 0x1F || (header[1] & 0xFF) != 0x8B || header[2] != 8 || (header[3] & 4) == 0) {
+            throw new IOException("Corrupt BGZF input: expected a block header");
+        }
+        int extraLength = (header[10] & 0xFF) | (header[11] & 0xFF) << 8;
+        byte[] extra = this.in.readNBytes(extraLength);
+        int blockSize = -1;
+        for (int i = 0; i + 4 <= extra.length; ) {
+            int fieldLength = (extra[i + 2] & 0xFF) | (extra[i + 3] & 0xFF) << 8;
+            if (extra[i] == 'B' && extra[i + 1] == 'C' && fieldLength == 2 && i + 6 <= extra.length) {
+                blockSize = ((extra[i + 4] & 0xFF) | (extra[i + 5] & 0xFF) << 8) + 1;
+            }
+            i += 4 + fieldLength;
+        }
+        int remaining = blockSize - 12 - extraLength;
+        if (extra.length < extraLength || blockSize < 0 || remaining < 8) {
+            throw new IOException("Corrupt BGZF input: missing block size");
+        }
+        byte[] output = this.in.readNBytes(remaining);
+        if (output.length < remaining) {
+            throw new IOException("Corrupt BGZF input: truncated block");
+        }
+        return output;
+    }
+
+    private static byte[] inflateBlock(byte[] block) throws IOException {
+        //The block is raw deflate data followed by the CRC-32 and length of the inflated data
+        int dataLength = block.length - 8;
+        long crc = readInt(block, dataLength) & 0xFFFFFFFFL;
+        int size = readInt(block, dataLength + 4);
+        if (size < 0 || size > 1 << 16) {
+            throw new IOException("Corrupt BGZF input: block of " + size + " bytes");
+        }
+        byte[] output = new byte[size];
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(block, 0, dataLength);
+            int inflated = 0;
+            while (inflated < output.length && !inflater.finished()) {
+                int count = inflater.inflate(output, inflated, output.length - inflated);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                inflated += count;
+            }
+            if (inflated != output.length) {
+                throw new IOException("Corrupt BGZF input: block inflated to the wrong length");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt BGZF input: " + e.getMessage(), e);
+        } finally {
+            inflater.end();
+        }
+        CRC32 check = new CRC32();
+        check.update(output);
+        if (check.getValue() != crc) {
+            throw new IOException("Corrupt BGZF input: checksum mismatch");
+        }
+        return output;
+    }
+
+    private void inflateStream() {
+        //Plain gzip, including several members joined together, inflated a chunk at a time
+        try (GZIPInputStream gzip = new GZIPInputStream(this.in, 1 << 16)) {
+            byte[] chunk;
+            while ((chunk = gzip.readNBytes(CHUNK_SIZE)).length > 0) {
+                this.blocks.put(CompletableFuture.completedFuture(chunk));
+            }
+            this.blocks.put(END);
+        } catch (IOException e) {
+            fail(e);
+        } catch (InterruptedException e) {
+            //Closed before the end of the input
+        }
+    }
+
+    private void fail(IOException e) {
+        //Queued so the error reaches the caller after the blocks before it
+        if (this.closed) {
+            return;
+        }
+        try {
+            this.blocks.put(CompletableFuture.failedFuture(e));
+        } catch (InterruptedException interrupted) {
+            //Closed while reporting the error
+        }
+    }
+
+    private static boolean isBgzf(byte[] header) {
+        //Gzip with deflate, the extra field flag, and a "BC" subfield of 2 bytes first
+        return header.length >= 16 && (header[0] & 0xFF) == 0x1F && (header[1] & 0xFF) == 0x8B && header[2] == 8
+                && (header[3] & 4) != 0 && header[12] == 'B' && header[13] == 'C' && header[14] == 2 && header[15] == 0;
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xFF) | (bytes[offset + 1] & 0xFF) << 8 | (bytes[offset + 2] & 0xFF) << 16 | (bytes[offset + 3] & 0xFF) << 24;
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        //Daemon threads so an unclosed stream never keeps the program running
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+}
@@ -1,6 +1,8 @@
 import jdk.swing.interop.SwingInterOpUtils;
 
 import java.io.*;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Scanner;
 
 public class Driver {
@@ -9,19 +11,35 @@ public class Driver {
     public static Sequence sequence;
     public static int choice;
 
-    //Starts the start method
+    //Timing of the interactive actions, see Metrics
+    private static final OperationMetrics LOAD = Metrics.operation("Driver.load");
+    private static final OperationMetrics PRINT = Metrics.operation("Driver.print");
+
+    //Runs a batch command if arguments were given, otherwise starts the interactive driver
     public static void main(String[] args) throws IOException {
+        //"--metrics" alone runs the interactive driver and prints the timing of every operation on exit
+        boolean metrics = args.length == 1 && args[0].equals("--metrics");
+        if (args.length > 0 && !metrics) {
+            System.exit(BatchMode.run(args));
+        }
         start();
+        if (metrics) {
+            System.out.print("\n" + Metrics.getReport());
+        }
     }
 
     public static void start() throws IOException {
-        //Prints title and goes through sequence prompt and the takes the user to the menu
-        System.out.println("------------------------------------\n| Java Genetic Sequence Multi-Tool |\n------------------------------------\n");
-        sequencePrompt();
-        mainMenu();
+        //Loops instead of calling itself so restarting many times doesn't grow the stack
+        boolean restart = true;
+        while (restart) {
+            //Prints title and goes through sequence prompt and the takes the user to the menu
+            System.out.println("------------------------------------\n| Java Genetic Sequence Multi-Tool |\n------------------------------------\n");
+            sequencePrompt();
+            restart = mainMenu();
+        }
     }
 
-    public static void sequencePrompt() throws FileNotFoundException {
+    public static void sequencePrompt() throws IOException {
         //Asks the user how they will input their sequence
         System.out.print(" 1. Enter a file\n 2. Enter sequence manually\n\nChoose where you will get your sequence: ");
         choice = input.nextInt();
@@ -82,166 +100,210 @@ public class Driver {
         }
 
         //Creates sequence based on their input
-        if (usedFile) {
-            sequence = new Sequence(forward, readingFrame, sequenceType, file);
-        } else {
-            sequence = new Sequence(forward, readingFrame, sequenceType, sequenceInput);
+        sequence = load(usedFile, file, sequenceInput, forward, readingFrame, sequenceType);
+
+        //Reports any non-nucleotide characters in one summary
+        ValidationReport report = sequence.getValidationReport();
+        if (!report.isValid()) {
+            System.out.println("Warning! " + report);
         }
 
         //Reports successful input
         System.out.println("\nSequence submitted successfully!\n");
     }
 
-    public static void mainMenu() throws IOException {
-        //Prints title
-        System.out.println("------------------\n    Main Menu\n------------------");
-        //Checks the sequence type for option 2
-        String otherType = "RNA";
-        if (sequence.getSequenceType().equals("RNA")) {
-            otherType = "DNA";
+    //Creates the sequence from the file or the typed input, timed as one load
+    private static Sequence load(boolean usedFile, File file, String sequenceInput, boolean forward, int readingFrame, String sequenceType) throws IOException {
+        if (usedFile) {
+            return LOAD.time(file.length(), () -> new Sequence(forward, readingFrame, sequenceType, file));
         }
-        //Prints sequence info
-        System.out.printf("\nSequence info - Forward: %s, Type: %s, Reading frame: %s, Length: %snt\n", sequence.isForwardStrand(), sequence.getSequenceType(), sequence.getReadingFrame(), sequence.getSequenceData().length());
-        //Print options
-        System.out.printf("\n1. Print a version of the sequence\n2. Transform sequence to %s\n3. Search sequence for subsequence\n4. Restart with new sequence\n5. Exit\n\nChoose an option: ", otherType);
-        choice = input.nextInt();
-        //Checks for valid input
-        while (choice < 1 || choice > 5) {
-            //Asks the user for a new input
-            System.out.print("Invalid input!\n Enter valid option (1-5): ");
+        return LOAD.time(sequenceInput.length(), () -> new Sequence(forward, readingFrame, sequenceType, sequenceInput));
+    }
+
+    //Returns true if the user chose to restart with a new sequence
+    public static boolean mainMenu() throws IOException {
+        while (true) {
+            //Prints title
+            System.out.println("------------------\n    Main Menu\n------------------");
+            //Checks the sequence type for option 2
+            String otherType = "RNA";
+            if (sequence.getSequenceType().equals("RNA")) {
+                otherType = "DNA";
+            }
+            //Prints sequence info
+            System.out.printf("\nSequence info - Forward: %s, Type: %s, Reading frame: %s, Length: %snt\n", sequence.isForwardStrand(), sequence.getSequenceType(), sequence.getReadingFrame(), sequence.length());
+            //Print options
+            System.out.printf("\n1. Print a version of the sequence\n2. Transform sequence to %s\n3. Search sequence for subsequence\n4. Search both strands for motifs\n5. Restart with new sequence\n6. Exit\n\nChoose an option: ", otherType);
             choice = input.nextInt();
-        }
+            //Checks for valid input
+            while (choice < 1 || choice > 6) {
+                //Asks the user for a new input
+                System.out.print("Invalid input!\n Enter valid option (1-6): ");
+                choice = input.nextInt();
+            }
 
-        //Executes commands based on option chosen
-        switch(choice){
-            case 1:
-                //Goes to print options
-                printOptions();
-                break;
-            case 2:
-                //Checks current sequence type and switches accordingly
-                if(sequence.getSequenceType().equals("RNA")) {
-                    sequence.toDNA();
-                } else {
-                    sequence.toRNA();
-                }
-                //Notifies user and returns to menu
-                System.out.println("\nSequence changed successfully!\n");
-                mainMenu();
-                break;
-            case 3:
-                //Asks user for a subsequence and runs command
-                System.out.print("\nEnter a subsequence: ");
-                int result = sequence.getIndex(input.next());
-                //Reports results
-                if (result == -1) {
-                    System.out.println("Subsequence not found!");
-                } else {
-                    System.out.println("Sequence found at index: " + result);
-                }
-                //Waits for user input and returns to menu
-                System.out.println("Press enter to return to menu...");
-                System.in.read();
-                mainMenu();
-                break;
-            case 4:
-                //Restarts program
-                start();
-                break;
-            case 5:
-                //Ends program
-                break;
+            //Executes commands based on option chosen
+            switch(choice){
+                case 1:
+                    //Goes to print options
+                    printOptions();
+                    break;
+                case 2:
+                    //Checks current sequence type and switches accordingly
+                    if(sequence.getSequenceType().equals("RNA")) {
+                        sequence.toDNA();
+                    } else {
+                        sequence.toRNA();
+                    }
+                    //Notifies user and returns to menu
+                    System.out.println("\nSequence changed successfully!\n");
+                    break;
+                case 3:
+                    //Asks user for a subsequence and runs command
+                    System.out.print("\nEnter a subsequence: ");
+                    int result = sequence.getIndex(input.next());
+                    //Reports results
+                    if (result == -1) {
+                        System.out.println("Subsequence not found!");
+                    } else {
+                        System.out.println("Sequence found at index: " + result);
+                    }
+                    //Waits for user input and returns to menu
+                    System.out.println("Press enter to return to menu...");
+                    System.in.read();
+                    break;
+                case 4:
+                    //Asks user for the motifs and prints each hit as it is found
+                    System.out.print("\nEnter the motifs separated by commas (no spaces): ");
+                    List<String> motifs = Arrays.asList(input.next().split(","));
+                    long hits = sequence.searchMotifs(motifs, (motif, index, forwardStrand) ->
+                            System.out.println(motif + " found at index " + index + " on the " + (forwardStrand ? "forward" : "reverse complimentary") + " strand"));
+                    System.out.println(hits + " hits found.");
+                    //Waits for user input and returns to menu
+                    System.out.println("Press enter to return to menu...");
+                    System.in.read();
+                    break;
+                case 5:
+                    //Restarts program
+                    return true;
+                case 6:
+                    //Ends program
+                    return false;
+            }
         }
     }
 
 
     public static void printOptions() throws IOException {
-        //Prints title
-        System.out.println("\n------------------\n  Print options\n------------------");
-        //Prints sequence info
-        System.out.printf("\nSequence info - Forward: %s, Type: %s, Reading frame: %s, Length: %snt\n", sequence.isForwardStrand(), sequence.getSequenceType(), sequence.getReadingFrame(), sequence.getSequenceData().length());
-        //Prints options
-        System.out.print("\n1. Print sequence\n2. Print reverse\n3. Print complimentary strand\n4. Print reverse complimentary strand\n5. Print nucleotide count\n6. Print amino acid count\n7. Back\n\n");
-        choice = input.nextInt();
-        //Checks for valid input
-        while (choice < 1 || choice > 7) {
-            //Asks the user to input again
-            System.out.print("Invalid input!\n Enter valid option (1-7): ");
+        while (true) {
+            //Prints title
+            System.out.println("\n------------------\n  Print options\n------------------");
+            //Prints sequence info
+            System.out.printf("\nSequence info - Forward: %s, Type: %s, Reading frame: %s, Length: %snt\n", sequence.isForwardStrand(), sequence.getSequenceType(), sequence.getReadingFrame(), sequence.length());
+            //Prints options
+            System.out.print("\n1. Print sequence\n2. Print reverse\n3. Print complimentary strand\n4. Print reverse complimentary strand\n5. Print nucleotide count\n6. Print amino acid count\n7. Print open reading frames (all six frames)\n8. Back\n\n");
             choice = input.nextInt();
-        }
-
-        //Executes commands based on chosen option
-        switch (choice) {
-            case 1 -> {
-                //Prints sequence info
-                System.out.printf("\nSequence info - Forward: %s, Type: %s, Reading frame: %s, Length: %snt\n", sequence.isForwardStrand(), sequence.getSequenceType(), sequence.getReadingFrame(), sequence.getSequenceData().length());
-                System.out.println();
-                //Prints sequence
-                sequence.printSequence();
-                System.out.println();
-                //Waits for user input and returns to menu
-                System.out.println("Press enter to return to print options...");
-                System.in.read();
-                printOptions();
-            }
-            case 2 -> {
-                //Gets reverse
-                Sequence output = sequence.getReverse();
-                //Prints sequence info
-                System.out.printf("\nSequence info - Forward: %s, Type: %s, Reading frame: %s, Length: %snt\n", output.isForwardStrand(), output.getSequenceType(), output.getReadingFrame(), output.getSequenceData().length());
-                //Prints reverse sequence
-                System.out.println("\n" + output.getSequenceData() + "\n");
-                //Waits for user input and returns to menu
-                System.out.println("Press enter to return to print options...");
-                System.in.read();
-                printOptions();
+            //Checks for valid input
+            while (choice < 1 || choice > 8) {
+                //Asks the user to input again
+                System.out.print("Invalid input!\n Enter valid option (1-8): ");
+                choice = input.nextInt();
             }
-            case 3 -> {
-                //Gets complimentary
-                Sequence output = sequence.getComplimentary();
-                //Prints sequence info
-                System.out.printf("\nSequence info - Forward: %s, Type: %s, Reading frame: %s, Length: %snt\n", output.isForwardStrand(), output.getSequenceType(), output.getReadingFrame(), output.getSequenceData().length());
-                //Prints complimentary sequence
-                System.out.println("\n" + output.getSequenceData() + "\n");
-                //Waits for user input and returns to menu
-                System.out.println("Press enter to return to print options...");
-                System.in.read();
-                printOptions();
-            }
-            case 4 -> {
-                //Gets complimentary reverse
-                Sequence output = sequence.getComplimentaryReverse();
-                //Prints sequence info
-                System.out.printf("\nSequence info - Forward: %s, Type: %s, Reading frame: %s, Length: %snt\n", output.isForwardStrand(), output.getSequenceType(), output.getReadingFrame(), output.getSequenceData().length());
-                //Prints complimentary reverse sequence
-                System.out.println("\n" + output.getSequenceData() + "\n");
-                //Waits for user input and returns to menu
-                System.out.println("Press enter to return to print options...");
-                System.in.read();
-                printOptions();
-            }
-            case 5 -> {
-                System.out.println();
-                //Prints nucleotide count
-                sequence.printNucleotides();
-                System.out.println();
-                //Waits for user input and returns to menu
-                System.out.println("Press enter to return to print options...");
-                System.in.read();
-                printOptions();
-            }
-            case 6 -> {
-                System.out.println();
-                //Prints amino acid count
-                sequence.printAminoAcids();
-                System.out.println();
-                //Waits for user input and returns to menu
-                System.out.println("Press enter to return to print options...");
-                System.in.read();
-                printOptions();
+
+            //Executes commands based on chosen option
+            switch (choice) {
+                case 1 -> {
+                    //Prints sequence info
+                    System.out.printf("\nSequence info - Forward: %s, Type: %s, Reading frame: %s, Length: %snt\n", sequence.isForwardStrand(), sequence.getSequenceType(), sequence.getReadingFrame(), sequence.length());
+                    System.out.println();
+                    //Prints sequence
+                    PRINT.time(sequence.length(), () -> sequence.printSequence());
+                    System.out.println();
+                    //Waits for user input and returns to menu
+                    System.out.println("Press enter to return to print options...");
+                    System.in.read();
+                }
+                case 2 -> {
+                    //Gets reverse
+                    Sequence output = sequence.getReverse();
+                    //Prints sequence info
+                    System.out.printf("\nSequence info - Forward: %s, Type: %s, Reading frame: %s, Length: %snt\n", output.isForwardStrand(), output.getSequenceType(), output.getReadingFrame(), output.length());
+                    //Prints reverse sequence
+                    PRINT.time(output.length(), () -> {
+                        System.out.println();
+                        output.printSequence();
+                        System.out.println();
+                    });
+                    //Waits for user input and returns to menu
+                    System.out.println("Press enter to return to print options...");
+                    System.in.read();
+                }
+                case 3 -> {
+                    //Gets complimentary
+                    Sequence output = sequence.getComplimentary();
+                    //Prints sequence info
+                    System.out.printf("\nSequence info - Forward: %s, Type: %s, Reading frame: %s, Length: %snt\n", output.isForwardStrand(), output.getSequenceType(), output.getReadingFrame(), output.length());
+                    //Prints complimentary sequence
+                    PRINT.time(output.length(), () -> {
+                        System.out.println();
+                        output.printSequence();
+                        System.out.println();
+                    });
+                    //Waits for user input and returns to menu
+                    System.out.println("Press enter to return to print options...");
+                    System.in.read();
+                }
+                case 4 -> {
+                    //Gets complimentary reverse
+                    Sequence output = sequence.getComplimentaryReverse();
+                    //Prints sequence info
+                    System.out.printf("\nSequence info - Forward: %s, Type: %s, Reading frame: %s, Length: %snt\n", output.isForwardStrand(), output.getSequenceType(), output.getReadingFrame(), output.length());
+                    //Prints complimentary reverse sequence
+                    PRINT.time(output.length(), () -> {
+                        System.out.println();
+                        output.printSequence();
+                        System.out.println();
+                    });
+                    //Waits for user input and returns to menu
+                    System.out.println("Press enter to return to print options...");
+                    System.in.read();
+                }
+                case 5 -> {
+                    System.out.println();
+                    //Prints nucleotide count
+                    sequence.printNucleotides();
+                    System.out.println();
+                    //Waits for user input and returns to menu
+                    System.out.println("Press enter to return to print options...");
+                    System.in.read();
+                }
+                case 6 -> {
+                    System.out.println();
+                    //Prints amino acid count
+                    sequence.printAminoAcids();
+                    System.out.println();
+                    //Waits for user input and returns to menu
+                    System.out.println("Press enter to return to print options...");
+                    System.in.read();
+                }
+                case 7 -> {
+                    //Asks for the minimum length and prints the open reading frames
+                    System.out.print("\nMinimum open reading frame length (amino acids): ");
+                    List<OpenReadingFrame> frames = sequence.findOpenReadingFrames(input.nextInt());
+                    System.out.println();
+                    for (OpenReadingFrame frame : frames) {
+                        System.out.println(frame);
+                    }
+                    System.out.println(frames.size() + " open reading frames found.\n");
+                    //Waits for user input and returns to menu
+                    System.out.println("Press enter to return to print options...");
+                    System.in.read();
+                }
+                //Returns to main menu
+                case 8 -> {
+                    return;
+                }
             }
-            //Returns to main menu
-            case 7 -> mainMenu();
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,408 @@
+import java.io.*;
+import java.util.Arrays;
+
+/**
+ * FM-index (Burrows-Wheeler transform with rank checkpoints and a sampled suffix array) over a nucleotide
+ * sequence. Counting the occurrences of a pattern takes time proportional to the pattern length, and each
+ * occurrence is located in at most {@link #getSampleRate()} extra steps. The index can be saved to disk so it
+ * only has to be built once.
+ */
+public class FMIndex {
+    //Format of saved indexes
+    private static final int MAGIC = 0x464D4958;
+    private static final int VERSION = 2;
+    private static final int DIGEST_LENGTH = 32;
+
+    //Rank checkpoints are stored every 64 rows, the suffix array every 32 positions by default
+    private static final int CHECKPOINT_BITS = 6;
+    private static final int CHECKPOINT = 1 << CHECKPOINT_BITS;
+    private static final int DEFAULT_SAMPLE_RATE = 32;
+
+    //List variables
+    private final int length;
+    private final byte[] textDigest;
+    private final byte[] codes;
+    private final char[] symbols;
+    private final byte[] bwt;
+    private final int[] counts;
+    private final int sampleRate;
+    private final long[] sampledRows;
+    private final int[] sampledRowRanks;
+    private final int[] samples;
+    private final int[] checkpoints;
+
+    private FMIndex(int length, byte[] textDigest, byte[] codes, char[] symbols, byte[] bwt, int sampleRate, long[] sampledRows, int[] samples) {
+        this.length = length;
+        this.textDigest = textDigest;
+        this.codes = codes;
+        this.symbols = symbols;
+        this.bwt = bwt;
+        this.sampleRate = sampleRate;
+        this.sampledRows = sampledRows;
+        this.samples = samples;
+
+        //Rank of the sampled rows at the start of each word
+        this.sampledRowRanks = new int[sampledRows.length];
+        int rank = 0;
+        for (int i = 0; i < sampledRows.length; i++) {
+            this.sampledRowRanks[i] = rank;
+            rank += Long.bitCount(sampledRows[i]);
+        }
+
+        //Counts of each symbol at every checkpoint and the first row of each symbol
+        int sigma = symbols.length;
+        this.checkpoints = new int[(bwt.length / CHECKPOINT + 1) * sigma];
+        int[] running = new int[sigma];
+        for (int i = 0; i < bwt.length; i++) {
+            if ((i & (CHECKPOINT - 1)) == 0) {
+                System.arraycopy(running, 0, this.checkpoints, (i >>> CHECKPOINT_BITS) * sigma, sigma);
+            }
+            running[bwt[i]]++;
+        }
+        if ((bwt.length & (CHECKPOINT - 1)) == 0) {
+            System.arraycopy(running, 0, this.checkpoints, (bwt.length >>> CHECKPOINT_BITS) * sigma, sigma);
+        }
+        this.counts = new int[sigma + 1];
+        for (int c = 0; c < sigma; c++) {
+            this.counts[c + 1] = this.counts[c] + running[c];
+        }
+    }
+
+    /**
+     * Method to build an index with the default suffix array sample rate.
+     * @param text the nucleotide sequence.
+     * @return the index.
+     */
+    public static FMIndex build(CharSequence text) {
+        return build(text, DEFAULT_SAMPLE_RATE);
+    }
+
+    /**
+     * Method to build an index.
+     * @param text the nucleotide sequence.
+     * @param sampleRate one in this many suffix array positions is kept. Higher is smaller but slower to locate.
+     * @return the index.
+     */
+    public static FMIndex build(CharSequence text, int sampleRate) {
+        if (sampleRate < 1) {
+            throw new IllegalArgumentException("Sample rate must be at least 1");
+        }
+        if (text.length() >= Integer.MAX_VALUE - 1) {
+            throw new IllegalArgumentException("Sequence is too long to index");
+        }
+
+        //Maps the symbols found in the text to codes 1 and up, 0 is the end marker
+        boolean[] present = new boolean[Character.MAX_VALUE + 1];
+        for (int i = 0; i < text.length(); i++) {
+            present[text.charAt(i)] = true;
+        }
+        StringBuilder symbolList = new StringBuilder().append('\0');
+        for (int c = 1; c < present.length; c++) {
+            if (present[c]) {
+                symbolList.append((char) c);
+            }
+        }
+        if (symbolList.length() > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many different symbols to index");
+        }
+        char[] symbols = symbolList.toString().toCharArray();
+        byte[] codes = codeTable(symbols);
+
+        int n = text.length() + 1;
+        int[] sa = suffixArray(text, codes, symbols.length);
+
+        //Burrows-Wheeler transform and suffix array samples
+        byte[] bwt = new byte[n];
+        long[] sampledRows = new long[(n + 63) >>> 6];
+        int sampleCount = 0;
+        for (int row = 0; row < n; row++) {
+            int position = sa[row];
+            bwt[row] = position == 0 ? 0 : codes[text.charAt(position - 1)];
+            if (position % sampleRate == 0) {
+                sampledRows[row >>> 6] |= 1L << row;
+                sampleCount++;
+            }
+        }
+        int[] samples = new int[sampleCount];
+        int next = 0;
+        for (int row = 0; row < n; row++) {
+            if (sa[row] % sampleRate == 0) {
+                samples[next++] = sa[row];
+            }
+        }
+        return new FMIndex(text.length(), new ParallelScanner().digest(text), codes, symbols, bwt, sampleRate, sampledRows, samples);
+    }
+
+    /**
+     * Method to read an index written by {@link #save(File)}.
+     * @param file the index file.
+     * @return the index.
+     */
+    public static FMIndex load(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+            return read(in, file.toString());
+        }
+    }
+
+    /**
+     * Method to read an index written by {@link #write(DataOutput)}, such as one stored in a {@link SequenceArchive}.
+     * @param in where the index is read from.
+     * @param source the name of the input, for error messages.
+     * @return the index.
+     */
+    static FMIndex read(DataInput in, String source) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a subsequence index: " + source);
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported subsequence index version " + version + ", build it again: " + source);
+        }
+        int length = in.readInt();
+        byte[] textDigest = new byte[DIGEST_LENGTH];
+        in.readFully(textDigest);
+        int sampleRate = in.readInt();
+        char[] symbols = new char[in.readInt()];
+        for (int i = 0; i < symbols.length; i++) {
+            symbols[i] = in.readChar();
+        }
+        byte[] bwt = new byte[length + 1];
+        in.readFully(bwt);
+        long[] sampledRows = new long[in.readInt()];
+        for (int i = 0; i < sampledRows.length; i++) {
+            sampledRows[i] = in.readLong();
+        }
+        int[] samples = new int[in.readInt()];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = in.readInt();
+        }
+        return new FMIndex(length, textDigest, codeTable(symbols), symbols, bwt, sampleRate, sampledRows, samples);
+    }
+
+    /**
+     * Method to write the index to disk. Rank checkpoints are rebuilt on load in one pass over the transform.
+     * @param file the index file.
+     */
+    public void save(File file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+            write(out);
+        }
+    }
+
+    /**
+     * Method to write the index in the format read by {@link #read(DataInput, String)}.
+     * @param out where the index is written.
+     */
+    void write(DataOutput out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(this.length);
+        out.write(this.textDigest);
+        out.writeInt(this.sampleRate);
+        out.writeInt(this.symbols.length);
+        for (char symbol : this.symbols) {
+            out.writeChar(symbol);
+        }
+        out.write(this.bwt);
+        out.writeInt(this.sampledRows.length);
+        for (long word : this.sampledRows) {
+            out.writeLong(word);
+        }
+        out.writeInt(this.samples.length);
+        for (int sample : this.samples) {
+            out.writeInt(sample);
+        }
+    }
+
+    /**
+     * Method to get the length of the indexed sequence.
+     * @return the number of nucleotides.
+     */
+    public int length() {
+        return this.length;
+    }
+
+    /**
+     * Method to get the digest of the indexed sequence, see {@link ParallelScanner#digest(CharSequence)}.
+     * @return the 32-byte digest.
+     */
+    public byte[] getTextDigest() {
+        return this.textDigest.clone();
+    }
+
+    /**
+     * Method to estimate the memory the index takes.
+     * @return the size of its arrays in bytes.
+     */
+    public long getMemoryUsage() {
+        return this.codes.length + 2L * this.symbols.length + this.bwt.length + 4L * this.counts.length + 8L * this.sampledRows.length
+                + 4L * this.sampledRowRanks.length + 4L * this.samples.length + 4L * this.checkpoints.length;
+    }
+
+    /**
+     * Method to get the suffix array sample rate.
+     * @return one in this many positions is sampled.
+     */
+    public int getSampleRate() {
+        return this.sampleRate;
+    }
+
+    /**
+     * Method to count how many times a subsequence appears.
+     * @param subsequence the subsequence to search for.
+     * @return the number of occurrences, overlapping ones included.
+     */
+    public int count(CharSequence subsequence) {
+        long range = search(subsequence);
+        return (int) (range >>> 32) - (int) range;
+    }
+
+    /**
+     * Method to get every index where a subsequence appears.
+     * @param subsequence the subsequence to search for.
+     * @return the sorted indexes, empty if not found.
+     */
+    public int[] locateAll(CharSequence subsequence) {
+        long range = search(subsequence);
+        int start = (int) range, end = (int) (range >>> 32);
+        int[] output = new int[end - start];
+        for (int row = start; row < end; row++) {
+            output[row - start] = locate(row);
+        }
+        Arrays.sort(output);
+        return output;
+    }
+
+    /**
+     * Method to get the first index where a subsequence appears.
+     * @param subsequence the subsequence to search for.
+     * @return the lowest index the subsequence appears. -1 if not found.
+     */
+    public int locateFirst(CharSequence subsequence) {
+        long range = search(subsequence);
+        int first = -1;
+        for (int row = (int) range; row < (int) (range >>> 32); row++) {
+            int position = locate(row);
+            if (first == -1 || position < first) {
+                first = position;
+            }
+        }
+        return first;
+    }
+
+    private long search(CharSequence subsequence) {
+        //Backward search, the range of rows is packed into a long as (end << 32) | start
+        int start = 0, end = this.bwt.length;
+        if (subsequence.length() == 0) {
+            return ((long) end << 32);
+        }
+        for (int i = subsequence.length() - 1; i >= 0 && start < end; i--) {
+            char symbol = subsequence.charAt(i);
+            int code = symbol < this.codes.length ? this.codes[symbol] : 0;
+            if (code == 0) {
+                return 0;
+            }
+            start = this.counts[code] + rank(code, start);
+            end = this.counts[code] + rank(code, end);
+        }
+        return start < end ? ((long) end << 32) | start : 0;
+    }
+
+    private int locate(int row) {
+        //Walks back through the text until a sampled position is reached
+        int steps = 0;
+        while ((this.sampledRows[row >>> 6] & (1L << row)) == 0) {
+            int code = this.bwt[row];
+            row = this.counts[code] + rank(code, row);
+            steps++;
+        }
+        int sample = this.sampledRowRanks[row >>> 6] + Long.bitCount(this.sampledRows[row >>> 6] & ((1L << row) - 1));
+        return (this.samples[sample] + steps) % (this.length + 1);
+    }
+
+    private int rank(int code, int row) {
+        //Number of times the code appears in the transform before the row
+        int block = row >>> CHECKPOINT_BITS;
+        int rank = this.checkpoints[block * this.symbols.length + code];
+        for (int i = block << CHECKPOINT_BITS; i < row; i++) {
+            if (this.bwt[i] == code) {
+                rank++;
+            }
+        }
+        return rank;
+    }
+
+    private static byte[] codeTable(char[] symbols) {
+        byte[] codes = new byte[symbols[symbols.length - 1] + 1];
+        for (int i = 1; i < symbols.length; i++) {
+            codes[symbols[i]] = (byte) i;
+        }
+        return codes;
+    }
+
+    private static int[] suffixArray(CharSequence text, byte[] codes, int sigma) {
+        //Prefix doubling over the cyclic shifts of text + end marker, which sort the same as its suffixes
+        int n = text.length() + 1;
+        int[] order = new int[n], classes = new int[n], nextOrder = new int[n], nextClasses = new int[n];
+        int[] bucket = new int[Math.max(sigma, n)];
+
+        for (int i = 0; i < n - 1; i++) {
+            bucket[codes[text.charAt(i)]]++;
+        }
+        bucket[0]++;
+        for (int c = 1; c < sigma; c++) {
+            bucket[c] += bucket[c - 1];
+        }
+        for (int i = n - 1; i >= 0; i--) {
+            int code = i == n - 1 ? 0 : codes[text.charAt(i)];
+            order[--bucket[code]] = i;
+        }
+        classes[order[0]] = 0;
+        int classCount = 1;
+        for (int i = 1; i < n; i++) {
+            int current = order[i] == n - 1 ? 0 : codes[text.charAt(order[i])];
+            int previous = order[i - 1] == n - 1 ? 0 : codes[text.charAt(order[i - 1])];
+            if (current != previous) {
+                classCount++;
+            }
+            classes[order[i]] = classCount - 1;
+        }
+
+        for (int h = 1; h < n && classCount < n; h <<= 1) {
+            //Sorting by the second half is a shift of the current order
+            for (int i = 0; i < n; i++) {
+                int shifted = order[i] - h;
+                nextOrder[i] = shifted < 0 ? shifted + n : shifted;
+            }
+
+            //Stable counting sort by the first half
+            Arrays.fill(bucket, 0, classCount, 0);
+            for (int i = 0; i < n; i++) {
+                bucket[classes[nextOrder[i]]]++;
+            }
+            for (int c = 1; c < classCount; c++) {
+                bucket[c] += bucket[c - 1];
+            }
+            for (int i = n - 1; i >= 0; i--) {
+                order[--bucket[classes[nextOrder[i]]]] = nextOrder[i];
+            }
+
+            //New classes from the pair of halves
+            nextClasses[order[0]] = 0;
+            classCount = 1;
+            for (int i = 1; i < n; i++) {
+                int current = order[i], previous = order[i - 1];
+                int currentSecond = current + h >= n ? current + h - n : current + h;
+                int previousSecond = previous + h >= n ? previous + h - n : previous + h;
+                if (classes[current] != classes[previous] || classes[currentSecond] != classes[previousSecond]) {
+                    classCount++;
+                }
+                nextClasses[current] = classCount - 1;
+            }
+            int[] swap = classes;
+            classes = nextClasses;
+            nextClasses = swap;
+        }
+        return order;
+    }
+}
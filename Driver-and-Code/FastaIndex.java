@@ -0,0 +1,251 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Index of the records in a FASTA file, read and written in the samtools ".fai" format:
+ * name, length, offset of the first base, bases per line and bytes per line, separated by tabs.
+ */
+public class FastaIndex {
+    //Size of the read buffer used while building
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    //List variables
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+    /**
+     * Method to build the index by reading through a FASTA file once.
+     * @param fasta the FASTA file.
+     * @return the index.
+     */
+    public static FastaIndex build(File fasta) throws IOException {
+        FastaIndex index = new FastaIndex();
+        byte[] buffer = new byte[BUFFER_SIZE];
+
+        //State of the record being read
+        String name = null;
+        long offset = 0, length = 0;
+        int lineBases = 0, lineWidth = 0;
+        boolean shortLine = false;
+
+        //State of the line being read
+        long position = 0;
+        boolean header = false, lineStart = true;
+        int bases = 0, width = 0;
+        ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+
+        try (InputStream in = new FileInputStream(fasta)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                for (int i = 0; i < read; i++, position++) {
+                    byte b = buffer[i];
+                    if (lineStart && b == '>') {
+                        //Finishes the previous record and starts reading a header
+                        if (name != null) {
+                            index.add(new Entry(name, length, offset, lineBases, lineWidth));
+                        }
+                        header = true;
+                        headerBytes.reset();
+                        lineStart = false;
+                    } else if (header) {
+                        if (b == '\n') {
+                            name = headerBytes.toString(StandardCharsets.UTF_8).trim().split("\\s+", 2)[0];
+                            offset = position + 1;
+                            length = 0;
+                            lineBases = 0;
+                            lineWidth = 0;
+                            shortLine = false;
+                            header = false;
+                            lineStart = true;
+                        } else {
+                            headerBytes.write(b);
+                        }
+                    } else {
+                        if (name == null) {
+                            throw new IOException("FASTA data found before the first header in " + fasta);
+                        }
+                        width++;
+                        lineStart = false;
+                        if (b == '\n') {
+                            //Checks that every line but the last is the same length
+                            if (lineWidth == 0 && bases == 0) {
+                                //Skips blank lines before the first sequence line
+                                offset += width;
+                            } else if (lineWidth == 0) {
+                                lineBases = bases;
+                                lineWidth = width;
+                            } else if (bases > lineBases || (shortLine && bases > 0)) {
+                                throw new IOException("Different line length in sequence \"" + name + "\"");
+                            } else if (bases < lineBases) {
+                                shortLine = true;
+                            }
+                            length += bases;
+                            bases = 0;
+                            width = 0;
+                            lineStart = true;
+                        } else if (b != '\r') {
+                            bases++;
+                        }
+                    }
+                }
+            }
+        }
+
+        //Finishes the last record, which may not end in a new line
+        if (header) {
+            throw new IOException("FASTA file ends inside a header: " + fasta);
+        }
+        if (name != null) {
+            if (bases > 0) {
+                if (lineWidth == 0) {
+                    lineBases = bases;
+                    lineWidth = width;
+                } else if (bases > lineBases || shortLine) {
+                    throw new IOException("Different line length in sequence \"" + name + "\"");
+                }
+                length += bases;
+            }
+            index.add(new Entry(name, length, offset, lineBases, lineWidth));
+        }
+        return index;
+    }
+
+    /**
+     * Method to read an index from a ".fai" file.
+     * @param fai the index file.
+     * @return the index.
+     */
+    public static FastaIndex load(File fai) throws IOException {
+        FastaIndex index = new FastaIndex();
+        try (BufferedReader reader = new BufferedReader(new FileReader(fai, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                String[] fields = line.split("\t");
+                if (fields.length < 5) {
+                    throw new IOException("Invalid index line: " + line);
+                }
+                try {
+                    index.add(new Entry(fields[0], Long.parseLong(fields[1]), Long.parseLong(fields[2]), Integer.parseInt(fields[3]), Integer.parseInt(fields[4])));
+                } catch (NumberFormatException e) {
+                    throw new IOException("Invalid index line: " + line, e);
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Method to write the index to a ".fai" file.
+     * @param fai the index file.
+     */
+    public void save(File fai) throws IOException {
+        try (Writer writer = new BufferedWriter(new FileWriter(fai, StandardCharsets.UTF_8))) {
+            for (Entry entry : this.entries.values()) {
+                writer.write(entry.name + "\t" + entry.length + "\t" + entry.offset + "\t" + entry.lineBases + "\t" + entry.lineWidth + "\n");
+            }
+        }
+    }
+
+    /**
+     * Method to get the index entry of a record.
+     * @param name the record name.
+     * @return the entry, or null if there is no record with that name.
+     */
+    public Entry getEntry(String name) {
+        return this.entries.get(name);
+    }
+
+    /**
+     * Method to get all index entries in file order.
+     * @return the entries.
+     */
+    public Collection<Entry> getEntries() {
+        return Collections.unmodifiableCollection(this.entries.values());
+    }
+
+    private void add(Entry entry) {
+        if (this.entries.putIfAbsent(entry.name, entry) != null) {
+            throw new IllegalArgumentException("Duplicate sequence name \"" + entry.name + "\"");
+        }
+    }
+
+    /**
+     * A single line of the index.
+     */
+    public static class Entry {
+        //List variables
+        private final String name;
+        private final long length;
+        private final long offset;
+        private final int lineBases;
+        private final int lineWidth;
+
+        /**
+         * Constructor for an index entry.
+         * @param name the record name.
+         * @param length the number of bases in the record.
+         * @param offset the byte offset of the first base.
+         * @param lineBases the number of bases on each line.
+         * @param lineWidth the number of bytes on each line, including the line ending.
+         */
+        public Entry(String name, long length, long offset, int lineBases, int lineWidth) {
+            this.name = name;
+            this.length = length;
+            this.offset = offset;
+            this.lineBases = lineBases;
+            this.lineWidth = lineWidth;
+        }
+
+        /**
+         * Method to get the record name.
+         * @return the record name.
+         */
+        public String getName() {
+            return this.name;
+        }
+
+        /**
+         * Method to get the number of bases in the record.
+         * @return the number of bases.
+         */
+        public long getLength() {
+            return this.length;
+        }
+
+        /**
+         * Method to get the byte offset of the first base.
+         * @return the byte offset.
+         */
+        public long getOffset() {
+            return this.offset;
+        }
+
+        /**
+         * Method to get the number of bases on each line.
+         * @return the bases per line.
+         */
+        public int getLineBases() {
+            return this.lineBases;
+        }
+
+        /**
+         * Method to get the number of bytes on each line.
+         * @return the bytes per line, including the line ending.
+         */
+        public int getLineWidth() {
+            return this.lineWidth;
+        }
+
+        /**
+         * Method to get the byte offset of a base.
+         * @param position the 0-based position of the base in the record.
+         * @return the byte offset in the file.
+         */
+        public long getByteOffset(long position) {
+            return this.offset + (position / this.lineBases) * this.lineWidth + position % this.lineBases;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streaming FASTA parser. Records are read one at a time straight from large byte buffers, so a file
+ * only needs to fit on disk, not in memory. Blank lines, Windows line endings and data before the
+ * first header are all accepted. Gzip and BGZF compressed input is inflated on the fly, see {@link CompressedInputStream}.
+ */
+public class FastaReader implements Closeable {
+    //Size of the read buffer
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    //List variables
+    private final InputStream in;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private boolean packed;
+
+    //Header of the record that will be returned next, null once the input is used up
+    private String nextHeader;
+
+    /**
+     * Constructor for file input.
+     * @param file FASTA file or any text file, optionally gzip or BGZF compressed.
+     */
+    public FastaReader(File file) throws IOException {
+        this(new FileInputStream(file));
+    }
+
+    /**
+     * Constructor for stream input. The stream is closed with the reader.
+     * @param in the FASTA data, which may be gzip or BGZF compressed, see {@link CompressedInputStream}.
+     */
+    public FastaReader(InputStream in) throws IOException {
+        this.in = CompressedInputStream.open(in);
+        this.nextHeader = findFirstRecord();
+    }
+
+    /**
+     * Method to set whether records are returned in packed storage.
+     * @param packed true to pack records 2 bits per nucleotide, see {@link PackedSequence}.
+     */
+    public void setPacked(boolean packed) {
+        this.packed = packed;
+    }
+
+    /**
+     * Method to check whether there is another record.
+     * @return true if {@link #nextRecord()} will return a record.
+     */
+    public boolean hasNextRecord() {
+        return this.nextHeader != null;
+    }
+
+    /**
+     * Method to read the next record.
+     * @return the next record, or null if there are no more records.
+     */
+    public FastaRecord nextRecord() throws IOException {
+        if (this.nextHeader == null) {
+            return null;
+        }
+        String header = this.nextHeader;
+        this.nextHeader = null;
+
+        StringBuilder sequenceData = this.packed ? null : new StringBuilder();
+        PackedSequence.Builder packedBuilder = this.packed ? new PackedSequence.Builder() : null;
+
+        //Reads sequence lines until the next header or the end of the input
+        boolean lineStart = true;
+        while (fill()) {
+            byte b = this.buffer[this.position++];
+            if (b == '\n') {
+                lineStart = true;
+            } else if (lineStart && b == '>') {
+                this.nextHeader = readLine();
+                break;
+            } else if (b != '\r' && b != ' ' && b != '\t') {
+                lineStart = false;
+                if (this.packed) {
+                    packedBuilder.append((char) (b & 0xFF));
+                } else {
+                    sequenceData.append((char) (b & 0xFF));
+                }
+            }
+        }
+
+        //Splits the header into an ID and a description
+        int split = 0;
+        while (split < header.length() && !Character.isWhitespace(header.charAt(split))) {
+            split++;
+        }
+        String id = header.substring(0, split);
+        String description = header.substring(split).trim();
+        if (this.packed) {
+            return new FastaRecord(id, description, packedBuilder.build(false));
+        }
+        return new FastaRecord(id, description, sequenceData);
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.in.close();
+    }
+
+    private String findFirstRecord() throws IOException {
+        //Skips blank space before the first record
+        while (fill()) {
+            byte b = this.buffer[this.position];
+            if (b == '>') {
+                this.position++;
+                return readLine();
+            } else if (b == '\n' || b == '\r' || b == ' ' || b == '\t') {
+                this.position++;
+            } else {
+                //Data without a header is read as a record with no ID
+                return "";
+            }
+        }
+        return null;
+    }
+
+    private String readLine() throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+        while (fill()) {
+            int start = this.position;
+            while (this.position < this.limit && this.buffer[this.position] != '\n') {
+                this.position++;
+            }
+            line.write(this.buffer, start, this.position - start);
+            if (this.position < this.limit) {
+                this.position++;
+                break;
+            }
+        }
+        return line.toString(StandardCharsets.UTF_8).trim();
+    }
+
+    private boolean fill() throws IOException {
+        //Refills the buffer once it has been read through
+        if (this.position < this.limit) {
+            return true;
+        }
+        int read = this.in.read(this.buffer, 0, this.buffer.length);
+        while (read == 0) {
+            read = this.in.read(this.buffer, 0, this.buffer.length);
+        }
+        this.position = 0;
+        this.limit = Math.max(read, 0);
+        return read > 0;
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * A single record read from a FASTA file: the header split into an ID and description, and the nucleotides.
+ */
+public class FastaRecord {
+    //List variables
+    private final String id;
+    private final String description;
+    private final StringBuilder sequenceData;
+    private final PackedSequence packedData;
+
+    /**
+     * Constructor for a record held as characters.
+     * @param id the first word of the header.
+     * @param description the rest of the header.
+     * @param sequenceData the nucleotide sequence.
+     */
+    public FastaRecord(String id, String description, StringBuilder sequenceData) {
+        this.id = id;
+        this.description = description;
+        this.sequenceData = sequenceData;
+        this.packedData = null;
+    }
+
+    /**
+     * Constructor for a record held in packed storage.
+     * @param id the first word of the header.
+     * @param description the rest of the header.
+     * @param packedData the packed nucleotide sequence.
+     */
+    public FastaRecord(String id, String description, PackedSequence packedData) {
+        this.id = id;
+        this.description = description;
+        this.sequenceData = null;
+        this.packedData = packedData;
+    }
+
+    /**
+     * Method to get the ID of the record.
+     * @return the first word of the header, empty if the record had no header.
+     */
+    public String getId() {
+        return this.id;
+    }
+
+    /**
+     * Method to get the description of the record.
+     * @return the header after the ID, empty if there is none.
+     */
+    public String getDescription() {
+        return this.description;
+    }
+
+    /**
+     * Method to get the number of nucleotides in the record.
+     * @return the number of nucleotides.
+     */
+    public int length() {
+        return this.packedData != null ? this.packedData.length() : this.sequenceData.length();
+    }
+
+    /**
+     * Method to get the nucleotide sequence.
+     * @return the nucleotide sequence, or null if the record is packed.
+     */
+    public StringBuilder getSequenceData() {
+        return this.sequenceData;
+    }
+
+    /**
+     * Method to get the packed nucleotide sequence.
+     * @return the packed sequence, or null if the record is not packed.
+     */
+    public PackedSequence getPackedData() {
+        return this.packedData;
+    }
+
+    /**
+     * Method to turn the record into a sequence named after the record ID.
+     * @param forwardStrand true if the sequence is 5' to 3'.
+     * @param readingFrame the reading frame of the sequence. Non-valid inputs will be defaulted to 1.
+     * @param sequenceType DNA or RNA. Non-valid inputs will be defaulted to DNA.
+     * @return the sequence.
+     */
+    public Sequence toSequence(boolean forwardStrand, int readingFrame, String sequenceType) {
+        Sequence output;
+        if (this.packedData != null) {
+            output = new Sequence(forwardStrand, readingFrame, sequenceType, this.packedData);
+        } else {
+            output = new Sequence();
+            output.setForwardStrand(forwardStrand);
+            output.setReadingFrame(readingFrame);
+            output.setSequenceType(sequenceType);
+            output.setSequenceData(this.sequenceData);
+        }
+        output.setName(this.id);
+        return output;
+    }
+}
@@ -0,0 +1,165 @@
+import java.io.*;
+
+/**
+ * Streaming FASTQ parser. Reads are copied from large byte buffers straight into a reusable {@link ReadBatch}, so
+ * no object is made per read. Each record is the usual four lines: "@" and the header, the bases, "+" (optionally
+ * followed by the header again) and one quality character per base. Blank lines between records and Windows line
+ * endings are accepted. Gzip and BGZF compressed input is inflated on the fly, see {@link CompressedInputStream}.
+ */
+public class FastqReader implements Closeable {
+    //Size of the read buffer
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    //List variables
+    private final InputStream in;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private long line;
+    private long reads;
+
+    /**
+     * Constructor for file input.
+     * @param file FASTQ file, optionally gzip or BGZF compressed.
+     */
+    public FastqReader(File file) throws IOException {
+        this(new FileInputStream(file));
+    }
+
+    /**
+     * Constructor for stream input. The stream is closed with the reader.
+     * @param in the FASTQ data, which may be gzip or BGZF compressed, see {@link CompressedInputStream}.
+     */
+    public FastqReader(InputStream in) throws IOException {
+        this.in = CompressedInputStream.open(in);
+    }
+
+    /**
+     * Method to check whether input is FASTQ rather than FASTA, from its first character after any blank space.
+     * The stream is left where it was.
+     * @param in the decompressed input, which must support mark and reset.
+     * @return true if the first record starts with '@'.
+     */
+    public static boolean isFastq(InputStream in) throws IOException {
+        in.mark(1 << 12);
+        try {
+            int b;
+            while ((b = in.read()) == '\n' || b == '\r' || b == ' ' || b == '\t') {
+                //Skips blank space before the first record
+            }
+            return b == '@';
+        } finally {
+            in.reset();
+        }
+    }
+
+    /**
+     * Method to empty a batch and fill it with the next reads.
+     * @param batch the batch to fill, up to its capacity.
+     * @return true if any reads were read, false at the end of the input.
+     * @throws IOException if the input can't be read or a record is malformed.
+     */
+    public boolean readBatch(ReadBatch batch) throws IOException {
+        batch.clear();
+        while (!batch.isFull() && readRecord(batch)) {
+            this.reads++;
+        }
+        return batch.size() > 0;
+    }
+
+    /**
+     * Method to get the number of reads read so far.
+     * @return the number of reads.
+     */
+    public long getReadCount() {
+        return this.reads;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.in.close();
+    }
+
+    private boolean readRecord(ReadBatch batch) throws IOException {
+        //Skips blank lines before the header
+        while (fill()) {
+            byte b = this.buffer[this.position];
+            if (b == '\n') {
+                this.line++;
+                this.position++;
+            } else if (b == '\r' || b == ' ' || b == '\t') {
+                this.position++;
+            } else {
+                break;
+            }
+        }
+        if (!fill()) {
+            return false;
+        }
+        if (this.buffer[this.position] != '@') {
+            throw malformed("expected '@' at the start of a read");
+        }
+        this.position++;
+        try {
+            readLine(batch, ReadBatch.HEADER, "header");
+            readLine(batch, ReadBatch.BASES, "bases");
+            if (!fill() || this.buffer[this.position] != '+') {
+                throw malformed("expected a '+' line after the bases (reads must be on one line)");
+            }
+            readLine(batch, -1, "'+' line");
+            readLine(batch, ReadBatch.QUALITIES, "quality scores");
+            if (batch.pendingLength(ReadBatch.QUALITIES) != batch.pendingLength(ReadBatch.BASES)) {
+                //Reported at the quality line just read
+                throw new IOException("Malformed FASTQ at line " + this.line + ": " + batch.pendingLength(ReadBatch.QUALITIES)
+                        + " quality scores for " + batch.pendingLength(ReadBatch.BASES) + " bases");
+            }
+        } catch (IOException e) {
+            batch.discardRead();
+            throw e;
+        }
+        batch.finishRead();
+        return true;
+    }
+
+    private void readLine(ReadBatch batch, int field, String name) throws IOException {
+        //Copies one line into the batch, or skips it for a field below 0
+        if (!fill()) {
+            throw malformed("input ends before the " + name);
+        }
+        while (fill()) {
+            int start = this.position;
+            while (this.position < this.limit && this.buffer[this.position] != '\n') {
+                this.position++;
+            }
+            if (field >= 0) {
+                batch.append(field, this.buffer, start, this.position - start);
+            }
+            if (this.position < this.limit) {
+                this.position++;
+                break;
+            }
+        }
+        this.line++;
+        if (field >= 0) {
+            batch.trimLineEnd(field);
+        }
+    }
+
+    private IOException malformed(String problem) {
+        return new IOException("Malformed FASTQ at line " + (this.line + 1) + ": " + problem);
+    }
+
+    private boolean fill() throws IOException {
+        //Refills the buffer once it has been read through
+        if (this.position < this.limit) {
+            return true;
+        }
+        int read = this.in.read(this.buffer, 0, this.buffer.length);
+        while (read == 0) {
+            read = this.in.read(this.buffer, 0, this.buffer.length);
+        }
+        this.position = 0;
+        this.limit = Math.max(read, 0);
+        return read > 0;
+    }
+}
@@ -0,0 +1,210 @@
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Table-driven codon translation. Each codon is packed into a 6-bit index from the 2-bit codes of its nucleotides
+ * (see {@link PackedSequence#codeOf(char)}) and looked up in a 64-entry table, so translating allocates nothing per
+ * codon. The NCBI translation tables are supported, U is read the same as T.
+ */
+public class GeneticCode {
+    //Amino acids in the order they are counted and printed, '*' is the stop codon
+    public static final String AMINO_ACIDS = "ARDCEQGHILKMFPSN*TYWV";
+    public static final String[] AMINO_ACID_NAMES = {"Alanine", "Arginine", "Aspartic acid", "Cysteine", "Glutamic acid",
+            "Glutamine", "Glycine", "Histadine", "Isoleucine", "Leucine", "Lysine", "Methionine", "Phenyalanine", "Proline",
+            "Serine", "Asparagine", "Stop codon", "Threonine", "Tyrosine", "Tryptophan", "Valine"};
+
+    //Index of the amino acid given to codons with a non-ACGTU nucleotide in them
+    public static final int UNKNOWN = -1;
+
+    //NCBI tables, listed with the first, second and third bases each in T, C, A, G order
+    private static final Map<Integer, String[]> TABLES = new TreeMap<>();
+
+    static {
+        TABLES.put(1, new String[]{"Standard", "FFLLSSSSYY**CC*WLLLLPPPPHHQQRRRRIIIMTTTTNNKKSSRRVVVVAAAADDEEGGGG"});
+        TABLES.put(2, new String[]{"Vertebrate Mitochondrial", "FFLLSSSSYY**CCWWLLLLPPPPHHQQRRRRIIMMTTTTNNKKSS**VVVVAAAADDEEGGGG"});
+        TABLES.put(3, new String[]{"Yeast Mitochondrial", "FFLLSSSSYY**CCWWTTTTPPPPHHQQRRRRIIMMTTTTNNKKSSRRVVVVAAAADDEEGGGG"});
+        TABLES.put(4, new String[]{"Mold, Protozoan and Coelenterate Mitochondrial", "FFLLSSSSYY**CCWWLLLLPPPPHHQQRRRRIIIMTTTTNNKKSSRRVVVVAAAADDEEGGGG"});
+        TABLES.put(5, new String[]{"Invertebrate Mitochondrial", "FFLLSSSSYY**CCWWLLLLPPPPHHQQRRRRIIMMTTTTNNKKSSSSVVVVAAAADDEEGGGG"});
+        TABLES.put(6, new String[]{"Ciliate, Dasycladacean and Hexamita Nuclear", "FFLLSSSSYYQQCC*WLLLLPPPPHHQQRRRRIIIMTTTTNNKKSSRRVVVVAAAADDEEGGGG"});
+        TABLES.put(9, new String[]{"Echinoderm and Flatworm Mitochondrial", "FFLLSSSSYY**CCWWLLLLPPPPHHQQRRRRIIIMTTTTNNNKSSSSVVVVAAAADDEEGGGG"});
+        TABLES.put(10, new String[]{"Euplotid Nuclear", "FFLLSSSSYY**CCCWLLLLPPPPHHQQRRRRIIIMTTTTNNKKSSRRVVVVAAAADDEEGGGG"});
+        TABLES.put(11, new String[]{"Bacterial, Archaeal and Plant Plastid", "FFLLSSSSYY**CC*WLLLLPPPPHHQQRRRRIIIMTTTTNNKKSSRRVVVVAAAADDEEGGGG"});
+        TABLES.put(12, new String[]{"Alternative Yeast Nuclear", "FFLLSSSSYY**CC*WLLLSPPPPHHQQRRRRIIIMTTTTNNKKSSRRVVVVAAAADDEEGGGG"});
+        TABLES.put(13, new String[]{"Ascidian Mitochondrial", "FFLLSSSSYY**CCWWLLLLPPPPHHQQRRRRIIMMTTTTNNKKSSGGVVVVAAAADDEEGGGG"});
+        TABLES.put(14, new String[]{"Alternative Flatworm Mitochondrial", "FFLLSSSSYYY*CCWWLLLLPPPPHHQQRRRRIIIMTTTTNNNKSSSSVVVVAAAADDEEGGGG"});
+        TABLES.put(16, new String[]{"Chlorophycean Mitochondrial", "FFLLSSSSYY*LCC*WLLLLPPPPHHQQRRRRIIIMTTTTNNKKSSRRVVVVAAAADDEEGGGG"});
+        TABLES.put(21, new String[]{"Trematode Mitochondrial", "FFLLSSSSYY**CCWWLLLLPPPPHHQQRRRRIIMMTTTTNNNKSSSSVVVVAAAADDEEGGGG"});
+        TABLES.put(22, new String[]{"Scenedesmus obliquus Mitochondrial", "FFLLSS*SYY*LCC*WLLLLPPPPHHQQRRRRIIIMTTTTNNKKSSRRVVVVAAAADDEEGGGG"});
+        TABLES.put(23, new String[]{"Thraustochytrium Mitochondrial", "FF*LSSSSYY**CC*WLLLLPPPPHHQQRRRRIIIMTTTTNNKKSSRRVVVVAAAADDEEGGGG"});
+        TABLES.put(24, new String[]{"Rhabdopleuridae Mitochondrial", "FFLLSSSSYY**CCWWLLLLPPPPHHQQRRRRIIIMTTTTNNKKSSSKVVVVAAAADDEEGGGG"});
+        TABLES.put(25, new String[]{"Candidate Division SR1 and Gracilibacteria", "FFLLSSSSYY**CCGWLLLLPPPPHHQQRRRRIIIMTTTTNNKKSSRRVVVVAAAADDEEGGGG"});
+    }
+
+    //Position of each 2-bit code (A, C, G, T) in the NCBI T, C, A, G order
+    private static final int[] NCBI_ORDER = {2, 1, 3, 0};
+
+    //The standard code, used unless another table is chosen
+    public static final GeneticCode STANDARD = forTable(1);
+
+    //List variables
+    private final int tableId;
+    private final String name;
+    private final char[] aminoAcids = new char[64];
+    private final byte[] aminoAcidIndexes = new byte[64];
+
+    private GeneticCode(int tableId, String name, String ncbiAminoAcids) {
+        this.tableId = tableId;
+        this.name = name;
+
+        //Reorders the NCBI table into the 2-bit code order
+        for (int codon = 0; codon < 64; codon++) {
+            int first = codon >>> 4, second = (codon >>> 2) & 3, third = codon & 3;
+            char aminoAcid = ncbiAminoAcids.charAt(NCBI_ORDER[first] * 16 + NCBI_ORDER[second] * 4 + NCBI_ORDER[third]);
+            this.aminoAcids[codon] = aminoAcid;
+            this.aminoAcidIndexes[codon] = (byte) AMINO_ACIDS.indexOf(aminoAcid);
+        }
+    }
+
+    /**
+     * Method to get one of the NCBI translation tables.
+     * @param tableId the NCBI table number, such as 1 for the standard code or 2 for vertebrate mitochondria.
+     * @return the genetic code.
+     */
+    public static GeneticCode forTable(int tableId) {
+        String[] table = TABLES.get(tableId);
+        if (table == null) {
+            throw new IllegalArgumentException("Unknown translation table " + tableId + ". Valid tables: " + TABLES.keySet());
+        }
+        return new GeneticCode(tableId, table[0], table[1]);
+    }
+
+    /**
+     * Method to get the numbers of the supported NCBI translation tables.
+     * @return the table numbers.
+     */
+    public static Iterable<Integer> getTableIds() {
+        return TABLES.keySet();
+    }
+
+    /**
+     * Method to pack a codon into its 6-bit index.
+     * @param sequenceData the nucleotide sequence.
+     * @param start the index of the first nucleotide of the codon.
+     * @return the codon index, or -1 if a nucleotide is not A, C, G, T or U.
+     */
+    public static int codonIndex(CharSequence sequenceData, int start) {
+        int first = PackedSequence.codeOf(sequenceData.charAt(start));
+        int second = PackedSequence.codeOf(sequenceData.charAt(start + 1));
+        int third = PackedSequence.codeOf(sequenceData.charAt(start + 2));
+        if ((first | second | third) < 0) {
+            return -1;
+        }
+        return first << 4 | second << 2 | third;
+    }
+
+    /**
+     * Method to get the NCBI number of the table.
+     * @return the table number.
+     */
+    public int getTableId() {
+        return this.tableId;
+    }
+
+    /**
+     * Method to get the name of the table.
+     * @return the table name.
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Method to translate a single codon.
+     * @param codonIndex the 6-bit codon index, or -1 for an unknown codon.
+     * @return the one letter amino acid, '*' for a stop codon and 'X' for an unknown codon.
+     */
+    public char getAminoAcid(int codonIndex) {
+        return codonIndex < 0 ? 'X' : this.aminoAcids[codonIndex];
+    }
+
+    /**
+     * Method to get the position of a codon's amino acid in {@link #AMINO_ACIDS}.
+     * @param codonIndex the 6-bit codon index, or -1 for an unknown codon.
+     * @return the amino acid index, or {@link #UNKNOWN}.
+     */
+    public int getAminoAcidIndex(int codonIndex) {
+        return codonIndex < 0 ? UNKNOWN : this.aminoAcidIndexes[codonIndex];
+    }
+
+    /**
+     * Method to check whether a codon is a stop codon.
+     * @param codonIndex the 6-bit codon index.
+     * @return true if the codon is a stop codon.
+     */
+    public boolean isStop(int codonIndex) {
+        return codonIndex >= 0 && this.aminoAcids[codonIndex] == '*';
+    }
+
+    /**
+     * Method to check whether a codon codes for methionine, which is used as the start codon.
+     * @param codonIndex the 6-bit codon index.
+     * @return true if the codon is a start codon.
+     */
+    public boolean isStart(int codonIndex) {
+        return codonIndex >= 0 && this.aminoAcids[codonIndex] == 'M';
+    }
+
+    /**
+     * Method to translate a sequence into a protein.
+     * @param sequenceData the nucleotide sequence.
+     * @param start the index of the first nucleotide of the first codon.
+     * @return the protein, one letter per codon. Incomplete codons at the end are ignored.
+     */
+    public String translate(CharSequence sequenceData, int start) {
+        char[] output = new char[Math.max(0, (sequenceData.length() - start) / 3)];
+        for (int i = 0; i < output.length; i++) {
+            output[i] = getAminoAcid(codonIndex(sequenceData, start + 3 * i));
+        }
+        return new String(output);
+    }
+
+    /**
+     * Method to send each codon's amino acid to a listener without building a protein.
+     * @param sequenceData the nucleotide sequence.
+     * @param start the index of the first nucleotide of the first codon.
+     * @param listener receives each amino acid.
+     */
+    public void translate(CharSequence sequenceData, int start, AminoAcidListener listener) {
+        for (int i = start; i + 3 <= sequenceData.length(); i += 3) {
+            listener.aminoAcidFound(i, getAminoAcid(codonIndex(sequenceData, i)));
+        }
+    }
+
+    /**
+     * Method to count the amino acids a sequence codes for.
+     * @param sequenceData the nucleotide sequence.
+     * @param start the index of the first nucleotide of the first codon.
+     * @return the counts, indexed the same as {@link #AMINO_ACIDS}.
+     */
+    public int[] countAminoAcids(CharSequence sequenceData, int start) {
+        int[] counts = new int[AMINO_ACIDS.length()];
+        countAminoAcids(sequenceData, start, sequenceData.length(), counts);
+        return counts;
+    }
+
+    /**
+     * Method to add the amino acids of part of a sequence to existing counts.
+     * @param sequenceData the nucleotide sequence.
+     * @param start the index of the first nucleotide of the first codon.
+     * @param end the index to stop at. Codons that do not fit before it are ignored.
+     * @param counts the counts to add to, indexed the same as {@link #AMINO_ACIDS}.
+     */
+    public void countAminoAcids(CharSequence sequenceData, int start, int end, int[] counts) {
+        for (int i = start; i + 3 <= end; i += 3) {
+            int codon = codonIndex(sequenceData, i);
+            if (codon >= 0) {
+                counts[this.aminoAcidIndexes[codon]]++;
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Random access to regions of a FASTA file. The file is memory-mapped and a samtools-compatible ".fai"
+ * index is used to jump straight to the bytes of a region, so only the requested bases are ever read.
+ */
+public class IndexedFastaReader implements Closeable {
+    //Files are mapped in 1 GiB segments since a single mapping is limited to 2 GiB
+    private static final int SEGMENT_BITS = 30;
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_BITS;
+
+    //List variables
+    private final FileChannel channel;
+    private final MappedByteBuffer[] segments;
+    private final FastaIndex index;
+
+    /**
+     * Constructor for a FASTA file. The index next to the file ("file.fa.fai") is loaded if it exists,
+     * otherwise it is built and saved there for the next run.
+     * @param fasta the FASTA file.
+     */
+    public IndexedFastaReader(File fasta) throws IOException {
+        this(fasta, loadOrBuildIndex(fasta));
+    }
+
+    /**
+     * Constructor for a FASTA file with an index that is already loaded.
+     * @param fasta the FASTA file.
+     * @param index the index of the file.
+     */
+    public IndexedFastaReader(File fasta, FastaIndex index) throws IOException {
+        this.index = index;
+        this.channel = FileChannel.open(fasta.toPath(), StandardOpenOption.READ);
+
+        //Maps the whole file, one segment at a time
+        long size = this.channel.size();
+        this.segments = new MappedByteBuffer[(int) ((size + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+        for (int i = 0; i < this.segments.length; i++) {
+            long start = i * SEGMENT_SIZE;
+            this.segments[i] = this.channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, size - start));
+        }
+    }
+
+    /**
+     * Method to get the index of the file.
+     * @return the index.
+     */
+    public FastaIndex getIndex() {
+        return this.index;
+    }
+
+    /**
+     * Method to get the names of all records in the file.
+     * @return the record names in file order.
+     */
+    public List<String> getNames() {
+        List<String> names = new ArrayList<>();
+        for (FastaIndex.Entry entry : this.index.getEntries()) {
+            names.add(entry.getName());
+        }
+        return names;
+    }
+
+    /**
+     * Method to get a region as a forward DNA sequence.
+     * @param region "name", "name:start" or "name:start-end", with 1-based inclusive coordinates like samtools.
+     * @return the region, named after the region string.
+     */
+    public Sequence fetch(String region) {
+        return fetch(region, true, 1, "DNA");
+    }
+
+    /**
+     * Method to get a region as a sequence.
+     * @param region "name", "name:start" or "name:start-end", with 1-based inclusive coordinates like samtools.
+     * @param forwardStrand true if the sequence is 5' to 3'.
+     * @param readingFrame the reading frame of the sequence. Non-valid inputs will be defaulted to 1.
+     * @param sequenceType DNA or RNA. Non-valid inputs will be defaulted to DNA.
+     * @return the region, named after the region string.
+     */
+    public Sequence fetch(String region, boolean forwardStrand, int readingFrame, String sequenceType) {
+        //Splits the region into the name and coordinates
+        String name = region;
+        long start = 1, end = Long.MAX_VALUE;
+        int colon = region.lastIndexOf(':');
+        if (colon >= 0 && this.index.getEntry(region) == null) {
+            name = region.substring(0, colon);
+            String range = region.substring(colon + 1).replace(",", "");
+            int dash = range.indexOf('-');
+            try {
+                if (dash >= 0) {
+                    start = Long.parseLong(range.substring(0, dash));
+                    end = Long.parseLong(range.substring(dash + 1));
+                } else {
+                    start = Long.parseLong(range);
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid region \"" + region + "\"", e);
+            }
+        }
+
+        Sequence output = new Sequence(forwardStrand, readingFrame, sequenceType, fetchBases(name, start - 1, end).toString());
+        output.setName(region);
+        return output;
+    }
+
+    /**
+     * Method to get the bases of a region.
+     * @param name the record name.
+     * @param start the 0-based first position.
+     * @param end the 0-based position after the last base. Values past the end of the record are clipped.
+     * @return the bases of the region.
+     */
+    public StringBuilder fetchBases(String name, long start, long end) {
+        FastaIndex.Entry entry = this.index.getEntry(name);
+        if (entry == null) {
+            throw new IllegalArgumentException("No sequence named \"" + name + "\" in the index");
+        }
+        end = Math.min(end, entry.getLength());
+        if (start < 0 || start > end) {
+            throw new IllegalArgumentException("Invalid range " + (start + 1) + "-" + end + " for \"" + name + "\" of length " + entry.getLength());
+        }
+        if (end - start > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Region is too long to fetch as a single sequence");
+        }
+
+        //Copies the bases a line at a time, skipping the line endings
+        StringBuilder output = new StringBuilder((int) (end - start));
+        long position = start;
+        while (position < end) {
+            int column = (int) (position % entry.getLineBases());
+            long count = Math.min(end - position, entry.getLineBases() - column);
+            long offset = entry.getByteOffset(position);
+            for (long i = 0; i < count; i++) {
+                output.append((char) (byteAt(offset + i) & 0xFF));
+            }
+            position += count;
+        }
+        return output;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+    private byte byteAt(long offset) {
+        return this.segments[(int) (offset >>> SEGMENT_BITS)].get((int) (offset & (SEGMENT_SIZE - 1)));
+    }
+
+    private static FastaIndex loadOrBuildIndex(File fasta) throws IOException {
+        File fai = new File(fasta.getPath() + ".fai");
+        if (fai.isFile() && fai.lastModified() >= fasta.lastModified()) {
+            return FastaIndex.load(fai);
+        }
+        FastaIndex index = FastaIndex.build(fasta);
+        try {
+            index.save(fai);
+        } catch (IOException e) {
+            //The index still works from memory if the folder is read-only. The warning goes to stderr so it never
+            //ends up mixed into sequence output
+            System.err.println("Warning, could not save index file " + fai + ": " + e.getMessage());
+        }
+        return index;
+    }
+}
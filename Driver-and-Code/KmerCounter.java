@@ -0,0 +1,217 @@
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.LongConsumer;
+
+/**
+ * Counts the k-mers (every substring of length k, up to 31) in a sequence. Each k-mer is packed 2 bits per nucleotide
+ * into a long that is rolled forward one nucleotide at a time, and k-mers holding anything other than A, C, G, T or U
+ * are skipped. In canonical mode each k-mer is counted together with its reverse compliment, so both strands give
+ * the same counts. Long sequences are split into chunks that run as fork/join tasks, and every worker thread counts
+ * into its own {@link KmerTable}, which are merged at the end.
+ */
+public class KmerCounter {
+    //Longest k-mer that fits in a long
+    public static final int MAX_K = 31;
+
+    //Characters counted by a single task before it stops splitting
+    private static final int CHUNK_LENGTH = 1 << 16;
+
+    //2-bit codes of the nucleotides in either case, -1 for everything else
+    private static final byte[] CODES = new byte[128];
+    private static final char[] BASES = {'A', 'C', 'G', 'T'};
+
+    static {
+        Arrays.fill(CODES, (byte) -1);
+        for (char nucleotide : "ACGTU".toCharArray()) {
+            CODES[nucleotide] = (byte) PackedSequence.codeOf(nucleotide);
+            CODES[Character.toLowerCase(nucleotide)] = (byte) PackedSequence.codeOf(nucleotide);
+        }
+    }
+
+    //List variables
+    private final int k;
+    private final boolean canonical;
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructor using the common pool.
+     * @param k the k-mer length, 1 to 31.
+     * @param canonical true to count each k-mer together with its reverse compliment.
+     */
+    public KmerCounter(int k, boolean canonical) {
+        this(k, canonical, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructor for a k-mer counter.
+     * @param k the k-mer length, 1 to 31.
+     * @param canonical true to count each k-mer together with its reverse compliment.
+     * @param pool the pool the chunk tasks run in.
+     */
+    public KmerCounter(int k, boolean canonical, ForkJoinPool pool) {
+        if (k < 1 || k > MAX_K) {
+            throw new IllegalArgumentException("K-mer length must be 1 to " + MAX_K + ", not " + k);
+        }
+        this.k = k;
+        this.canonical = canonical;
+        this.pool = pool;
+    }
+
+    /**
+     * Method to get the k-mer length.
+     * @return k.
+     */
+    public int getK() {
+        return this.k;
+    }
+
+    /**
+     * Method to get whether k-mers are counted together with their reverse compliment.
+     * @return true in canonical mode.
+     */
+    public boolean isCanonical() {
+        return this.canonical;
+    }
+
+    /**
+     * Method to count the k-mers in a sequence.
+     * @param sequenceData the nucleotide sequence.
+     * @return the counts, keyed by packed k-mer (see {@link #decode(long, int)}).
+     */
+    public KmerTable count(CharSequence sequenceData) {
+        int kmers = sequenceData.length() - this.k + 1;
+        if (kmers <= CHUNK_LENGTH) {
+            KmerTable table = new KmerTable();
+            if (kmers > 0) {
+                count(sequenceData, 0, kmers, table);
+            }
+            return table;
+        }
+
+        //Each worker thread counts into its own table, so there is no locking while counting
+        ConcurrentHashMap<Thread, KmerTable> tables = new ConcurrentHashMap<>();
+        this.pool.invoke(new CountTask(sequenceData, 0, kmers, tables));
+
+        //Merges the smaller tables into the largest one
+        Collection<KmerTable> results = tables.values();
+        KmerTable output = null;
+        for (KmerTable table : results) {
+            if (output == null || table.size() > output.size()) {
+                output = table;
+            }
+        }
+        for (KmerTable table : results) {
+            if (table != output) {
+                output.addAll(table);
+            }
+        }
+        return output;
+    }
+
+    /**
+     * Method to pack a k-mer into a long.
+     * @param kmer the k-mer, up to 31 nucleotides.
+     * @return the packed k-mer, or -1 if it holds anything other than A, C, G, T or U.
+     */
+    public static long encode(CharSequence kmer) {
+        if (kmer.length() > MAX_K) {
+            throw new IllegalArgumentException("K-mers are limited to " + MAX_K + " nucleotides");
+        }
+        long output = 0;
+        for (int i = 0; i < kmer.length(); i++) {
+            char nucleotide = kmer.charAt(i);
+            int code = nucleotide < 128 ? CODES[nucleotide] : -1;
+            if (code < 0) {
+                return -1;
+            }
+            output = output << 2 | code;
+        }
+        return output;
+    }
+
+    /**
+     * Method to unpack a k-mer.
+     * @param kmer the packed k-mer.
+     * @param k the k-mer length.
+     * @return the k-mer in DNA format.
+     */
+    public static String decode(long kmer, int k) {
+        char[] output = new char[k];
+        for (int i = k - 1; i >= 0; i--) {
+            output[i] = BASES[(int) (kmer & 3)];
+            kmer >>>= 2;
+        }
+        return new String(output);
+    }
+
+    /**
+     * Method to visit the k-mers starting in a range of a sequence, in order. K-mers holding anything other than A, C,
+     * G, T or U are skipped, and in canonical mode each k-mer is the smaller of itself and its reverse compliment.
+     * @param sequenceData the nucleotide sequence.
+     * @param firstKmer the start of the first k-mer.
+     * @param lastKmer the start of the last k-mer, excluded.
+     * @param listener receives each packed k-mer.
+     */
+    public void forEach(CharSequence sequenceData, int firstKmer, int lastKmer, LongConsumer listener) {
+        if (lastKmer <= firstKmer) {
+            return;
+        }
+
+        //Rolls the forward k-mer in from the right and the reverse compliment in from the left
+        long mask = (1L << (2 * this.k)) - 1;
+        int shift = 2 * (this.k - 1);
+        long forward = 0, reverse = 0;
+        int valid = 0;
+        for (int i = firstKmer; i < lastKmer + this.k - 1; i++) {
+            char nucleotide = sequenceData.charAt(i);
+            int code = nucleotide < 128 ? CODES[nucleotide] : -1;
+            if (code < 0) {
+                valid = 0;
+                continue;
+            }
+            forward = (forward << 2 | code) & mask;
+            reverse = reverse >>> 2 | (long) (3 - code) << shift;
+            if (++valid >= this.k) {
+                listener.accept(this.canonical ? Math.min(forward, reverse) : forward);
+            }
+        }
+    }
+
+    private void count(CharSequence sequenceData, int firstKmer, int lastKmer, KmerTable table) {
+        forEach(sequenceData, firstKmer, lastKmer, kmer -> table.add(kmer, 1));
+    }
+
+    /**
+     * Counts the k-mers starting in a range, splitting in half until the range is a single chunk.
+     */
+    private class CountTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final CharSequence sequenceData;
+        private final int firstKmer;
+        private final int lastKmer;
+        private final ConcurrentHashMap<Thread, KmerTable> tables;
+
+        CountTask(CharSequence sequenceData, int firstKmer, int lastKmer, ConcurrentHashMap<Thread, KmerTable> tables) {
+            this.sequenceData = sequenceData;
+            this.firstKmer = firstKmer;
+            this.lastKmer = lastKmer;
+            this.tables = tables;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.lastKmer - this.firstKmer > CHUNK_LENGTH) {
+                int middle = (this.firstKmer + this.lastKmer) >>> 1;
+                invokeAll(new CountTask(this.sequenceData, this.firstKmer, middle, this.tables),
+                        new CountTask(this.sequenceData, middle, this.lastKmer, this.tables));
+                return;
+            }
+            KmerTable table = this.tables.computeIfAbsent(Thread.currentThread(), thread -> new KmerTable(CHUNK_LENGTH));
+            count(this.sequenceData, this.firstKmer, this.lastKmer, table);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash table from k-mers (packed into longs) to counts. Keys and counts are kept in two primitive
+ * arrays with linear probing, so counting boxes nothing. A count of 0 marks an empty slot.
+ */
+public class KmerTable {
+    //Grows when more than this fraction of the slots are used
+    private static final double LOAD_FACTOR = 0.6;
+
+    //List variables
+    private long[] keys;
+    private int[] counts;
+    private int size;
+    private int mask;
+    private int resizeAt;
+
+    /**
+     * Default constructor. Creates an empty table.
+     */
+    public KmerTable() {
+        this(1024);
+    }
+
+    /**
+     * Constructor with an expected size.
+     * @param capacity the expected number of distinct k-mers.
+     */
+    public KmerTable(int capacity) {
+        //Rounds up to a power of two
+        long wanted = Math.max(16, (long) (capacity / LOAD_FACTOR) + 1);
+        allocate((int) Math.min(1 << 30, Long.highestOneBit(wanted - 1) << 1));
+    }
+
+    /**
+     * Visits each k-mer in a table.
+     */
+    public interface KmerConsumer {
+        /**
+         * Called once for each distinct k-mer.
+         * @param kmer the packed k-mer.
+         * @param count the number of times it was counted.
+         */
+        void accept(long kmer, int count);
+    }
+
+    /**
+     * Method to estimate the memory the table takes.
+     * @return the size of its arrays in bytes.
+     */
+    public long getMemoryUsage() {
+        return 12L * this.keys.length;
+    }
+
+    /**
+     * Method to add to the count of a k-mer.
+     * @param kmer the packed k-mer.
+     * @param amount the amount to add, more than 0.
+     */
+    public void add(long kmer, int amount) {
+        int slot = slot(kmer);
+        while (this.counts[slot] != 0) {
+            if (this.keys[slot] == kmer) {
+                this.counts[slot] += amount;
+                return;
+            }
+            slot = (slot + 1) & this.mask;
+        }
+        this.keys[slot] = kmer;
+        this.counts[slot] = amount;
+        if (++this.size > this.resizeAt) {
+            grow();
+        }
+    }
+
+    /**
+     * Method to get the count of a k-mer.
+     * @param kmer the packed k-mer.
+     * @return the count, 0 if it was never counted.
+     */
+    public int get(long kmer) {
+        int slot = slot(kmer);
+        while (this.counts[slot] != 0) {
+            if (this.keys[slot] == kmer) {
+                return this.counts[slot];
+            }
+            slot = (slot + 1) & this.mask;
+        }
+        return 0;
+    }
+
+    /**
+     * Method to get the number of distinct k-mers.
+     * @return the number of k-mers in the table.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Method to add every count of another table to this one.
+     * @param other the table to add.
+     */
+    public void addAll(KmerTable other) {
+        for (int slot = 0; slot < other.counts.length; slot++) {
+            if (other.counts[slot] != 0) {
+                add(other.keys[slot], other.counts[slot]);
+            }
+        }
+    }
+
+    /**
+     * Method to visit every k-mer, in no particular order.
+     * @param consumer receives each k-mer and its count.
+     */
+    public void forEach(KmerConsumer consumer) {
+        for (int slot = 0; slot < this.counts.length; slot++) {
+            if (this.counts[slot] != 0) {
+                consumer.accept(this.keys[slot], this.counts[slot]);
+            }
+        }
+    }
+
+    /**
+     * Method to get the k-mers in order, which is also alphabetical order for k-mers of the same length.
+     * @return the packed k-mers, sorted.
+     */
+    public long[] sortedKmers() {
+        long[] output = new long[this.size];
+        int index = 0;
+        for (int slot = 0; slot < this.counts.length; slot++) {
+            if (this.counts[slot] != 0) {
+                output[index++] = this.keys[slot];
+            }
+        }
+        Arrays.sort(output);
+        return output;
+    }
+
+    private int slot(long kmer) {
+        //Fibonacci hashing spreads k-mers that differ only in their last bases
+        long hash = kmer * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & this.mask;
+    }
+
+    private void allocate(int slots) {
+        this.keys = new long[slots];
+        this.counts = new int[slots];
+        this.mask = slots - 1;
+        this.resizeAt = (int) (slots * LOAD_FACTOR);
+    }
+
+    private void grow() {
+        if (this.keys.length == 1 << 30) {
+            throw new IllegalStateException("K-mer tables are limited to " + this.resizeAt + " distinct k-mers");
+        }
+        long[] oldKeys = this.keys;
+        int[] oldCounts = this.counts;
+        allocate(oldKeys.length * 2);
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldCounts[slot] != 0) {
+                int newSlot = slot(oldKeys[slot]);
+                while (this.counts[newSlot] != 0) {
+                    newSlot = (newSlot + 1) & this.mask;
+                }
+                this.keys[newSlot] = oldKeys[slot];
+                this.counts[newSlot] = oldCounts[slot];
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Lock-free histogram of durations in nanoseconds, laid out like HdrHistogram: one group of buckets per power of two,
+ * each split into {@link #SUB_BUCKETS} equal parts, so every recorded value is kept to within 1/16 (about 6%) of its
+ * real size from 1 ns up to centuries. Recording is one atomic increment.
+ */
+public class LatencyHistogram {
+    //Buckets per power of two
+    private static final int SUB_BUCKETS = 16;
+    private static final int SUB_BITS = 4;
+
+    //List variables
+    private final AtomicLongArray buckets = new AtomicLongArray(64 * SUB_BUCKETS);
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Method to record a duration.
+     * @param nanos the duration in nanoseconds, negative values are counted as 0.
+     */
+    public void record(long nanos) {
+        nanos = Math.max(0, nanos);
+        this.buckets.incrementAndGet(bucketOf(nanos));
+        this.max.accumulate(nanos);
+    }
+
+    /**
+     * Method to get the number of durations recorded.
+     * @return the count.
+     */
+    public long getCount() {
+        long output = 0;
+        for (int i = 0; i < this.buckets.length(); i++) {
+            output += this.buckets.get(i);
+        }
+        return output;
+    }
+
+    /**
+     * Method to get a percentile of the recorded durations.
+     * @param percentile the percentile, 0 to 100.
+     * @return the upper edge of the bucket holding that percentile, 0 if nothing was recorded.
+     */
+    public long getPercentile(double percentile) {
+        long count = getCount();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < this.buckets.length(); i++) {
+            seen += this.buckets.get(i);
+            if (seen >= rank) {
+                return Math.min(upperEdge(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Method to get the longest duration recorded.
+     * @return the maximum in nanoseconds.
+     */
+    public long getMax() {
+        return this.max.get();
+    }
+
+    /**
+     * Method to clear the histogram. Durations recorded at the same time may be kept or lost.
+     */
+    public void reset() {
+        for (int i = 0; i < this.buckets.length(); i++) {
+            this.buckets.set(i, 0);
+        }
+        this.max.reset();
+    }
+
+    private static int bucketOf(long nanos) {
+        //Values below 16 get exact buckets, larger ones keep their top 5 bits
+        if (nanos < SUB_BUCKETS) {
+            return (int) nanos;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int sub = (int) (nanos >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    private static long upperEdge(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+        long sub = bucket % SUB_BUCKETS;
+        return ((SUB_BUCKETS + sub + 1) << (exponent - SUB_BITS)) - 1;
+    }
+}
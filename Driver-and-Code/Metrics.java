@@ -0,0 +1,115 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Registry of the {@link OperationMetrics} kept for each operation. Operations are made once, usually into a static
+ * field, and registered with the platform MBean server as "jgsmt:type=Operation,name=..." so they can be watched in
+ * JConsole or VisualVM. The metrics are always on; {@link #writeReport(Appendable)} prints them as a table, which is
+ * what the "--metrics" option shows.
+ */
+public final class Metrics {
+    //Domain of the JMX names
+    public static final String DOMAIN = "jgsmt";
+
+    //List variables
+    private static final ConcurrentHashMap<String, OperationMetrics> OPERATIONS = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    /**
+     * Method to get the metrics of an operation, made and registered with JMX on the first call.
+     * @param name the operation name, such as "Sequence.getIndex".
+     * @return the metrics.
+     */
+    public static OperationMetrics operation(String name) {
+        OperationMetrics output = OPERATIONS.get(name);
+        if (output == null) {
+            output = OPERATIONS.computeIfAbsent(name, key -> {
+                OperationMetrics operation = new OperationMetrics(key);
+                register(operation);
+                return operation;
+            });
+        }
+        return output;
+    }
+
+    /**
+     * Method to get every operation, sorted by name.
+     * @return the operations.
+     */
+    public static List<OperationMetrics> getOperations() {
+        List<OperationMetrics> output = new ArrayList<>(OPERATIONS.values());
+        output.sort(Comparator.comparing(OperationMetrics::getName));
+        return output;
+    }
+
+    /**
+     * Method to clear the metrics of every operation.
+     */
+    public static void reset() {
+        for (OperationMetrics operation : OPERATIONS.values()) {
+            operation.reset();
+        }
+    }
+
+    /**
+     * Method to write the operations that have run as a plain-text table, one line each.
+     * @param output where the table goes.
+     * @throws IOException if it can't be written.
+     */
+    public static void writeReport(Appendable output) throws IOException {
+        output.append(String.format("%-28s %10s %12s %12s %12s %12s %16s %10s %16s%n", "Operation", "Calls", "Mean ms", "Median ms",
+                "99% ms", "Max ms", "Nucleotides", "Mnt/s", "Allocated B"));
+        for (OperationMetrics operation : getOperations()) {
+            if (operation.getCount() > 0) {
+                output.append(operation.toString()).append(System.lineSeparator());
+            }
+        }
+    }
+
+    /**
+     * Method to get the report of {@link #writeReport(Appendable)} as a string.
+     * @return the table.
+     */
+    public static String getReport() {
+        StringBuilder output = new StringBuilder();
+        try {
+            writeReport(output);
+        } catch (IOException e) {
+            //StringBuilder doesn't throw
+            throw new IllegalStateException(e);
+        }
+        return output.toString();
+    }
+
+    /**
+     * Method to register a bean with the platform MBean server as "jgsmt:type=...,name=...", unless the name is taken.
+     * @param bean the MXBean.
+     * @param type the kind of bean, such as "Operation".
+     * @param name the bean's name.
+     */
+    static void register(Object bean, String type, String name) {
+        //Metrics still work without JMX, such as when the name is already taken by another class loader
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(name));
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(bean, objectName);
+            }
+        } catch (JMException | SecurityException e) {
+            System.err.println("Metrics for " + name + " are not available over JMX: " + e.getMessage());
+        }
+    }
+
+    private static void register(OperationMetrics operation) {
+        register(operation, "Operation", operation.getName());
+    }
+}
@@ -0,0 +1,307 @@
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Bottom-s MinHash sketch of a sequence: the s smallest hashes of its canonical k-mers (see {@link KmerCounter}), so
+ * both strands give the same sketch. Two sketches estimate the Jaccard similarity of the k-mer sets of their sequences,
+ * and from it the Mash distance, an estimate of the mutation rate between them, in time proportional to s however
+ * long the sequences are. Long sequences are sketched as fork/join tasks whose bottom hashes are merged, and sketches
+ * are stored as a few kilobytes in files ending in {@link #EXTENSION}.
+ */
+public class MinHashSketch {
+    //Usual file extension
+    public static final String EXTENSION = ".jgsk";
+
+    //Defaults, as used by Mash
+    public static final int DEFAULT_K = 21;
+    public static final int DEFAULT_SIZE = 1000;
+
+    //Nucleotides sketched by a single task before it stops splitting
+    private static final int CHUNK_LENGTH = 1 << 18;
+
+    //File header
+    private static final int MAGIC = 0x4A47534B;
+    private static final int VERSION = 1;
+
+    //List variables
+    private final String name;
+    private final int k;
+    private final int size;
+    private final long[] hashes;
+    private final long length;
+
+    private MinHashSketch(String name, int k, int size, long[] hashes, long length) {
+        this.name = name;
+        this.k = k;
+        this.size = size;
+        this.hashes = hashes;
+        this.length = length;
+    }
+
+    /**
+     * Method to sketch a sequence on every core of the common pool.
+     * @param name the name of the sequence.
+     * @param sequenceData the nucleotide sequence.
+     * @param k the k-mer length, 1 to 31.
+     * @param size the most hashes kept.
+     * @return the sketch.
+     */
+    public static MinHashSketch sketch(String name, CharSequence sequenceData, int k, int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Sketch size must be at least 1");
+        }
+        KmerCounter counter = new KmerCounter(k, true);
+        int kmers = Math.max(0, sequenceData.length() - k + 1);
+        long[] hashes = kmers <= CHUNK_LENGTH ? sketch(counter, sequenceData, 0, kmers, size)
+                : ForkJoinPool.commonPool().invoke(new SketchTask(counter, sequenceData, 0, kmers, size));
+        return new MinHashSketch(name, k, size, hashes, sequenceData.length());
+    }
+
+    /**
+     * Method to get the name of the sketched sequence.
+     * @return the name.
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Method to get the k-mer length.
+     * @return k.
+     */
+    public int getK() {
+        return this.k;
+    }
+
+    /**
+     * Method to get the most hashes the sketch keeps.
+     * @return the sketch size.
+     */
+    public int getSize() {
+        return this.size;
+    }
+
+    /**
+     * Method to get the number of hashes kept, less than the sketch size only for sequences with fewer k-mers.
+     * @return the number of hashes.
+     */
+    public int getHashCount() {
+        return this.hashes.length;
+    }
+
+    /**
+     * Method to get the length of the sketched sequence.
+     * @return the number of nucleotides.
+     */
+    public long getLength() {
+        return this.length;
+    }
+
+    /**
+     * Method to estimate the Jaccard similarity of the k-mer sets of two sequences, from the smallest hashes of the
+     * union of their sketches. Sketches holding every k-mer of their sequences, with fewer hashes than the sketch size,
+     * give the exact Jaccard similarity.
+     * @param other the other sketch, made with the same k and size.
+     * @return the share of k-mers the sequences have in common, 0 to 1.
+     */
+    public double jaccard(MinHashSketch other) {
+        if (other.k != this.k || other.size != this.size) {
+            throw new IllegalArgumentException("Sketches of k " + this.k + " and size " + this.size + " can't be compared to k "
+                    + other.k + " and size " + other.size);
+        }
+
+        //Walks both sorted sketches together, as far as the bottom hashes of the union
+        int i = 0, j = 0, union = 0, shared = 0;
+        while (i < this.hashes.length && j < other.hashes.length && union < this.size) {
+            long left = this.hashes[i], right = other.hashes[j];
+            if (left == right) {
+                shared++;
+                i++;
+                j++;
+            } else if (left < right) {
+                i++;
+            } else {
+                j++;
+            }
+            union++;
+        }
+
+        //Hashes left in either sketch are still in the union, so a short sketch doesn't shrink it, up to the sketch size
+        union = (int) Math.min(this.size, (long) union + (this.hashes.length - i) + (other.hashes.length - j));
+        return union == 0 ? 0 : (double) shared / union;
+    }
+
+    /**
+     * Method to estimate the Mash distance between two sequences, close to the share of nucleotides that differ.
+     * @param other the other sketch, made with the same k and size.
+     * @return the distance, 0 for the same k-mers and 1 for none in common.
+     */
+    public double distance(MinHashSketch other) {
+        double jaccard = jaccard(other);
+        if (jaccard == 0) {
+            return 1;
+        }
+        return Math.max(0, Math.min(1, -Math.log(2 * jaccard / (1 + jaccard)) / this.k));
+    }
+
+    /**
+     * Method to save sketches to a file.
+     * @param file the sketch file.
+     * @param sketches the sketches.
+     */
+    public static void save(File file, List<MinHashSketch> sketches) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(sketches.size());
+            for (MinHashSketch sketch : sketches) {
+                out.writeUTF(sketch.name);
+                out.writeInt(sketch.k);
+                out.writeInt(sketch.size);
+                out.writeLong(sketch.length);
+                out.writeInt(sketch.hashes.length);
+                for (long hash : sketch.hashes) {
+                    out.writeLong(hash);
+                }
+            }
+        }
+    }
+
+    /**
+     * Method to load the sketches saved by {@link #save(File, List)}.
+     * @param file the sketch file.
+     * @return the sketches, in the order they were saved.
+     * @throws IOException if the file can't be read or isn't a sketch file.
+     */
+    public static List<MinHashSketch> load(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a sketch file: " + file);
+            }
+            int count = in.readInt();
+            List<MinHashSketch> output = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String name = in.readUTF();
+                int k = in.readInt();
+                int size = in.readInt();
+                long length = in.readLong();
+                long[] hashes = new long[in.readInt()];
+                for (int j = 0; j < hashes.length; j++) {
+                    hashes[j] = in.readLong();
+                }
+                output.add(new MinHashSketch(name, k, size, hashes, length));
+            }
+            return output;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return this.name + " (k " + this.k + ", " + this.hashes.length + " of " + this.size + " hashes, " + this.length + " nt)";
+    }
+
+    private static long[] sketch(KmerCounter counter, CharSequence sequenceData, int firstKmer, int lastKmer, int size) {
+        BottomHashes bottom = new BottomHashes(size);
+        counter.forEach(sequenceData, firstKmer, lastKmer, kmer -> bottom.add(hash(kmer)));
+        return bottom.toArray();
+    }
+
+    private static long hash(long kmer) {
+        //Final mix of MurmurHash3, so the bottom hashes are a random sample of the k-mers
+        kmer = (kmer ^ kmer >>> 33) * 0xFF51AFD7ED558CCDL;
+        kmer = (kmer ^ kmer >>> 33) * 0xC4CEB9FE1A85EC53L;
+        return kmer ^ kmer >>> 33;
+    }
+
+    /**
+     * The smallest distinct hashes seen, kept in a buffer twice the sketch size that is sorted and cut back whenever
+     * it fills, so adding a hash is usually one comparison.
+     */
+    private static class BottomHashes {
+        //List variables
+        private final int size;
+        private final long[] hashes;
+        private int count;
+        private long threshold = Long.MAX_VALUE;
+
+        BottomHashes(int size) {
+            this.size = size;
+            this.hashes = new long[2 * size];
+        }
+
+        void add(long hash) {
+            if (hash < this.threshold) {
+                this.hashes[this.count++] = hash;
+                if (this.count == this.hashes.length) {
+                    compact();
+                }
+            }
+        }
+
+        void addAll(long[] hashes) {
+            for (long hash : hashes) {
+                add(hash);
+            }
+        }
+
+        long[] toArray() {
+            compact();
+            return Arrays.copyOf(this.hashes, this.count);
+        }
+
+        private void compact() {
+            //Sorts, drops repeats and keeps the smallest, which also lowers the bar for new hashes
+            Arrays.sort(this.hashes, 0, this.count);
+            int distinct = 0;
+            for (int i = 0; i < this.count && distinct < this.size; i++) {
+                if (distinct == 0 || this.hashes[i] != this.hashes[distinct - 1]) {
+                    this.hashes[distinct++] = this.hashes[i];
+                }
+            }
+            this.count = distinct;
+            if (distinct == this.size) {
+                this.threshold = this.hashes[distinct - 1];
+            }
+        }
+    }
+
+    /**
+     * Sketches the k-mers starting in a range, splitting in half until the range is a single chunk.
+     */
+    private static class SketchTask extends RecursiveTask<long[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final KmerCounter counter;
+        private final CharSequence sequenceData;
+        private final int firstKmer;
+        private final int lastKmer;
+        private final int size;
+
+        SketchTask(KmerCounter counter, CharSequence sequenceData, int firstKmer, int lastKmer, int size) {
+            this.counter = counter;
+            this.sequenceData = sequenceData;
+            this.firstKmer = firstKmer;
+            this.lastKmer = lastKmer;
+            this.size = size;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (this.lastKmer - this.firstKmer <= CHUNK_LENGTH) {
+                return sketch(this.counter, this.sequenceData, this.firstKmer, this.lastKmer, this.size);
+            }
+            int middle = (this.firstKmer + this.lastKmer) >>> 1;
+            SketchTask left = new SketchTask(this.counter, this.sequenceData, this.firstKmer, middle, this.size);
+            left.fork();
+            long[] right = new SketchTask(this.counter, this.sequenceData, middle, this.lastKmer, this.size).compute();
+            BottomHashes merged = new BottomHashes(this.size);
+            merged.addAll(left.join());
+            merged.addAll(right);
+            return merged.toArray();
+        }
+    }
+}
@@ -0,0 +1,12 @@
+/**
+ * Receives the hits of a motif search as they are found.
+ */
+public interface MotifListener {
+    /**
+     * Method called for every occurrence of a motif.
+     * @param motif the motif as it was given to the search.
+     * @param index the index on the searched sequence where the hit starts.
+     * @param forwardStrand true if the motif was found as given, false if its reverse compliment was found.
+     */
+    void motifFound(String motif, int index, boolean forwardStrand);
+}
@@ -0,0 +1,171 @@
+import java.util.*;
+
+/**
+ * Aho-Corasick automaton that finds every occurrence of many motifs, on both strands, in one pass over a sequence.
+ * Each motif is added together with its reverse compliment, so the reverse strand never has to be built.
+ */
+public class MotifSearcher {
+    //List variables
+    private final String[] motifs;
+    private final byte[] symbolCodes = new byte[128];
+    private final int symbolCount;
+    private final int[] transitions;
+    private final int[] firstEntry;
+    private final int[] outputLink;
+    private final int[] entryMotif;
+    private final int[] entryLength;
+    private final boolean[] entryForward;
+    private final int[] nextEntry;
+
+    /**
+     * Constructor for a DNA motif search.
+     * @param motifs the motifs to search for. Case is ignored.
+     */
+    public MotifSearcher(Collection<String> motifs) {
+        this(motifs, false);
+    }
+
+    /**
+     * Constructor for a motif search.
+     * @param motifs the motifs to search for. Case is ignored.
+     * @param rna true if the reverse compliments should use U instead of T.
+     */
+    public MotifSearcher(Collection<String> motifs, boolean rna) {
+        this.motifs = motifs.toArray(new String[0]);
+
+        //Forward and reverse compliment form of every motif
+        String[] entries = new String[this.motifs.length * 2];
+        for (int i = 0; i < this.motifs.length; i++) {
+            if (this.motifs[i].isEmpty()) {
+                throw new IllegalArgumentException("Motifs cannot be empty");
+            }
+            entries[2 * i] = this.motifs[i].toUpperCase();
+            entries[2 * i + 1] = reverseCompliment(entries[2 * i], rna);
+        }
+
+        //Gives every symbol used by a motif a code, anything else is code 0 and always restarts the search
+        int symbols = 1;
+        int totalLength = 1;
+        for (String entry : entries) {
+            totalLength += entry.length();
+            for (int i = 0; i < entry.length(); i++) {
+                char c = entry.charAt(i);
+                if (c >= 128) {
+                    throw new IllegalArgumentException("Invalid motif character \"" + c + "\"");
+                }
+                if (this.symbolCodes[c] == 0) {
+                    this.symbolCodes[c] = (byte) symbols++;
+                }
+            }
+        }
+        this.symbolCount = symbols;
+
+        //Builds the trie
+        int[] trie = new int[totalLength * symbols];
+        Arrays.fill(trie, -1);
+        this.firstEntry = new int[totalLength];
+        Arrays.fill(this.firstEntry, -1);
+        this.entryMotif = new int[entries.length];
+        this.entryLength = new int[entries.length];
+        this.entryForward = new boolean[entries.length];
+        this.nextEntry = new int[entries.length];
+        int states = 1;
+        for (int e = 0; e < entries.length; e++) {
+            int state = 0;
+            for (int i = 0; i < entries[e].length(); i++) {
+                int code = this.symbolCodes[entries[e].charAt(i)];
+                if (trie[state * symbols + code] == -1) {
+                    trie[state * symbols + code] = states++;
+                }
+                state = trie[state * symbols + code];
+            }
+            this.entryMotif[e] = e / 2;
+            this.entryLength[e] = entries[e].length();
+            this.entryForward[e] = e % 2 == 0;
+            this.nextEntry[e] = this.firstEntry[state];
+            this.firstEntry[state] = e;
+        }
+
+        //Turns the trie into a full transition table with failure links, in breadth-first order
+        this.transitions = new int[states * symbols];
+        this.outputLink = new int[states];
+        int[] failure = new int[states];
+        int[] queue = new int[states];
+        int head = 0, tail = 0;
+        this.outputLink[0] = -1;
+        for (int c = 0; c < symbols; c++) {
+            int child = trie[c];
+            if (child == -1 || c == 0) {
+                this.transitions[c] = 0;
+            } else {
+                this.transitions[c] = child;
+                failure[child] = 0;
+                this.outputLink[child] = -1;
+                queue[tail++] = child;
+            }
+        }
+        while (head < tail) {
+            int state = queue[head++];
+            for (int c = 0; c < symbols; c++) {
+                int child = trie[state * symbols + c];
+                if (child == -1 || c == 0) {
+                    this.transitions[state * symbols + c] = this.transitions[failure[state] * symbols + c];
+                } else {
+                    this.transitions[state * symbols + c] = child;
+                    int fail = this.transitions[failure[state] * symbols + c];
+                    failure[child] = fail;
+                    this.outputLink[child] = this.firstEntry[fail] != -1 ? fail : this.outputLink[fail];
+                    queue[tail++] = child;
+                }
+            }
+        }
+    }
+
+    /**
+     * Method to get the motifs being searched for.
+     * @return the motifs.
+     */
+    public List<String> getMotifs() {
+        return Collections.unmodifiableList(Arrays.asList(this.motifs));
+    }
+
+    /**
+     * Method to search a sequence and send every hit to a listener as it is found.
+     * @param sequenceData the sequence to search.
+     * @param listener receives the hits.
+     * @return the number of hits.
+     */
+    public long search(CharSequence sequenceData, MotifListener listener) {
+        long hits = 0;
+        int state = 0;
+        for (int i = 0; i < sequenceData.length(); i++) {
+            char c = sequenceData.charAt(i);
+            int code = c < 128 ? this.symbolCodes[c] : 0;
+            state = this.transitions[state * this.symbolCount + code];
+
+            //Reports every motif ending here, following the output links
+            for (int match = this.firstEntry[state] != -1 ? state : this.outputLink[state]; match != -1; match = this.outputLink[match]) {
+                for (int e = this.firstEntry[match]; e != -1; e = this.nextEntry[e]) {
+                    listener.motifFound(this.motifs[this.entryMotif[e]], i - this.entryLength[e] + 1, this.entryForward[e]);
+                    hits++;
+                }
+            }
+        }
+        return hits;
+    }
+
+    private static String reverseCompliment(String motif, boolean rna) {
+        StringBuilder output = new StringBuilder(motif.length());
+        for (int i = motif.length() - 1; i >= 0; i--) {
+            char c = motif.charAt(i);
+            output.append(switch (c) {
+                case 'A' -> rna ? 'U' : 'T';
+                case 'T', 'U' -> 'A';
+                case 'C' -> 'G';
+                case 'G' -> 'C';
+                default -> PackedSequence.complimentaryAmbiguity(c);
+            });
+        }
+        return output.toString();
+    }
+}
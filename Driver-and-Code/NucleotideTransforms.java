@@ -0,0 +1,230 @@
+/**
+ * Single-pass transforms over nucleotide characters using lookup tables. Reverse compliment is done as one fused
+ * loop that swaps from both ends, and DNA/RNA conversion can run in place. Lowercase (soft-masked) nucleotides keep
+ * their case, ambiguity codes are complimented to their IUPAC partners and anything else is left unchanged.
+ */
+public final class NucleotideTransforms {
+    //Lookup tables, characters past the end of a table are left unchanged
+    private static final char[] DNA_COMPLIMENT = new char[128];
+    private static final char[] RNA_COMPLIMENT = new char[128];
+    private static final char[] TO_DNA = new char[128];
+    private static final char[] TO_RNA = new char[128];
+
+    static {
+        for (char c = 0; c < 128; c++) {
+            char upper = Character.toUpperCase(c);
+            boolean lower = upper != c;
+            char compliment = switch (upper) {
+                case 'A' -> 'T';
+                case 'T', 'U' -> 'A';
+                case 'C' -> 'G';
+                case 'G' -> 'C';
+                default -> PackedSequence.complimentaryAmbiguity(upper);
+            };
+            DNA_COMPLIMENT[c] = lower ? Character.toLowerCase(compliment) : compliment;
+            RNA_COMPLIMENT[c] = upper == 'A' ? (lower ? 'u' : 'U') : DNA_COMPLIMENT[c];
+            TO_DNA[c] = c == 'U' ? 'T' : c == 'u' ? 't' : c;
+            TO_RNA[c] = c == 'T' ? 'U' : c == 't' ? 'u' : c;
+        }
+    }
+
+    private NucleotideTransforms() {
+    }
+
+    /**
+     * Method to get the complimentary strand.
+     * @param sequenceData the nucleotide sequence.
+     * @param rna true if A's should pair with U's instead of T's.
+     * @return a new StringBuilder holding the complimentary strand.
+     */
+    public static StringBuilder getComplimentary(CharSequence sequenceData, boolean rna) {
+        char[] data = toCharArray(sequenceData);
+        map(data, rna ? RNA_COMPLIMENT : DNA_COMPLIMENT);
+        return wrap(data);
+    }
+
+    /**
+     * Method to get the reverse strand.
+     * @param sequenceData the nucleotide sequence.
+     * @return a new StringBuilder holding the reverse strand.
+     */
+    public static StringBuilder getReverse(CharSequence sequenceData) {
+        char[] data = toCharArray(sequenceData);
+        for (int i = 0, j = data.length - 1; i < j; i++, j--) {
+            char swap = data[i];
+            data[i] = data[j];
+            data[j] = swap;
+        }
+        return wrap(data);
+    }
+
+    /**
+     * Method to get the reverse complimentary strand in one pass, swapping and complimenting from both ends.
+     * @param sequenceData the nucleotide sequence.
+     * @param rna true if A's should pair with U's instead of T's.
+     * @return a new StringBuilder holding the reverse complimentary strand.
+     */
+    public static StringBuilder getComplimentaryReverse(CharSequence sequenceData, boolean rna) {
+        char[] data = toCharArray(sequenceData);
+        char[] table = rna ? RNA_COMPLIMENT : DNA_COMPLIMENT;
+        int i = 0, j = data.length - 1;
+        for (; i < j; i++, j--) {
+            char left = data[i];
+            data[i] = lookup(table, data[j]);
+            data[j] = lookup(table, left);
+        }
+        if (i == j) {
+            data[i] = lookup(table, data[i]);
+        }
+        return wrap(data);
+    }
+
+    /**
+     * Method to get a copy of the sequence in DNA format.
+     * @param sequenceData the nucleotide sequence.
+     * @return a new StringBuilder with U's replaced by T's.
+     */
+    public static StringBuilder getDNA(CharSequence sequenceData) {
+        char[] data = toCharArray(sequenceData);
+        map(data, TO_DNA);
+        return wrap(data);
+    }
+
+    /**
+     * Method to get a copy of the sequence in RNA format.
+     * @param sequenceData the nucleotide sequence.
+     * @return a new StringBuilder with T's replaced by U's.
+     */
+    public static StringBuilder getRNA(CharSequence sequenceData) {
+        char[] data = toCharArray(sequenceData);
+        map(data, TO_RNA);
+        return wrap(data);
+    }
+
+    /**
+     * Method to replace U's with T's in place.
+     * @param sequenceData the nucleotide sequence to change.
+     */
+    public static void toDNA(StringBuilder sequenceData) {
+        mapInPlace(sequenceData, TO_DNA);
+    }
+
+    /**
+     * Method to replace T's with U's in place.
+     * @param sequenceData the nucleotide sequence to change.
+     */
+    public static void toRNA(StringBuilder sequenceData) {
+        mapInPlace(sequenceData, TO_RNA);
+    }
+
+    /**
+     * Method to compliment a single nucleotide.
+     * @param nucleotide the nucleotide.
+     * @param rna true if A should pair with U instead of T.
+     * @return the complimentary nucleotide.
+     */
+    public static char compliment(char nucleotide, boolean rna) {
+        return lookup(rna ? RNA_COMPLIMENT : DNA_COMPLIMENT, nucleotide);
+    }
+
+    /**
+     * Method to convert a single nucleotide between DNA and RNA format.
+     * @param nucleotide the nucleotide.
+     * @param rna true to turn T into U, false to turn U into T.
+     * @return the converted nucleotide.
+     */
+    public static char convert(char nucleotide, boolean rna) {
+        return lookup(rna ? TO_RNA : TO_DNA, nucleotide);
+    }
+
+    /**
+     * Method to copy ASCII nucleotides from one byte array to another as their complimentary strand, for reads that
+     * are never made into characters.
+     * @param source the nucleotides.
+     * @param offset the first nucleotide to copy.
+     * @param length the number of nucleotides.
+     * @param target the array to copy into.
+     * @param targetOffset where the copy starts.
+     * @param rna true if A's should pair with U's instead of T's.
+     * @param reverse true to copy in reverse order, giving the reverse complimentary strand.
+     */
+    public static void copyComplimentary(byte[] source, int offset, int length, byte[] target, int targetOffset, boolean rna, boolean reverse) {
+        copy(source, offset, length, target, targetOffset, rna ? RNA_COMPLIMENT : DNA_COMPLIMENT, reverse);
+    }
+
+    /**
+     * Method to copy ASCII nucleotides from one byte array to another, converted between DNA and RNA format.
+     * @param source the nucleotides.
+     * @param offset the first nucleotide to copy.
+     * @param length the number of nucleotides.
+     * @param target the array to copy into.
+     * @param targetOffset where the copy starts.
+     * @param rna true to turn T's into U's, false to turn U's into T's.
+     */
+    public static void copyConverted(byte[] source, int offset, int length, byte[] target, int targetOffset, boolean rna) {
+        copy(source, offset, length, target, targetOffset, rna ? TO_RNA : TO_DNA, false);
+    }
+
+    /**
+     * Method to copy bytes from one array to another in reverse order, such as a read's nucleotides or quality scores.
+     * @param source the bytes.
+     * @param offset the first byte to copy.
+     * @param length the number of bytes.
+     * @param target the array to copy into.
+     * @param targetOffset where the copy starts.
+     */
+    public static void copyReverse(byte[] source, int offset, int length, byte[] target, int targetOffset) {
+        copy(source, offset, length, target, targetOffset, null, true);
+    }
+
+    private static void copy(byte[] source, int offset, int length, byte[] target, int targetOffset, char[] table, boolean reverse) {
+        for (int i = 0; i < length; i++) {
+            byte b = source[offset + i];
+            if (table != null && b >= 0) {
+                b = (byte) table[b];
+            }
+            target[reverse ? targetOffset + length - 1 - i : targetOffset + i] = b;
+        }
+    }
+
+    private static char lookup(char[] table, char c) {
+        return c < table.length ? table[c] : c;
+    }
+
+    private static void map(char[] data, char[] table) {
+        for (int i = 0; i < data.length; i++) {
+            char c = data[i];
+            if (c < table.length) {
+                data[i] = table[c];
+            }
+        }
+    }
+
+    private static void mapInPlace(StringBuilder sequenceData, char[] table) {
+        for (int i = 0; i < sequenceData.length(); i++) {
+            char c = sequenceData.charAt(i);
+            char mapped = lookup(table, c);
+            if (mapped != c) {
+                sequenceData.setCharAt(i, mapped);
+            }
+        }
+    }
+
+    private static char[] toCharArray(CharSequence sequenceData) {
+        char[] data = new char[sequenceData.length()];
+        if (sequenceData instanceof StringBuilder builder) {
+            builder.getChars(0, data.length, data, 0);
+        } else if (sequenceData instanceof String string) {
+            string.getChars(0, data.length, data, 0);
+        } else {
+            for (int i = 0; i < data.length; i++) {
+                data[i] = sequenceData.charAt(i);
+            }
+        }
+        return data;
+    }
+
+    private static StringBuilder wrap(char[] data) {
+        return new StringBuilder(data.length).append(data);
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * An open reading frame: a start codon followed by codons up to and including a stop codon, in one of six frames.
+ * Coordinates are always on the forward strand, so reverse strand frames can be cut straight out of the sequence.
+ */
+public class OpenReadingFrame implements Comparable<OpenReadingFrame> {
+    //List variables
+    private final int readingFrame;
+    private final int start;
+    private final int end;
+
+    /**
+     * Constructor for an open reading frame.
+     * @param readingFrame the frame, 1 to 3 on the forward strand or -1 to -3 on the reverse compliment.
+     * @param start the index of the first nucleotide on the forward strand.
+     * @param end the index after the last nucleotide on the forward strand, the stop codon included.
+     */
+    public OpenReadingFrame(int readingFrame, int start, int end) {
+        this.readingFrame = readingFrame;
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * Method to get the reading frame.
+     * @return 1 to 3 on the forward strand or -1 to -3 on the reverse compliment.
+     */
+    public int getReadingFrame() {
+        return this.readingFrame;
+    }
+
+    /**
+     * Method to get whether the open reading frame is on the forward strand.
+     * @return true if on the forward strand, false if on the reverse compliment.
+     */
+    public boolean isForwardStrand() {
+        return this.readingFrame > 0;
+    }
+
+    /**
+     * Method to get the first nucleotide on the forward strand.
+     * @return the start index.
+     */
+    public int getStart() {
+        return this.start;
+    }
+
+    /**
+     * Method to get the index after the last nucleotide on the forward strand.
+     * @return the end index.
+     */
+    public int getEnd() {
+        return this.end;
+    }
+
+    /**
+     * Method to get the number of amino acids coded, not counting the stop codon.
+     * @return the protein length.
+     */
+    public int getProteinLength() {
+        return (this.end - this.start) / 3 - 1;
+    }
+
+    @Override
+    public int compareTo(OpenReadingFrame other) {
+        if (this.start != other.start) {
+            return Integer.compare(this.start, other.start);
+        }
+        return Integer.compare(this.readingFrame, other.readingFrame);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Frame %+d: index %d to %d (%d amino acids)", this.readingFrame, this.start, this.end, getProteinLength());
+    }
+}
@@ -0,0 +1,183 @@
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts, timing, nucleotides processed and bytes allocated of one operation, made with {@link Metrics#operation(String)}.
+ * Every counter is a {@link LongAdder} and the durations go to a lock-free {@link LatencyHistogram}, so recording
+ * takes no locks and threads running the same operation don't fight over one cache line. Timing a call looks like:
+ * <pre>
+ *     return SEARCH.time(length(), () -&gt; indexes(pattern));
+ * </pre>
+ * The allocation is read from the calling thread's allocation counter, so work handed to fork/join worker threads is
+ * timed but its allocation is not counted.
+ */
+public class OperationMetrics implements OperationMetricsMXBean {
+    //Allocation counter of the current thread, null if the JVM has none
+    private static final com.sun.management.ThreadMXBean THREADS = threads();
+
+    //List variables
+    private final String name;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAdder nucleotides = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+    private final LatencyHistogram latencies = new LatencyHistogram();
+
+    /**
+     * Constructor for an operation. Use {@link Metrics#operation(String)} so the operation is listed and registered with JMX.
+     * @param name the operation name.
+     */
+    OperationMetrics(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Method to time one call that returns a result. The call is recorded even if it throws.
+     * @param nucleotides the nucleotides the call processes.
+     * @param call the call.
+     * @return what the call returned.
+     * @throws E what the call throws.
+     */
+    public <T, E extends Exception> T time(long nucleotides, Call<T, E> call) throws E {
+        long allocatedStart = allocated();
+        long start = System.nanoTime();
+        try {
+            return call.call();
+        } finally {
+            record(System.nanoTime() - start, nucleotides, Math.max(0, allocated() - allocatedStart));
+        }
+    }
+
+    /**
+     * Method to time one call that returns nothing. The call is recorded even if it throws.
+     * @param nucleotides the nucleotides the call processes.
+     * @param action the call.
+     * @throws E what the call throws.
+     */
+    public <E extends Exception> void time(long nucleotides, Action<E> action) throws E {
+        long allocatedStart = allocated();
+        long start = System.nanoTime();
+        try {
+            action.run();
+        } finally {
+            record(System.nanoTime() - start, nucleotides, Math.max(0, allocated() - allocatedStart));
+        }
+    }
+
+    /**
+     * Method to record one call timed elsewhere.
+     * @param nanos how long the call took.
+     * @param nucleotides the nucleotides it processed.
+     * @param allocatedBytes the bytes it allocated, 0 if unknown.
+     */
+    public void record(long nanos, long nucleotides, long allocatedBytes) {
+        this.count.increment();
+        this.totalNanos.add(nanos);
+        this.nucleotides.add(nucleotides);
+        this.allocatedBytes.add(allocatedBytes);
+        this.latencies.record(nanos);
+    }
+
+    /**
+     * Method to get the name of the operation.
+     * @return the name given to {@link Metrics#operation(String)}.
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    @Override
+    public long getCount() {
+        return this.count.sum();
+    }
+
+    @Override
+    public long getTotalNanos() {
+        return this.totalNanos.sum();
+    }
+
+    @Override
+    public double getMeanMillis() {
+        long calls = getCount();
+        return calls == 0 ? 0 : millis(getTotalNanos()) / calls;
+    }
+
+    @Override
+    public double getMedianMillis() {
+        return millis(this.latencies.getPercentile(50));
+    }
+
+    @Override
+    public double getPercentile99Millis() {
+        return millis(this.latencies.getPercentile(99));
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return millis(this.latencies.getMax());
+    }
+
+    @Override
+    public long getNucleotidesProcessed() {
+        return this.nucleotides.sum();
+    }
+
+    @Override
+    public long getAllocatedBytes() {
+        return this.allocatedBytes.sum();
+    }
+
+    @Override
+    public void reset() {
+        this.count.reset();
+        this.totalNanos.reset();
+        this.nucleotides.reset();
+        this.allocatedBytes.reset();
+        this.latencies.reset();
+    }
+
+    @Override
+    public String toString() {
+        //Throughput in millions of nucleotides per second of time spent in the operation
+        long nanos = getTotalNanos();
+        double throughput = nanos == 0 ? 0 : getNucleotidesProcessed() * 1e3 / nanos;
+        return String.format(Locale.ROOT, "%-28s %,10d %,12.3f %,12.3f %,12.3f %,12.3f %,16d %,10.1f %,16d", this.name, getCount(),
+                getMeanMillis(), getMedianMillis(), getPercentile99Millis(), getMaxMillis(), getNucleotidesProcessed(), throughput,
+                getAllocatedBytes());
+    }
+
+    private static double millis(long nanos) {
+        return (double) nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    private static long allocated() {
+        return THREADS == null ? 0 : THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    private static com.sun.management.ThreadMXBean threads() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean threads && threads.isThreadAllocatedMemorySupported()
+                && threads.isThreadAllocatedMemoryEnabled()) {
+            return threads;
+        }
+        return null;
+    }
+
+    /**
+     * A timed call that returns a result, like {@link java.util.concurrent.Callable} but with its own checked exception.
+     */
+    @FunctionalInterface
+    public interface Call<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    /**
+     * A timed call that returns nothing, like {@link Runnable} but with its own checked exception.
+     */
+    @FunctionalInterface
+    public interface Action<E extends Exception> {
+        void run() throws E;
+    }
+}
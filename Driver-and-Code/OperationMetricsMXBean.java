@@ -0,0 +1,22 @@
+/**
+ * JMX view of the metrics of one operation, registered as "jgsmt:type=Operation,name=&lt;operation&gt;".
+ */
+public interface OperationMetricsMXBean {
+    long getCount();
+
+    long getTotalNanos();
+
+    double getMeanMillis();
+
+    double getMedianMillis();
+
+    double getPercentile99Millis();
+
+    double getMaxMillis();
+
+    long getNucleotidesProcessed();
+
+    long getAllocatedBytes();
+
+    void reset();
+}
@@ -0,0 +1,223 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Finds open reading frames in all six frames at once. Every frame is split into chunks of codons that run as
+ * fork/join tasks, and the chunk results are joined so open reading frames crossing chunk borders are still found.
+ * Reverse frames read codons straight off the forward strand, so the reverse compliment is never built.
+ */
+public class OrfFinder {
+    //Codons handled by a single task before it stops splitting
+    private static final int CHUNK_CODONS = 1 << 16;
+
+    //List variables
+    private final GeneticCode geneticCode;
+    private final int minimumLength;
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructor using the standard genetic code and the common pool.
+     * @param minimumLength the fewest amino acids an open reading frame needs, not counting the stop codon.
+     */
+    public OrfFinder(int minimumLength) {
+        this(GeneticCode.STANDARD, minimumLength, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructor for an open reading frame search.
+     * @param geneticCode the translation table, which decides the start and stop codons.
+     * @param minimumLength the fewest amino acids an open reading frame needs, not counting the stop codon.
+     * @param pool the pool the frame tasks run in.
+     */
+    public OrfFinder(GeneticCode geneticCode, int minimumLength, ForkJoinPool pool) {
+        this.geneticCode = geneticCode;
+        this.minimumLength = Math.max(0, minimumLength);
+        this.pool = pool;
+    }
+
+    /**
+     * Method to find the open reading frames in all six frames.
+     * @param sequenceData the forward strand.
+     * @return the open reading frames, sorted by their start on the forward strand.
+     */
+    public List<OpenReadingFrame> find(CharSequence sequenceData) {
+        //One task per frame, each splitting further by itself
+        List<FrameTask> tasks = new ArrayList<>();
+        for (int frame = 1; frame <= 3; frame++) {
+            tasks.add(new FrameTask(sequenceData, frame, 0, codonCount(sequenceData.length(), frame)));
+            tasks.add(new FrameTask(sequenceData, -frame, 0, codonCount(sequenceData.length(), frame)));
+        }
+        List<OpenReadingFrame> output = new ArrayList<>();
+        for (FrameTask task : this.pool.invoke(new FrameGroup(tasks))) {
+            output.addAll(task.getRawResult().finish(task));
+        }
+        Collections.sort(output);
+        return output;
+    }
+
+    private static int codonCount(int length, int frame) {
+        return Math.max(0, (length - (Math.abs(frame) - 1)) / 3);
+    }
+
+    private static int complementCode(char nucleotide) {
+        int code = PackedSequence.codeOf(nucleotide);
+        return code < 0 ? -1 : 3 - code;
+    }
+
+    /**
+     * Runs the six frame tasks together.
+     */
+    private static class FrameGroup extends RecursiveTask<List<FrameTask>> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<FrameTask> tasks;
+
+        FrameGroup(List<FrameTask> tasks) {
+            this.tasks = tasks;
+        }
+
+        @Override
+        protected List<FrameTask> compute() {
+            invokeAll(this.tasks);
+            return this.tasks;
+        }
+    }
+
+    /**
+     * Scans a range of codons in one frame, splitting in half until the range is a single chunk.
+     */
+    private class FrameTask extends RecursiveTask<Summary> {
+        private static final long serialVersionUID = 1L;
+
+        private final CharSequence sequenceData;
+        private final int frame;
+        private final int firstCodon;
+        private final int lastCodon;
+
+        FrameTask(CharSequence sequenceData, int frame, int firstCodon, int lastCodon) {
+            this.sequenceData = sequenceData;
+            this.frame = frame;
+            this.firstCodon = firstCodon;
+            this.lastCodon = lastCodon;
+        }
+
+        @Override
+        protected Summary compute() {
+            if (this.lastCodon - this.firstCodon > CHUNK_CODONS) {
+                int middle = (this.firstCodon + this.lastCodon) >>> 1;
+                FrameTask left = new FrameTask(this.sequenceData, this.frame, this.firstCodon, middle);
+                FrameTask right = new FrameTask(this.sequenceData, this.frame, middle, this.lastCodon);
+                right.fork();
+                Summary leftSummary = left.compute();
+                return leftSummary.join(right.join(), this);
+            }
+
+            //Scans the chunk, remembering the earliest start codon since the last stop codon
+            Summary summary = new Summary();
+            int start = -1;
+            for (int codon = this.firstCodon; codon < this.lastCodon; codon++) {
+                int index = codonIndex(codon);
+                if (OrfFinder.this.geneticCode.isStop(index)) {
+                    if (summary.firstStop == -1) {
+                        summary.firstStop = codon;
+                        summary.headStart = start;
+                    } else if (start != -1) {
+                        summary.add(start, codon, this);
+                    }
+                    start = -1;
+                } else if (start == -1 && OrfFinder.this.geneticCode.isStart(index)) {
+                    start = codon;
+                }
+            }
+            if (summary.firstStop == -1) {
+                summary.headStart = start;
+            } else {
+                summary.tailStart = start;
+            }
+            return summary;
+        }
+
+        private int codonIndex(int codon) {
+            int offset = Math.abs(this.frame) - 1 + 3 * codon;
+            if (this.frame > 0) {
+                return GeneticCode.codonIndex(this.sequenceData, offset);
+            }
+
+            //Reads the codon backwards off the forward strand and compliments it
+            int last = this.sequenceData.length() - 1 - offset;
+            int first = complementCode(this.sequenceData.charAt(last));
+            int second = complementCode(this.sequenceData.charAt(last - 1));
+            int third = complementCode(this.sequenceData.charAt(last - 2));
+            if ((first | second | third) < 0) {
+                return -1;
+            }
+            return first << 4 | second << 2 | third;
+        }
+
+        private OpenReadingFrame toOpenReadingFrame(int startCodon, int stopCodon) {
+            //Frame coordinates run from the first nucleotide of the start codon to the end of the stop codon
+            int start = Math.abs(this.frame) - 1 + 3 * startCodon;
+            int end = Math.abs(this.frame) - 1 + 3 * stopCodon + 3;
+            if (this.frame > 0) {
+                return new OpenReadingFrame(this.frame, start, end);
+            }
+            return new OpenReadingFrame(this.frame, this.sequenceData.length() - end, this.sequenceData.length() - start);
+        }
+    }
+
+    /**
+     * Result of scanning a range of codons. Open reading frames that could continue past either edge are kept
+     * as the earliest start before the first stop and the earliest start after the last stop.
+     */
+    private class Summary {
+        private int firstStop = -1;
+        private int headStart = -1;
+        private int tailStart = -1;
+        private final List<OpenReadingFrame> found = new ArrayList<>();
+
+        void add(int startCodon, int stopCodon, FrameTask task) {
+            if (stopCodon - startCodon >= OrfFinder.this.minimumLength) {
+                this.found.add(task.toOpenReadingFrame(startCodon, stopCodon));
+            }
+        }
+
+        Summary join(Summary right, FrameTask task) {
+            Summary output = new Summary();
+            if (this.firstStop == -1) {
+                //Nothing in this half closes, so its earliest start carries on into the right half
+                output.firstStop = right.firstStop;
+                output.headStart = this.headStart != -1 ? this.headStart : right.headStart;
+                output.tailStart = right.tailStart;
+                output.found.addAll(right.found);
+            } else if (right.firstStop == -1) {
+                output.firstStop = this.firstStop;
+                output.headStart = this.headStart;
+                output.tailStart = this.tailStart != -1 ? this.tailStart : right.headStart;
+                output.found.addAll(this.found);
+            } else {
+                //The open start of this half is closed by the first stop of the right half
+                output.firstStop = this.firstStop;
+                output.headStart = this.headStart;
+                output.tailStart = right.tailStart;
+                output.found.addAll(this.found);
+                int start = this.tailStart != -1 ? this.tailStart : right.headStart;
+                if (start != -1) {
+                    output.add(start, right.firstStop, task);
+                }
+                output.found.addAll(right.found);
+            }
+            return output;
+        }
+
+        List<OpenReadingFrame> finish(FrameTask task) {
+            //A start before the first stop of the whole frame is closed by that stop
+            if (this.firstStop != -1 && this.headStart != -1) {
+                add(this.headStart, this.firstStop, task);
+            }
+            return this.found;
+        }
+    }
+}
@@ -0,0 +1,543 @@
+import java.util.Arrays;
+
+/**
+ * Compact nucleotide storage that keeps each A, C, G and T/U in 2 bits. Any other symbol (N and the
+ * other ambiguity codes) is kept in a side mask of runs so that long N blocks cost almost nothing.
+ * Whether T is printed as T or U is only a flag, so DNA/RNA switches never touch the bases.
+ * Packed sequences are immutable, transforms return new packed sequences.
+ */
+public class PackedSequence implements CharSequence {
+    //Codes used for the 2-bit bases
+    public static final int A = 0, C = 1, G = 2, T = 3;
+
+    //Bases are stored 32 to a word, lowest bits first
+    private static final int BASES_PER_WORD = 32;
+    private static final long EVEN_BITS = 0x5555555555555555L;
+
+    //Lookup tables between characters and codes, -1 marks a non-ACGTU character
+    private static final byte[] CODES = new byte[128];
+    private static final char[] DNA_BASES = {'A', 'C', 'G', 'T'};
+    private static final char[] RNA_BASES = {'A', 'C', 'G', 'U'};
+
+    static {
+        Arrays.fill(CODES, (byte) -1);
+        CODES['A'] = A;
+        CODES['C'] = C;
+        CODES['G'] = G;
+        CODES['T'] = T;
+        CODES['U'] = T;
+    }
+
+    //List variables
+    private final long[] words;
+    private final int length;
+    private final boolean rna;
+
+    //Runs of non-ACGTU symbols, sorted by start
+    private final int[] maskStarts;
+    private final int[] maskLengths;
+    private final char[] maskSymbols;
+    private final int maskCount;
+
+    private PackedSequence(long[] words, int length, boolean rna, int[] maskStarts, int[] maskLengths, char[] maskSymbols, int maskCount) {
+        this.words = words;
+        this.length = length;
+        this.rna = rna;
+        this.maskStarts = maskStarts;
+        this.maskLengths = maskLengths;
+        this.maskSymbols = maskSymbols;
+        this.maskCount = maskCount;
+    }
+
+    /**
+     * Method to pack a nucleotide sequence.
+     * @param sequenceData the nucleotide sequence.
+     * @param rna true if T's should be read back as U's.
+     * @return the packed sequence.
+     */
+    public static PackedSequence pack(CharSequence sequenceData, boolean rna) {
+        Builder builder = new Builder(sequenceData.length());
+        builder.append(sequenceData);
+        return builder.build(rna);
+    }
+
+    /**
+     * Method to get the 2-bit code of a nucleotide.
+     * @param nucleotide the nucleotide character.
+     * @return 0 to 3 for A, C, G and T/U, -1 for any other character.
+     */
+    public static int codeOf(char nucleotide) {
+        return nucleotide < 128 ? CODES[nucleotide] : -1;
+    }
+
+    /**
+     * Method to get the complimentary base of an IUPAC ambiguity code.
+     * @param symbol the ambiguity code.
+     * @return the complimentary ambiguity code, or the symbol itself if it has none.
+     */
+    public static char complimentaryAmbiguity(char symbol) {
+        return switch (symbol) {
+            case 'R' -> 'Y';
+            case 'Y' -> 'R';
+            case 'K' -> 'M';
+            case 'M' -> 'K';
+            case 'B' -> 'V';
+            case 'V' -> 'B';
+            case 'D' -> 'H';
+            case 'H' -> 'D';
+            default -> symbol;
+        };
+    }
+
+    /**
+     * Method to get the number of nucleotides.
+     * @return the number of nucleotides.
+     */
+    @Override
+    public int length() {
+        return this.length;
+    }
+
+    /**
+     * Method to get the nucleotide at an index. T's are returned as U's for RNA.
+     * @param index the index of the nucleotide.
+     * @return the nucleotide.
+     */
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= this.length) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + this.length);
+        }
+        int run = findRun(index);
+        if (run >= 0) {
+            return this.maskSymbols[run];
+        }
+        return this.rna ? RNA_BASES[code(index)] : DNA_BASES[code(index)];
+    }
+
+    /**
+     * Method to get the 2-bit code at an index without checking the mask.
+     * @param index the index of the nucleotide.
+     * @return the 2-bit code.
+     */
+    public int code(int index) {
+        return (int) (this.words[index >>> 5] >>> ((index & 31) << 1)) & 3;
+    }
+
+    /**
+     * Method to check whether an index holds a non-ACGTU symbol.
+     * @param index the index of the nucleotide.
+     * @return true if the index is masked.
+     */
+    public boolean isMasked(int index) {
+        return findRun(index) >= 0;
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        StringBuilder output = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            output.append(charAt(i));
+        }
+        return output;
+    }
+
+    /**
+     * Method to check whether T's are read back as U's.
+     * @return true if the sequence reads as RNA.
+     */
+    public boolean isRNA() {
+        return this.rna;
+    }
+
+    /**
+     * Method to get the same bases read as DNA or RNA. The packed words are shared, not copied.
+     * @param rna true to read T's as U's.
+     * @return the packed sequence with the new flag.
+     */
+    public PackedSequence withRNA(boolean rna) {
+        if (rna == this.rna) {
+            return this;
+        }
+        return new PackedSequence(this.words, this.length, rna, this.maskStarts, this.maskLengths, this.maskSymbols, this.maskCount);
+    }
+
+    /**
+     * Method to get the complimentary strand. Bases are flipped a whole word at a time.
+     * @return the complimentary strand.
+     */
+    public PackedSequence getComplimentary() {
+        long[] output = new long[this.words.length];
+        for (int i = 0; i < output.length; i++) {
+            //A (00) <-> T (11) and C (01) <-> G (10) is a bitwise not
+            output[i] = ~this.words[i];
+        }
+        clearTail(output, this.length);
+        clearMasked(output, this.maskStarts, this.maskLengths, this.maskCount);
+
+        char[] symbols = new char[this.maskCount];
+        for (int i = 0; i < this.maskCount; i++) {
+            symbols[i] = complimentaryAmbiguity(this.maskSymbols[i]);
+        }
+        return new PackedSequence(output, this.length, this.rna, Arrays.copyOf(this.maskStarts, this.maskCount), Arrays.copyOf(this.maskLengths, this.maskCount), symbols, this.maskCount);
+    }
+
+    /**
+     * Method to get the reverse strand. Whole words are reversed and realigned.
+     * @return the reverse strand.
+     */
+    public PackedSequence getReverse() {
+        return reverse(false);
+    }
+
+    /**
+     * Method to get the reverse complimentary strand in a single pass over the words.
+     * @return the reverse complimentary strand.
+     */
+    public PackedSequence getComplimentaryReverse() {
+        return reverse(true);
+    }
+
+    /**
+     * Method to count the nucleotides with bit counts over whole words.
+     * @return the counts of A, C, G and T/U, indexed by their 2-bit codes.
+     */
+    public long[] countBases() {
+        long[] counts = new long[4];
+        int fullWords = this.length / BASES_PER_WORD;
+        for (int i = 0; i < fullWords; i++) {
+            countWord(this.words[i], EVEN_BITS, counts);
+        }
+        int tail = this.length % BASES_PER_WORD;
+        if (tail > 0) {
+            countWord(this.words[fullWords], EVEN_BITS & ((1L << (tail << 1)) - 1), counts);
+        }
+
+        //Masked positions are stored as A's underneath, so they are taken back out
+        for (int i = 0; i < this.maskCount; i++) {
+            counts[A] -= this.maskLengths[i];
+        }
+        return counts;
+    }
+
+    /**
+     * Method to count the masked (non-ACGTU) symbols.
+     * @return the counts indexed by character.
+     */
+    public long[] countMaskedSymbols() {
+        long[] counts = new long[Character.MAX_VALUE + 1];
+        for (int i = 0; i < this.maskCount; i++) {
+            counts[this.maskSymbols[i]] += this.maskLengths[i];
+        }
+        return counts;
+    }
+
+    /**
+     * Method to get the number of masked runs. Each run is a block of the same non-ACGT symbol.
+     * @return the number of runs.
+     */
+    public int getMaskRunCount() {
+        return this.maskCount;
+    }
+
+    /**
+     * Method to get where a masked run starts.
+     * @param run the run, from 0 to {@link #getMaskRunCount()} - 1, in order along the sequence.
+     * @return the index of the first symbol of the run.
+     */
+    public int getMaskRunStart(int run) {
+        return this.maskStarts[run];
+    }
+
+    /**
+     * Method to get the length of a masked run.
+     * @param run the run.
+     * @return the number of symbols in the run.
+     */
+    public int getMaskRunLength(int run) {
+        return this.maskLengths[run];
+    }
+
+    /**
+     * Method to get the symbol of a masked run.
+     * @param run the run.
+     * @return the symbol repeated through the run.
+     */
+    public char getMaskRunSymbol(int run) {
+        return this.maskSymbols[run];
+    }
+
+    /**
+     * Method to make a packed sequence straight from its words and masked runs, used by {@link SequenceArchive}.
+     * The arrays are kept, not copied, and masked positions are set back to A's (0 bits) underneath.
+     * @param words the bases, 32 to a word, lowest bits first.
+     * @param length the number of nucleotides.
+     * @param rna true if T's should be read back as U's.
+     * @param maskStarts the starts of the masked runs, in order.
+     * @param maskLengths the lengths of the masked runs.
+     * @param maskSymbols the symbols of the masked runs.
+     * @return the packed sequence.
+     */
+    static PackedSequence of(long[] words, int length, boolean rna, int[] maskStarts, int[] maskLengths, char[] maskSymbols) {
+        if (words.length != (length + BASES_PER_WORD - 1) / BASES_PER_WORD) {
+            throw new IllegalArgumentException(words.length + " words can't hold " + length + " nucleotides");
+        }
+        clearTail(words, length);
+        clearMasked(words, maskStarts, maskLengths, maskStarts.length);
+        return new PackedSequence(words, length, rna, maskStarts, maskLengths, maskSymbols, maskStarts.length);
+    }
+
+    /**
+     * Method to get the packed words without copying them. They must not be changed.
+     * @return the words, 32 bases to a word, lowest bits first.
+     */
+    long[] getWords() {
+        return this.words;
+    }
+
+    /**
+     * Method to get the index where a subsequence appears.
+     * @param subsequence the subsequence to search for.
+     * @param fromIndex the index to start searching from.
+     * @return the index the subsequence appears. -1 if not found.
+     */
+    public int indexOf(CharSequence subsequence, int fromIndex) {
+        int last = this.length - subsequence.length();
+        for (int i = Math.max(fromIndex, 0); i <= last; i++) {
+            int j = 0;
+            while (j < subsequence.length() && charAt(i + j) == subsequence.charAt(j)) {
+                j++;
+            }
+            if (j == subsequence.length()) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Method to unpack the sequence into characters.
+     * @return a new StringBuilder holding the sequence.
+     */
+    public StringBuilder toStringBuilder() {
+        char[] bases = this.rna ? RNA_BASES : DNA_BASES;
+        char[] output = new char[this.length];
+        for (int i = 0; i < this.length; i++) {
+            output[i] = bases[code(i)];
+        }
+        for (int i = 0; i < this.maskCount; i++) {
+            Arrays.fill(output, this.maskStarts[i], this.maskStarts[i] + this.maskLengths[i], this.maskSymbols[i]);
+        }
+        return new StringBuilder(this.length).append(output);
+    }
+
+    @Override
+    public String toString() {
+        return toStringBuilder().toString();
+    }
+
+    /**
+     * Method to get the approximate heap size of the packed data.
+     * @return the size in bytes.
+     */
+    public long getMemoryFootprint() {
+        return 8L * this.words.length + 10L * this.maskStarts.length;
+    }
+
+    private PackedSequence reverse(boolean complimentary) {
+        int wordCount = this.words.length;
+        long[] output = new long[wordCount];
+        if (wordCount > 0) {
+            //Reversing every word and the word order puts the padding at the front
+            int pad = wordCount * BASES_PER_WORD - this.length;
+            long[] reversed = new long[wordCount];
+            for (int i = 0; i < wordCount; i++) {
+                long word = reverseBases(this.words[wordCount - 1 - i]);
+                reversed[i] = complimentary ? ~word : word;
+            }
+
+            //Shifts the padding back out of the front
+            int shift = pad << 1;
+            for (int i = 0; i < wordCount; i++) {
+                if (shift == 0) {
+                    output[i] = reversed[i];
+                } else {
+                    long next = i + 1 < wordCount ? reversed[i + 1] : 0;
+                    output[i] = (reversed[i] >>> shift) | (next << (64 - shift));
+                }
+            }
+            clearTail(output, this.length);
+        }
+
+        //Mirrors the masked runs
+        int[] starts = new int[this.maskCount];
+        int[] lengths = new int[this.maskCount];
+        char[] symbols = new char[this.maskCount];
+        for (int i = 0; i < this.maskCount; i++) {
+            int run = this.maskCount - 1 - i;
+            starts[i] = this.length - this.maskStarts[run] - this.maskLengths[run];
+            lengths[i] = this.maskLengths[run];
+            symbols[i] = complimentary ? complimentaryAmbiguity(this.maskSymbols[run]) : this.maskSymbols[run];
+        }
+        if (complimentary) {
+            clearMasked(output, starts, lengths, this.maskCount);
+        }
+        return new PackedSequence(output, this.length, this.rna, starts, lengths, symbols, this.maskCount);
+    }
+
+    private int findRun(int index) {
+        //Binary search for the last run starting at or before the index
+        int low = 0, high = this.maskCount - 1, found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (this.maskStarts[mid] <= index) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (found >= 0 && index < this.maskStarts[found] + this.maskLengths[found]) {
+            return found;
+        }
+        return -1;
+    }
+
+    private static long reverseBases(long word) {
+        //Reverses the bits and then swaps each pair back into order
+        long reversed = Long.reverse(word);
+        return ((reversed >>> 1) & EVEN_BITS) | ((reversed & EVEN_BITS) << 1);
+    }
+
+    private static void countWord(long word, long valid, long[] counts) {
+        long low = word & valid;
+        long high = (word >>> 1) & valid;
+        counts[T] += Long.bitCount(low & high);
+        counts[G] += Long.bitCount(high & ~low);
+        counts[C] += Long.bitCount(low & ~high);
+        counts[A] += Long.bitCount(valid & ~low & ~high);
+    }
+
+    private static void clearTail(long[] words, int length) {
+        int tail = length % BASES_PER_WORD;
+        if (tail > 0) {
+            words[words.length - 1] &= (1L << (tail << 1)) - 1;
+        }
+    }
+
+    private static void clearMasked(long[] words, int[] starts, int[] lengths, int count) {
+        //Masked positions are kept as A's (0 bits) underneath, which countBases() relies on, so flipped bits are
+        //cleared a word at a time
+        for (int i = 0; i < count; i++) {
+            int end = starts[i] + lengths[i];
+            for (int index = starts[i]; index < end; ) {
+                int offset = index % BASES_PER_WORD;
+                int bases = Math.min(end - index, BASES_PER_WORD - offset);
+                long bits = bases == BASES_PER_WORD ? -1L : ((1L << (bases << 1)) - 1) << (offset << 1);
+                words[index / BASES_PER_WORD] &= ~bits;
+                index += bases;
+            }
+        }
+    }
+
+    /**
+     * Builder that packs nucleotides as they are appended, so a sequence never has to be held as characters.
+     */
+    public static class Builder {
+        //List variables
+        private long[] words;
+        private int length;
+        private int[] maskStarts = new int[4];
+        private int[] maskLengths = new int[4];
+        private char[] maskSymbols = new char[4];
+        private int maskCount;
+
+        /**
+         * Default constructor. Creates an empty builder.
+         */
+        public Builder() {
+            this(1024);
+        }
+
+        /**
+         * Constructor with an expected size.
+         * @param capacity the expected number of nucleotides.
+         */
+        public Builder(int capacity) {
+            this.words = new long[Math.max(1, (capacity + BASES_PER_WORD - 1) / BASES_PER_WORD)];
+        }
+
+        /**
+         * Method to add a nucleotide to the end of the sequence.
+         * @param nucleotide the nucleotide.
+         * @return this builder.
+         */
+        public Builder append(char nucleotide) {
+            if (this.length == Integer.MAX_VALUE) {
+                throw new IllegalStateException("Packed sequences are limited to " + Integer.MAX_VALUE + " nucleotides");
+            }
+            int word = this.length >>> 5;
+            if (word == this.words.length) {
+                this.words = Arrays.copyOf(this.words, (int) Math.min(Integer.MAX_VALUE - 8, this.words.length * 2L));
+            }
+            int code = codeOf(nucleotide);
+            if (code > 0) {
+                this.words[word] |= (long) code << ((this.length & 31) << 1);
+            } else if (code < 0) {
+                addMasked(nucleotide);
+            }
+            this.length++;
+            return this;
+        }
+
+        /**
+         * Method to add nucleotides to the end of the sequence.
+         * @param sequenceData the nucleotides.
+         * @return this builder.
+         */
+        public Builder append(CharSequence sequenceData) {
+            for (int i = 0; i < sequenceData.length(); i++) {
+                append(sequenceData.charAt(i));
+            }
+            return this;
+        }
+
+        /**
+         * Method to get the number of nucleotides added so far.
+         * @return the number of nucleotides.
+         */
+        public int length() {
+            return this.length;
+        }
+
+        /**
+         * Method to finish the packed sequence.
+         * @param rna true if T's should be read back as U's.
+         * @return the packed sequence.
+         */
+        public PackedSequence build(boolean rna) {
+            int wordCount = (this.length + BASES_PER_WORD - 1) / BASES_PER_WORD;
+            return new PackedSequence(Arrays.copyOf(this.words, wordCount), this.length, rna,
+                    Arrays.copyOf(this.maskStarts, this.maskCount), Arrays.copyOf(this.maskLengths, this.maskCount),
+                    Arrays.copyOf(this.maskSymbols, this.maskCount), this.maskCount);
+        }
+
+        private void addMasked(char symbol) {
+            //Extends the previous run if it is the same symbol and touches this one
+            int last = this.maskCount - 1;
+            if (last >= 0 && this.maskSymbols[last] == symbol && this.maskStarts[last] + this.maskLengths[last] == this.length) {
+                this.maskLengths[last]++;
+                return;
+            }
+            if (this.maskCount == this.maskStarts.length) {
+                this.maskStarts = Arrays.copyOf(this.maskStarts, this.maskCount * 2);
+                this.maskLengths = Arrays.copyOf(this.maskLengths, this.maskCount * 2);
+                this.maskSymbols = Arrays.copyOf(this.maskSymbols, this.maskCount * 2);
+            }
+            this.maskStarts[this.maskCount] = this.length;
+            this.maskLengths[this.maskCount] = 1;
+            this.maskSymbols[this.maskCount] = symbol;
+            this.maskCount++;
+        }
+    }
+}
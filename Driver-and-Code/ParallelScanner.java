@@ -0,0 +1,222 @@
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+
+/**
+ * Runs whole-sequence scans (symbol counting, validation, translation, amino acid counting and hashing) as fork/join tasks.
+ * The sequence is split in half until each piece is one cache-sized chunk, every chunk is scanned on its own and the
+ * chunk results are merged. Chunks for codon work start on a codon of the reading frame, so no codon is split.
+ */
+public class ParallelScanner {
+    //Characters scanned by a single task before it stops splitting, a multiple of 3 so codons stay whole
+    private static final int CHUNK_LENGTH = 3 << 15;
+
+    //First byte of chunk and merged digests, so a chunk can't pass for two merged ones
+    private static final byte[] LEAF = {0};
+    private static final byte[] NODE = {1};
+
+    //Index of the count for characters outside of ASCII in countSymbols
+    public static final int OTHER = 128;
+
+    //List variables
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructor using the common pool.
+     */
+    public ParallelScanner() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructor for a scanner.
+     * @param pool the pool the chunk tasks run in.
+     */
+    public ParallelScanner(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Method to count every character in a sequence.
+     * @param sequenceData the sequence.
+     * @return the counts, indexed by character for ASCII and at {@link #OTHER} for everything else.
+     */
+    public long[] countSymbols(CharSequence sequenceData) {
+        return run(new ChunkTask<>(0, sequenceData.length(), 1, (from, to) -> {
+            long[] counts = new long[OTHER + 1];
+            for (int i = from; i < to; i++) {
+                char symbol = sequenceData.charAt(i);
+                counts[symbol < OTHER ? symbol : OTHER]++;
+            }
+            return counts;
+        }, (left, right) -> {
+            for (int i = 0; i < left.length; i++) {
+                left[i] += right[i];
+            }
+            return left;
+        }), sequenceData.length());
+    }
+
+    /**
+     * Method to check a sequence for characters that are not nucleotides.
+     * @param sequenceData the sequence.
+     * @param validator decides which characters are accepted.
+     * @return the report, with the chunk reports merged in order.
+     */
+    public ValidationReport validate(CharSequence sequenceData, SequenceValidator validator) {
+        return run(new ChunkTask<>(0, sequenceData.length(), 1, (from, to) -> validator.validate(sequenceData, from, to),
+                ValidationReport::merge), sequenceData.length());
+    }
+
+    /**
+     * Method to count the amino acids a sequence codes for.
+     * @param geneticCode the translation table to use.
+     * @param sequenceData the nucleotide sequence.
+     * @param start the index of the first nucleotide of the first codon.
+     * @return the counts, indexed the same as {@link GeneticCode#AMINO_ACIDS}.
+     */
+    public int[] countAminoAcids(GeneticCode geneticCode, CharSequence sequenceData, int start) {
+        int end = codonEnd(sequenceData.length(), start);
+        return run(new ChunkTask<>(start, end, 3, (from, to) -> {
+            int[] counts = new int[GeneticCode.AMINO_ACIDS.length()];
+            geneticCode.countAminoAcids(sequenceData, from, to, counts);
+            return counts;
+        }, (left, right) -> {
+            for (int i = 0; i < left.length; i++) {
+                left[i] += right[i];
+            }
+            return left;
+        }), end - start);
+    }
+
+    /**
+     * Method to translate a sequence into a protein.
+     * @param geneticCode the translation table to use.
+     * @param sequenceData the nucleotide sequence.
+     * @param start the index of the first nucleotide of the first codon.
+     * @return the protein, one letter per codon. Incomplete codons at the end are ignored.
+     */
+    public String translate(GeneticCode geneticCode, CharSequence sequenceData, int start) {
+        //Each chunk writes its own part of the protein, so there is nothing to merge
+        int end = codonEnd(sequenceData.length(), start);
+        char[] output = new char[(end - start) / 3];
+        run(new ChunkTask<Void>(start, end, 3, (from, to) -> {
+            for (int i = from; i < to; i += 3) {
+                output[(i - start) / 3] = geneticCode.getAminoAcid(GeneticCode.codonIndex(sequenceData, i));
+            }
+            return null;
+        }, (left, right) -> null), end - start);
+        return new String(output);
+    }
+
+    /**
+     * Method to work out a SHA-256 digest of a sequence on every core. Each chunk is digested on its own and the
+     * digests of two halves are digested together, so two different sequences can't be made to give the same value. The chunks only depend on the length, so the digest of a sequence is
+     * always the same.
+     * @param sequenceData the sequence.
+     * @return the 32-byte digest.
+     */
+    public byte[] digest(CharSequence sequenceData) {
+        byte[] root = run(new ChunkTask<>(0, sequenceData.length(), 1, (from, to) -> {
+            //Characters outside of ASCII are written after a 0xFF marker, so no two sequences give the same bytes
+            MessageDigest digest = sha256();
+            digest.update(LEAF);
+            byte[] buffer = new byte[Math.min(to - from, 4096) * 3];
+            int size = 0;
+            for (int i = from; i < to; i++) {
+                char symbol = sequenceData.charAt(i);
+                if (symbol < 0x80) {
+                    buffer[size++] = (byte) symbol;
+                } else {
+                    buffer[size++] = (byte) 0xFF;
+                    buffer[size++] = (byte) (symbol >>> 8);
+                    buffer[size++] = (byte) symbol;
+                }
+                if (size > buffer.length - 3) {
+                    digest.update(buffer, 0, size);
+                    size = 0;
+                }
+            }
+            digest.update(buffer, 0, size);
+            return digest.digest();
+        }, (left, right) -> {
+            MessageDigest digest = sha256();
+            digest.update(NODE);
+            digest.update(left);
+            return digest.digest(right);
+        }), sequenceData.length());
+
+        //The length picks the shape of the tree, so it goes into the final digest
+        MessageDigest digest = sha256();
+        digest.update(root);
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            digest.update((byte) (sequenceData.length() >>> shift));
+        }
+        return digest.digest();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            //Every Java platform has to provide SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static int codonEnd(int length, int start) {
+        //End of the last whole codon
+        return start + Math.max(0, (length - start) / 3) * 3;
+    }
+
+    private <T> T run(ChunkTask<T> task, int length) {
+        //Short sequences are scanned on the calling thread
+        if (length <= CHUNK_LENGTH) {
+            return task.compute();
+        }
+        return this.pool.invoke(task);
+    }
+
+    /**
+     * Scans one chunk of a sequence.
+     */
+    private interface Scan<T> {
+        T scan(int from, int to);
+    }
+
+    /**
+     * Scans a range of a sequence, splitting in half on a multiple of the alignment until the range is a single chunk.
+     */
+    private static class ChunkTask<T> extends RecursiveTask<T> {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final int alignment;
+        private final Scan<T> scan;
+        private final BinaryOperator<T> merge;
+
+        ChunkTask(int from, int to, int alignment, Scan<T> scan, BinaryOperator<T> merge) {
+            this.from = from;
+            this.to = to;
+            this.alignment = alignment;
+            this.scan = scan;
+            this.merge = merge;
+        }
+
+        @Override
+        protected T compute() {
+            if (this.to - this.from > CHUNK_LENGTH) {
+                int middle = this.from + (this.to - this.from) / (2 * this.alignment) * this.alignment;
+                ChunkTask<T> left = new ChunkTask<>(this.from, middle, this.alignment, this.scan, this.merge);
+                ChunkTask<T> right = new ChunkTask<>(middle, this.to, this.alignment, this.scan, this.merge);
+                right.fork();
+                T leftResult = left.compute();
+                return this.merge.apply(leftResult, right.join());
+            }
+            return this.scan.scan(this.from, this.to);
+        }
+    }
+}
@@ -0,0 +1,296 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A batch of sequencing reads, such as the records of a FASTQ file. Rather than one object per read, the headers,
+ * bases and quality scores of every read are stored end to end in flat byte arrays with the offsets of each read
+ * beside them. A batch is filled by {@link FastqReader#readBatch(ReadBatch)} and then cleared and filled again, so
+ * once its arrays have grown to fit a typical batch, reading allocates nothing.
+ */
+public class ReadBatch {
+    //Fields a reader appends to
+    static final int HEADER = 0;
+    static final int BASES = 1;
+    static final int QUALITIES = 2;
+
+    //List variables
+    private final int capacity;
+    private byte[] headers = new byte[1 << 12];
+    private byte[] bases = new byte[1 << 16];
+    private byte[] qualities = new byte[1 << 16];
+    private final int[] headerOffsets;
+    private final int[] baseOffsets;
+    private int headerLength;
+    private int basesLength;
+    private int qualitiesLength;
+    private int size;
+
+    /**
+     * Constructor for an empty batch.
+     * @param capacity the most reads the batch holds.
+     */
+    public ReadBatch(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("A batch needs room for at least one read");
+        }
+        this.capacity = capacity;
+        this.headerOffsets = new int[capacity + 1];
+        this.baseOffsets = new int[capacity + 1];
+    }
+
+    /**
+     * Method to get the number of reads in the batch.
+     * @return the number of reads.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Method to get the most reads the batch holds.
+     * @return the capacity.
+     */
+    public int getCapacity() {
+        return this.capacity;
+    }
+
+    /**
+     * Method to check whether the batch can take another read.
+     * @return true if the batch is full.
+     */
+    public boolean isFull() {
+        return this.size == this.capacity;
+    }
+
+    /**
+     * Method to empty the batch, keeping its arrays for the next reads.
+     */
+    public void clear() {
+        this.size = 0;
+        this.headerLength = 0;
+        this.basesLength = 0;
+        this.qualitiesLength = 0;
+    }
+
+    /**
+     * Method to get the bases of every read, end to end. A read's bases start at {@link #getOffset(int)}.
+     * @return the array, which is reused when the batch is filled again.
+     */
+    public byte[] getBases() {
+        return this.bases;
+    }
+
+    /**
+     * Method to get the quality scores of every read, as the Phred+33 characters of the FASTQ file. Each read's
+     * scores are at the same offsets as its bases.
+     * @return the array, which is reused when the batch is filled again.
+     */
+    public byte[] getQualities() {
+        return this.qualities;
+    }
+
+    /**
+     * Method to get where a read's bases and quality scores start.
+     * @param read the read's index in the batch.
+     * @return the offset into {@link #getBases()} and {@link #getQualities()}.
+     */
+    public int getOffset(int read) {
+        return this.baseOffsets[read];
+    }
+
+    /**
+     * Method to get the length of a read.
+     * @param read the read's index in the batch.
+     * @return the number of bases.
+     */
+    public int getLength(int read) {
+        return this.baseOffsets[read + 1] - this.baseOffsets[read];
+    }
+
+    /**
+     * Method to get the number of bases in the whole batch.
+     * @return the total length of the reads.
+     */
+    public long getTotalLength() {
+        return this.baseOffsets[this.size];
+    }
+
+    /**
+     * Method to get a read's name, the header up to the first space.
+     * @param read the read's index in the batch.
+     * @return the name.
+     */
+    public String getName(int read) {
+        return new String(this.headers, this.headerOffsets[read], getNameLength(read), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Method to get the length of a read's name, which starts at {@link #getHeaderOffset(int)}.
+     * @param read the read's index in the batch.
+     * @return the number of bytes up to the first space of the header.
+     */
+    public int getNameLength(int read) {
+        int start = this.headerOffsets[read], end = start;
+        while (end < this.headerOffsets[read + 1] && this.headers[end] != ' ' && this.headers[end] != '\t') {
+            end++;
+        }
+        return end - start;
+    }
+
+    /**
+     * Method to get the headers of every read, end to end and without the '@'. A read's header starts at
+     * {@link #getHeaderOffset(int)}.
+     * @return the array, which is reused when the batch is filled again.
+     */
+    public byte[] getHeaders() {
+        return this.headers;
+    }
+
+    /**
+     * Method to get where a read's header starts.
+     * @param read the read's index in the batch.
+     * @return the offset into {@link #getHeaders()}.
+     */
+    public int getHeaderOffset(int read) {
+        return this.headerOffsets[read];
+    }
+
+    /**
+     * Method to get the length of a read's header.
+     * @param read the read's index in the batch.
+     * @return the number of bytes, without the '@'.
+     */
+    public int getHeaderLength(int read) {
+        return this.headerOffsets[read + 1] - this.headerOffsets[read];
+    }
+
+    /**
+     * Method to get a reusable view of the reads' bases, for searches and translation that take characters.
+     * @return a new view, pointing at the first read.
+     */
+    public View view() {
+        View view = new View();
+        if (this.size > 0) {
+            view.select(0);
+        }
+        return view;
+    }
+
+    void append(int field, byte[] source, int offset, int length) {
+        //Appends part of a line to the read being filled, growing the array if needed
+        switch (field) {
+            case HEADER -> {
+                this.headers = ensureCapacity(this.headers, this.headerLength + length);
+                System.arraycopy(source, offset, this.headers, this.headerLength, length);
+                this.headerLength += length;
+            }
+            case BASES -> {
+                this.bases = ensureCapacity(this.bases, this.basesLength + length);
+                System.arraycopy(source, offset, this.bases, this.basesLength, length);
+                this.basesLength += length;
+            }
+            default -> {
+                this.qualities = ensureCapacity(this.qualities, this.qualitiesLength + length);
+                System.arraycopy(source, offset, this.qualities, this.qualitiesLength, length);
+                this.qualitiesLength += length;
+            }
+        }
+    }
+
+    void trimLineEnd(int field) {
+        //Drops the carriage return of a Windows line ending
+        switch (field) {
+            case HEADER -> {
+                if (this.headerLength > this.headerOffsets[this.size] && this.headers[this.headerLength - 1] == '\r') {
+                    this.headerLength--;
+                }
+            }
+            case BASES -> {
+                if (this.basesLength > this.baseOffsets[this.size] && this.bases[this.basesLength - 1] == '\r') {
+                    this.basesLength--;
+                }
+            }
+            default -> {
+                if (this.qualitiesLength > this.baseOffsets[this.size] && this.qualities[this.qualitiesLength - 1] == '\r') {
+                    this.qualitiesLength--;
+                }
+            }
+        }
+    }
+
+    int pendingLength(int field) {
+        //Length of the field for the read being filled
+        return switch (field) {
+            case HEADER -> this.headerLength - this.headerOffsets[this.size];
+            case BASES -> this.basesLength - this.baseOffsets[this.size];
+            default -> this.qualitiesLength - this.baseOffsets[this.size];
+        };
+    }
+
+    void finishRead() {
+        //The read being filled becomes part of the batch
+        this.size++;
+        this.headerOffsets[this.size] = this.headerLength;
+        this.baseOffsets[this.size] = this.basesLength;
+    }
+
+    void discardRead() {
+        //Forgets a partly filled read
+        this.headerLength = this.headerOffsets[this.size];
+        this.basesLength = this.baseOffsets[this.size];
+        this.qualitiesLength = this.baseOffsets[this.size];
+    }
+
+    private static byte[] ensureCapacity(byte[] array, int length) {
+        if (length <= array.length) {
+            return array;
+        }
+        if (length > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Batch is too large, use a smaller capacity");
+        }
+        return Arrays.copyOf(array, (int) Math.min(Integer.MAX_VALUE - 8, Math.max(length, 2L * array.length)));
+    }
+
+    /**
+     * The bases of one read at a time as characters, without copying them. The same view is moved from read to read.
+     */
+    public class View implements CharSequence {
+        //List variables
+        private int offset;
+        private int length;
+
+        /**
+         * Method to point the view at a read.
+         * @param read the read's index in the batch.
+         * @return this view.
+         */
+        public View select(int read) {
+            this.offset = getOffset(read);
+            this.length = getLength(read);
+            return this;
+        }
+
+        @Override
+        public int length() {
+            return this.length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= this.length) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return (char) (ReadBatch.this.bases[this.offset + index] & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().substring(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return new String(ReadBatch.this.bases, this.offset, this.length, StandardCharsets.ISO_8859_1);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Runs an operation over every read of a FASTQ input a batch at a time. The calling thread fills a batch while
+ * worker threads process the ones before it, and each batch's output is written in input order. A fixed number of
+ * batches and output buffers are made up front and handed round again once their output is written, so memory stays
+ * at a few batches per thread however large the input is, and nothing is allocated per read.
+ */
+public class ReadProcessor {
+    //Reads per batch by default, about a megabyte of short reads
+    public static final int DEFAULT_BATCH_SIZE = 4096;
+
+    //List variables
+    private final ExecutorService pool;
+    private final int batches;
+    private final int batchSize;
+
+    /**
+     * An operation applied to a whole batch at once. It may be called from several threads at the same time, each
+     * with its own batch and output.
+     */
+    public interface Operation {
+        void process(ReadBatch batch, Output output);
+    }
+
+    /**
+     * Constructor for a processor.
+     * @param pool the worker threads.
+     * @param threads the number of worker threads, twice as many batches are kept in flight.
+     * @param batchSize the reads per batch.
+     */
+    public ReadProcessor(ExecutorService pool, int threads, int batchSize) {
+        this.pool = pool;
+        this.batches = Math.max(2, 2 * threads);
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Method to process every read of an input.
+     * @param reader the reads.
+     * @param operation the operation applied to each batch.
+     * @param out receives each batch's output, in input order.
+     * @return the number of reads processed.
+     * @throws IOException if the input can't be read or the output can't be written.
+     * @throws ExecutionException if the operation fails.
+     */
+    public long process(FastqReader reader, Operation operation, OutputStream out) throws IOException, InterruptedException, ExecutionException {
+        ArrayDeque<Slot> free = new ArrayDeque<>();
+        for (int i = 0; i < this.batches; i++) {
+            free.add(new Slot(this.batchSize));
+        }
+        ArrayDeque<Future<Slot>> pending = new ArrayDeque<>();
+        long reads = 0;
+        try {
+            while (true) {
+                //Waits for the oldest batch to be written when every batch is in use
+                Slot slot = free.isEmpty() ? write(pending.poll(), out) : free.poll();
+                if (!reader.readBatch(slot.batch)) {
+                    break;
+                }
+                reads += slot.batch.size();
+                pending.add(this.pool.submit(() -> {
+                    slot.output.reset();
+                    operation.process(slot.batch, slot.output);
+                    return slot;
+                }));
+            }
+            while (!pending.isEmpty()) {
+                write(pending.poll(), out);
+            }
+        } finally {
+            for (Future<Slot> future : pending) {
+                future.cancel(true);
+            }
+        }
+        return reads;
+    }
+
+    private static Slot write(Future<Slot> future, OutputStream out) throws IOException, InterruptedException, ExecutionException {
+        Slot slot = future.get();
+        slot.output.writeTo(out);
+        return slot;
+    }
+
+    /**
+     * A batch with the buffer its output goes to.
+     */
+    private static class Slot {
+        private final ReadBatch batch;
+        private final Output output = new Output();
+
+        Slot(int batchSize) {
+            this.batch = new ReadBatch(batchSize);
+        }
+    }
+
+    /**
+     * Growable byte buffer for the output of one batch. Text is written as ASCII, which is all FASTQ and the
+     * tables need, and the buffer keeps its size between batches.
+     */
+    public static class Output {
+        //List variables
+        private byte[] buffer = new byte[1 << 16];
+        private int size;
+
+        /**
+         * Method to add one byte.
+         * @param b the byte.
+         * @return this output.
+         */
+        public Output append(byte b) {
+            reserve(1);
+            this.buffer[this.size - 1] = b;
+            return this;
+        }
+
+        /**
+         * Method to add one ASCII character.
+         * @param c the character.
+         * @return this output.
+         */
+        public Output append(char c) {
+            return append((byte) c);
+        }
+
+        /**
+         * Method to add part of an array.
+         * @param bytes the array.
+         * @param offset the first byte to add.
+         * @param length the number of bytes.
+         * @return this output.
+         */
+        public Output append(byte[] bytes, int offset, int length) {
+            int at = reserve(length);
+            System.arraycopy(bytes, offset, this.buffer, at, length);
+            return this;
+        }
+
+        /**
+         * Method to add text, which should be ASCII.
+         * @param text the text.
+         * @return this output.
+         */
+        public Output append(String text) {
+            int at = reserve(text.length());
+            for (int i = 0; i < text.length(); i++) {
+                this.buffer[at + i] = (byte) text.charAt(i);
+            }
+            return this;
+        }
+
+        /**
+         * Method to add a number in decimal.
+         * @param value the number.
+         * @return this output.
+         */
+        public Output append(long value) {
+            return append(Long.toString(value));
+        }
+
+        /**
+         * Method to make room at the end of the output, for bytes that are written into {@link #getBuffer()} directly.
+         * @param length the number of bytes.
+         * @return the offset in the buffer where the room starts.
+         */
+        public int reserve(int length) {
+            if (this.size + length > this.buffer.length) {
+                this.buffer = Arrays.copyOf(this.buffer, Math.max(this.size + length, 2 * this.buffer.length));
+            }
+            this.size += length;
+            return this.size - length;
+        }
+
+        /**
+         * Method to get the buffer, which changes when the output grows.
+         * @return the buffer.
+         */
+        public byte[] getBuffer() {
+            return this.buffer;
+        }
+
+        /**
+         * Method to get the number of bytes written.
+         * @return the size.
+         */
+        public int size() {
+            return this.size;
+        }
+
+        /**
+         * Method to empty the output, keeping its buffer.
+         */
+        public void reset() {
+            this.size = 0;
+        }
+
+        /**
+         * Method to write the output to a stream.
+         * @param out the stream.
+         */
+        public void writeTo(OutputStream out) throws IOException {
+            out.write(this.buffer, 0, this.size);
+        }
+
+        @Override
+        public String toString() {
+            return new String(this.buffer, 0, this.size, StandardCharsets.ISO_8859_1);
+        }
+    }
+}
@@ -0,0 +1,596 @@
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Content-addressed cache of results worked out from sequences, such as translations, amino acid and k-mer counts,
+ * open reading frames and subsequence indexes. A result is keyed by a SHA-256 digest of the nucleotides (see
+ * {@link ParallelScanner#digest(CharSequence)}), the sequence length, the operation and its parameters, so sequences
+ * with the same nucleotides share results and a sequence that is changed simply stops matching its old ones.
+ * <p>
+ * Results are kept in memory up to a number of bytes, the least recently used going first. Given a spill directory,
+ * results pushed out of memory are written there, up to a second limit, and read back on their next use instead of
+ * being worked out again. Results are copied on the way in and out so callers are free to change what they get.
+ * Two threads missing the same key both work it out and the later one is kept.
+ */
+public class ResultCache implements ResultCacheMXBean, Closeable {
+    //Default size of the memory tier, 256 MiB
+    public static final long DEFAULT_MAX_BYTES = 256L << 20;
+
+    //Rough size of a map entry and its key, added to the size of every result
+    private static final long ENTRY_OVERHEAD = 128;
+
+    //Amino acid counts, indexed the same as GeneticCode.AMINO_ACIDS
+    public static final Type<int[]> COUNTS = new Type<>() {
+        @Override
+        public long weigh(int[] value) {
+            return 16 + 4L * value.length;
+        }
+
+        @Override
+        public int[] copy(int[] value) {
+            return value.clone();
+        }
+
+        @Override
+        public void write(int[] value, DataOutput out) throws IOException {
+            out.writeInt(value.length);
+            for (int count : value) {
+                out.writeInt(count);
+            }
+        }
+
+        @Override
+        public int[] read(DataInput in) throws IOException {
+            int[] output = new int[in.readInt()];
+            for (int i = 0; i < output.length; i++) {
+                output[i] = in.readInt();
+            }
+            return output;
+        }
+    };
+
+    //Proteins, strings need no copy
+    public static final Type<String> TEXT = new Type<>() {
+        @Override
+        public long weigh(String value) {
+            return 40 + 2L * value.length();
+        }
+
+        @Override
+        public String copy(String value) {
+            return value;
+        }
+
+        @Override
+        public void write(String value, DataOutput out) throws IOException {
+            out.writeInt(value.length());
+            out.writeChars(value);
+        }
+
+        @Override
+        public String read(DataInput in) throws IOException {
+            char[] output = new char[in.readInt()];
+            for (int i = 0; i < output.length; i++) {
+                output[i] = in.readChar();
+            }
+            return new String(output);
+        }
+    };
+
+    //Open reading frames, only the list is copied as each frame can't be changed
+    public static final Type<List<OpenReadingFrame>> READING_FRAMES = new Type<>() {
+        @Override
+        public long weigh(List<OpenReadingFrame> value) {
+            return 40 + 40L * value.size();
+        }
+
+        @Override
+        public List<OpenReadingFrame> copy(List<OpenReadingFrame> value) {
+            return new ArrayList<>(value);
+        }
+
+        @Override
+        public void write(List<OpenReadingFrame> value, DataOutput out) throws IOException {
+            out.writeInt(value.size());
+            for (OpenReadingFrame frame : value) {
+                out.writeInt(frame.getReadingFrame());
+                out.writeInt(frame.getStart());
+                out.writeInt(frame.getEnd());
+            }
+        }
+
+        @Override
+        public List<OpenReadingFrame> read(DataInput in) throws IOException {
+            int size = in.readInt();
+            List<OpenReadingFrame> output = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                output.add(new OpenReadingFrame(in.readInt(), in.readInt(), in.readInt()));
+            }
+            return output;
+        }
+    };
+
+    //K-mer counts
+    public static final Type<KmerTable> KMERS = new Type<>() {
+        @Override
+        public long weigh(KmerTable value) {
+            return 48 + value.getMemoryUsage();
+        }
+
+        @Override
+        public KmerTable copy(KmerTable value) {
+            KmerTable output = new KmerTable(value.size());
+            output.addAll(value);
+            return output;
+        }
+
+        @Override
+        public void write(KmerTable value, DataOutput out) throws IOException {
+            out.writeInt(value.size());
+            for (long kmer : value.sortedKmers()) {
+                out.writeLong(kmer);
+                out.writeInt(value.get(kmer));
+            }
+        }
+
+        @Override
+        public KmerTable read(DataInput in) throws IOException {
+            int size = in.readInt();
+            KmerTable output = new KmerTable(size);
+            for (int i = 0; i < size; i++) {
+                output.add(in.readLong(), in.readInt());
+            }
+            return output;
+        }
+    };
+
+    //Subsequence indexes, which can't be changed so need no copy
+    public static final Type<FMIndex> INDEX = new Type<>() {
+        @Override
+        public long weigh(FMIndex value) {
+            return 96 + value.getMemoryUsage();
+        }
+
+        @Override
+        public FMIndex copy(FMIndex value) {
+            return value;
+        }
+
+        @Override
+        public void write(FMIndex value, DataOutput out) throws IOException {
+            value.write(out);
+        }
+
+        @Override
+        public FMIndex read(DataInput in) throws IOException {
+            return FMIndex.read(in, "result cache");
+        }
+    };
+
+    //List variables
+    private final String name;
+    private final long maxBytes;
+    private final File spillDirectory;
+    private final long maxSpillBytes;
+    private final Object lock = new Object();
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<Key, Entry> spilled = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private long spilledBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long spills;
+    private long spillHits;
+    private boolean closed;
+
+    /**
+     * Constructor for a cache kept only in memory.
+     * @param name the name the cache is registered with JMX as.
+     * @param maxBytes the most bytes of results kept in memory.
+     */
+    public ResultCache(String name, long maxBytes) {
+        this(name, maxBytes, null, 0);
+    }
+
+    /**
+     * Constructor for a cache that spills the results it pushes out of memory to disk.
+     * @param name the name the cache is registered with JMX as.
+     * @param maxBytes the most bytes of results kept in memory.
+     * @param spillDirectory the directory spilled results are written to, or null to keep nothing on disk.
+     * @param maxSpillBytes the most bytes of spilled results, the least recently used are deleted first.
+     */
+    public ResultCache(String name, long maxBytes, File spillDirectory, long maxSpillBytes) {
+        if (maxBytes < 0 || maxSpillBytes < 0) {
+            throw new IllegalArgumentException("Cache sizes can't be negative");
+        }
+        if (spillDirectory != null && !spillDirectory.isDirectory()) {
+            throw new IllegalArgumentException("Spill directory " + spillDirectory + " doesn't exist");
+        }
+        this.name = name;
+        this.maxBytes = maxBytes;
+        this.spillDirectory = spillDirectory;
+        this.maxSpillBytes = maxSpillBytes;
+        Metrics.register(this, "Cache", name);
+    }
+
+    /**
+     * The kind of a cached result, which says how to size, copy and spill it.
+     * @param <T> the class of the result.
+     */
+    public interface Type<T> {
+        /**
+         * Method to estimate the memory a result takes.
+         * @param value the result.
+         * @return the size in bytes.
+         */
+        long weigh(T value);
+
+        /**
+         * Method to copy a result so the cached one and the caller's one can be changed apart.
+         * @param value the result.
+         * @return the copy, or the result itself if it can't be changed.
+         */
+        T copy(T value);
+
+        /**
+         * Method to write a result to a spill file.
+         * @param value the result.
+         * @param out where it is written.
+         */
+        void write(T value, DataOutput out) throws IOException;
+
+        /**
+         * Method to read a result written by {@link #write(Object, DataOutput)}.
+         * @param in where it is read from.
+         * @return the result.
+         */
+        T read(DataInput in) throws IOException;
+    }
+
+    /**
+     * What a result was worked out from: the digest and length of a sequence, an operation and its parameters.
+     */
+    public static final class Key {
+        //List variables
+        private final byte[] digest;
+        private final int length;
+        private final String operation;
+
+        private Key(byte[] digest, int length, String operation) {
+            this.digest = digest;
+            this.length = length;
+            this.operation = operation;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key key && Arrays.equals(key.digest, this.digest) && key.length == this.length
+                    && key.operation.equals(this.operation);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(this.digest) * 31 + this.operation.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return this.operation + " of " + this.length + " nucleotides with digest " + HexFormat.of().formatHex(this.digest);
+        }
+    }
+
+    /**
+     * Method to make the key of a result.
+     * @param digest the digest of the sequence, see {@link ParallelScanner#digest(CharSequence)}.
+     * @param length the length of the sequence.
+     * @param operation the operation, such as "translate".
+     * @param parameters anything else the result depends on, such as the translation table and reading frame.
+     * @return the key.
+     */
+    public static Key key(byte[] digest, int length, String operation, Object... parameters) {
+        return new Key(digest.clone(), length, parameters.length == 0 ? operation : operation + Arrays.toString(parameters));
+    }
+
+    /**
+     * Method to get a cached result, working it out and caching it on a miss.
+     * @param key what the result was worked out from.
+     * @param type the kind of result.
+     * @param supplier works out the result on a miss.
+     * @param <T> the class of the result.
+     * @return the result, which the caller is free to change.
+     */
+    public <T> T get(Key key, Type<T> type, Supplier<T> supplier) {
+        Entry entry;
+        synchronized (this.lock) {
+            entry = this.entries.get(key);
+            if (entry != null) {
+                this.hits++;
+            } else {
+                //A spilled result leaves the disk tier while it is read, so no one else reads it too
+                entry = this.spilled.remove(key);
+                if (entry != null) {
+                    this.spilledBytes -= entry.weight;
+                }
+            }
+        }
+        if (entry != null && entry.file == null) {
+            return type.copy(value(entry));
+        }
+        if (entry != null) {
+            T value = readSpill(entry.file, type);
+            if (value != null) {
+                synchronized (this.lock) {
+                    this.hits++;
+                    this.spillHits++;
+                }
+                store(key, type, value);
+                return type.copy(value);
+            }
+        }
+        synchronized (this.lock) {
+            this.misses++;
+        }
+        T value = supplier.get();
+        store(key, type, type.copy(value));
+        return value;
+    }
+
+    /**
+     * Method to check whether a result is cached in memory or on disk, without counting a hit or miss.
+     * @param key what the result was worked out from.
+     * @return true if the result is cached.
+     */
+    public boolean contains(Key key) {
+        synchronized (this.lock) {
+            return this.entries.containsKey(key) || this.spilled.containsKey(key);
+        }
+    }
+
+    @Override
+    public long getHits() {
+        synchronized (this.lock) {
+            return this.hits;
+        }
+    }
+
+    @Override
+    public long getMisses() {
+        synchronized (this.lock) {
+            return this.misses;
+        }
+    }
+
+    @Override
+    public double getHitRatio() {
+        synchronized (this.lock) {
+            long lookups = this.hits + this.misses;
+            return lookups == 0 ? 0 : (double) this.hits / lookups;
+        }
+    }
+
+    @Override
+    public long getEvictions() {
+        synchronized (this.lock) {
+            return this.evictions;
+        }
+    }
+
+    @Override
+    public long getSpills() {
+        synchronized (this.lock) {
+            return this.spills;
+        }
+    }
+
+    @Override
+    public long getSpillHits() {
+        synchronized (this.lock) {
+            return this.spillHits;
+        }
+    }
+
+    @Override
+    public int getEntries() {
+        synchronized (this.lock) {
+            return this.entries.size();
+        }
+    }
+
+    @Override
+    public long getBytes() {
+        synchronized (this.lock) {
+            return this.bytes;
+        }
+    }
+
+    @Override
+    public long getMaxBytes() {
+        return this.maxBytes;
+    }
+
+    @Override
+    public int getSpilledEntries() {
+        synchronized (this.lock) {
+            return this.spilled.size();
+        }
+    }
+
+    @Override
+    public long getSpilledBytes() {
+        synchronized (this.lock) {
+            return this.spilledBytes;
+        }
+    }
+
+    /**
+     * Method to get the name the cache is registered with JMX as.
+     * @return the name.
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    @Override
+    public void resetStatistics() {
+        synchronized (this.lock) {
+            this.hits = 0;
+            this.misses = 0;
+            this.evictions = 0;
+            this.spills = 0;
+            this.spillHits = 0;
+        }
+    }
+
+    /**
+     * Method to drop every cached result and delete the spill files.
+     */
+    @Override
+    public void clear() {
+        List<Entry> dropped;
+        synchronized (this.lock) {
+            dropped = new ArrayList<>(this.spilled.values());
+            this.entries.clear();
+            this.spilled.clear();
+            this.bytes = 0;
+            this.spilledBytes = 0;
+        }
+        for (Entry entry : dropped) {
+            entry.file.delete();
+        }
+    }
+
+    /**
+     * Method to clear the cache and stop spilling, so no files are left behind.
+     */
+    @Override
+    public void close() {
+        synchronized (this.lock) {
+            this.closed = true;
+        }
+        clear();
+    }
+
+    @Override
+    public String toString() {
+        synchronized (this.lock) {
+            return String.format("Cache %s: %d hits (%d from disk), %d misses, %d evictions, %d entries of %d bytes, %d spilled of %d bytes",
+                    this.name, this.hits, this.spillHits, this.misses, this.evictions, this.entries.size(), this.bytes,
+                    this.spilled.size(), this.spilledBytes);
+        }
+    }
+
+    private <T> void store(Key key, Type<T> type, T value) {
+        long weight = type.weigh(value) + ENTRY_OVERHEAD;
+        if (weight > this.maxBytes) {
+            return;
+        }
+
+        //Pushes out the least recently used results until the new one fits, spilling them outside of the lock
+        List<Entry> evicted = new ArrayList<>();
+        synchronized (this.lock) {
+            Entry old = this.entries.put(key, new Entry(key, type, value, weight, null));
+            if (old != null) {
+                this.bytes -= old.weight;
+            }
+            this.bytes += weight;
+            Iterator<Entry> eldest = this.entries.values().iterator();
+            while (this.bytes > this.maxBytes) {
+                Entry entry = eldest.next();
+                eldest.remove();
+                this.bytes -= entry.weight;
+                this.evictions++;
+                if (this.spillDirectory != null && !this.closed && entry.weight <= this.maxSpillBytes) {
+                    evicted.add(entry);
+                }
+            }
+        }
+        for (Entry entry : evicted) {
+            spill(entry);
+        }
+    }
+
+    private void spill(Entry entry) {
+        File file = null;
+        try {
+            file = File.createTempFile("result", ".cache", this.spillDirectory);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+                write(entry, out);
+            }
+        } catch (IOException e) {
+            //A result that can't be spilled is only worked out again
+            if (file != null) {
+                file.delete();
+            }
+            return;
+        }
+
+        //Keeps the file unless the result was cached again while it was written
+        List<File> deleted = new ArrayList<>();
+        synchronized (this.lock) {
+            if (this.closed || this.entries.containsKey(entry.key) || this.spilled.containsKey(entry.key)) {
+                deleted.add(file);
+            } else {
+                Entry spilledEntry = new Entry(entry.key, entry.type, null, file.length(), file);
+                this.spilled.put(entry.key, spilledEntry);
+                this.spilledBytes += spilledEntry.weight;
+                this.spills++;
+                Iterator<Entry> eldest = this.spilled.values().iterator();
+                while (this.spilledBytes > this.maxSpillBytes) {
+                    Entry dropped = eldest.next();
+                    eldest.remove();
+                    this.spilledBytes -= dropped.weight;
+                    deleted.add(dropped.file);
+                }
+            }
+        }
+        for (File dropped : deleted) {
+            dropped.delete();
+        }
+    }
+
+    private static <T> T readSpill(File file, Type<T> type) {
+        //A spill file that can't be read counts as a miss
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+            return type.read(in);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        } finally {
+            file.delete();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void write(Entry entry, DataOutput out) throws IOException {
+        ((Type<T>) entry.type).write((T) entry.value, out);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T value(Entry entry) {
+        //Keys hold the operation, so an entry found by key is always of the asked for type
+        return (T) entry.value;
+    }
+
+    private static final class Entry {
+        //List variables
+        private final Key key;
+        private final Type<?> type;
+        private final Object value;
+        private final long weight;
+        private final File file;
+
+        private Entry(Key key, Type<?> type, Object value, long weight, File file) {
+            this.key = key;
+            this.type = type;
+            this.value = value;
+            this.weight = weight;
+            this.file = file;
+        }
+    }
+}
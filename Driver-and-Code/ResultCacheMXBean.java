@@ -0,0 +1,30 @@
+/**
+ * JMX view of a {@link ResultCache}, registered as "jgsmt:type=Cache,name=&lt;cache&gt;".
+ */
+public interface ResultCacheMXBean {
+    long getHits();
+
+    long getMisses();
+
+    double getHitRatio();
+
+    long getEvictions();
+
+    long getSpills();
+
+    long getSpillHits();
+
+    int getEntries();
+
+    long getBytes();
+
+    long getMaxBytes();
+
+    int getSpilledEntries();
+
+    long getSpilledBytes();
+
+    void resetStatistics();
+
+    void clear();
+}
@@ -1,16 +1,50 @@
 import java.io.*;
-import java.util.Scanner;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
 
 /**
  * @author Joshua Ostblom
  */
 
 public class Sequence {
+    //Timing of the operations, see Metrics
+    private static final OperationMetrics READ = Metrics.operation("Sequence.read");
+    private static final OperationMetrics VALIDATE = Metrics.operation("Sequence.validate");
+    private static final OperationMetrics COPY = Metrics.operation("Sequence.copy");
+    private static final OperationMetrics CONVERT = Metrics.operation("Sequence.convert");
+    private static final OperationMetrics BUILD_INDEX = Metrics.operation("Sequence.buildIndex");
+    private static final OperationMetrics SEARCH = Metrics.operation("Sequence.search");
+    private static final OperationMetrics SEARCH_MOTIFS = Metrics.operation("Sequence.searchMotifs");
+    private static final OperationMetrics SEARCH_APPROXIMATE = Metrics.operation("Sequence.searchApproximate");
+    private static final OperationMetrics COUNT_NUCLEOTIDES = Metrics.operation("Sequence.countNucleotides");
+    private static final OperationMetrics COUNT_AMINO_ACIDS = Metrics.operation("Sequence.countAminoAcids");
+    private static final OperationMetrics TRANSLATE = Metrics.operation("Sequence.translate");
+    private static final OperationMetrics FIND_ORFS = Metrics.operation("Sequence.findOrfs");
+    private static final OperationMetrics COUNT_KMERS = Metrics.operation("Sequence.countKmers");
+    private static final OperationMetrics SKETCH = Metrics.operation("Sequence.sketch");
+    private static final OperationMetrics PROFILE_WINDOWS = Metrics.operation("Sequence.profileWindows");
+    private static final OperationMetrics ALIGN = Metrics.operation("Sequence.align");
+    private static final OperationMetrics HASH = Metrics.operation("Sequence.hash");
+
+    //Cache shared by every sequence, null when results aren't cached
+    private static volatile ResultCache resultCache;
+
     //List variables
     private boolean forwardStrand;
     private int readingFrame;
     private String sequenceType;
     private StringBuilder sequenceData;
+    private PackedSequence packedData;
+    private SequenceView view;
+    private boolean shared;
+    private String name;
+    private FMIndex subsequenceIndex;
+    private ValidationReport validationReport;
+    private byte[] cacheDigest;
 
     /**
      * Default constructor. Creates an empty forward DNA strand.
@@ -21,6 +55,7 @@ public class Sequence {
         this.readingFrame = 1;
         this.sequenceType = "DNA";
         this.sequenceData = new StringBuilder();
+        this.name = "";
     }
 
     /**
@@ -28,30 +63,62 @@ public class Sequence {
      * @param forwardStrand true if the sequence is 5' to 3'.
      * @param readingFrame the reading frame of the sequence. Non-valid inputs will be defaulted to 1.
      * @param sequenceType DNA or RNA. Non-valid inputs will be defaulted to DNA.
-     * @param file FASTA file or any text file.
+     * @param file FASTA file or any text file, optionally gzip or BGZF compressed. The records of multi-record files are joined into one sequence named after the first, use {@link FastaReader} to read them apart.
      */
-    public Sequence(boolean forwardStrand, int readingFrame, String sequenceType, File file) throws FileNotFoundException {
+    public Sequence(boolean forwardStrand, int readingFrame, String sequenceType, File file) throws IOException {
+        this(forwardStrand, readingFrame, sequenceType, file, false);
+    }
+
+    /**
+     * Constructor for file input with the option of packed storage.
+     * @param forwardStrand true if the sequence is 5' to 3'.
+     * @param readingFrame the reading frame of the sequence. Non-valid inputs will be defaulted to 1.
+     * @param sequenceType DNA or RNA. Non-valid inputs will be defaulted to DNA.
+     * @param file FASTA file or any text file, optionally gzip or BGZF compressed. The records of multi-record files are joined into one sequence named after the first, use {@link FastaReader} to read them apart.
+     * @param packed true to store the sequence 2 bits per nucleotide, see {@link PackedSequence}.
+     */
+    public Sequence(boolean forwardStrand, int readingFrame, String sequenceType, File file, boolean packed) throws IOException {
         //Initialize variables
         this.setForwardStrand(forwardStrand);
         this.setReadingFrame(readingFrame);
         this.setSequenceType(sequenceType);
-        this.sequenceData = new StringBuilder();
+        this.name = "";
+
+        //Reads the file, joining every record into one sequence as the line-by-line reader did, and keeps the first ID as the name
+        FastaRecord record = READ.time(file.length(), () -> {
+            try (FastaReader reader = new FastaReader(file)) {
+                reader.setPacked(packed);
+                FastaRecord first = reader.nextRecord();
+                return first == null || !reader.hasNextRecord() ? first : join(first, reader);
+            }
+        });
 
-        Scanner s = new Scanner(file);
+        //This sends it to the set method to check for invalid characters
+        if (record == null) {
+            this.setSequenceData(new StringBuilder());
+        } else if (packed) {
+            this.name = record.getId();
+            this.setPackedData(record.getPackedData());
+        } else {
+            this.name = record.getId();
+            this.setSequenceData(record.getSequenceData());
+        }
+    }
 
-        //Reads the file and adds only the sequence to the sequenceData string
-        while (s.hasNextLine())
-        {
-            //Gets next line and adds it to the sequence
-            String line = s.nextLine().trim();
-            if (line.charAt(0) != '>')
-            {
-                this.sequenceData.append(line);
+    private static FastaRecord join(FastaRecord first, FastaReader reader) throws IOException {
+        //Adds the sequence of every later record to the end of the first
+        if (first.getPackedData() == null) {
+            StringBuilder sequenceData = first.getSequenceData();
+            while (reader.hasNextRecord()) {
+                sequenceData.append(reader.nextRecord().getSequenceData());
             }
+            return first;
         }
-
-        //This sends it to the set method to check for invalid characters
-        this.setSequenceData(this.sequenceData);
+        PackedSequence.Builder builder = new PackedSequence.Builder(first.length()).append(first.getPackedData());
+        while (reader.hasNextRecord()) {
+            builder.append(reader.nextRecord().getPackedData());
+        }
+        return new FastaRecord(first.getId(), first.getDescription(), builder.build(false));
     }
 
     /**
@@ -68,6 +135,23 @@ public class Sequence {
         this.setReadingFrame(readingFrame);
         this.setSequenceType(sequenceType);
         this.setSequenceData(new StringBuilder(sequenceData));
+        this.name = "";
+    }
+
+    /**
+     * Constructor for sequences already held in packed storage.
+     * @param forwardStrand true if the sequence is 5' to 3'.
+     * @param readingFrame the reading frame of the sequence. Non-valid inputs will be defaulted to 1.
+     * @param sequenceType DNA or RNA. Non-valid inputs will be defaulted to DNA.
+     * @param packedData the packed nucleotide sequence.
+     */
+    public Sequence(boolean forwardStrand, int readingFrame, String sequenceType, PackedSequence packedData) {
+        //Initialize variables
+        this.setForwardStrand(forwardStrand);
+        this.setReadingFrame(readingFrame);
+        this.setSequenceType(sequenceType);
+        this.setPackedData(packedData);
+        this.name = "";
     }
 
     /**
@@ -107,28 +191,109 @@ public class Sequence {
         }
     }
 
+    /**
+     * Method to set the name of the sequence, such as the ID from a FASTA header.
+     * @param name the name of the sequence.
+     */
+    public void setName(String name) {
+        this.name = name == null ? "" : name;
+    }
+
     /**
      * Method to set the nucleotide sequence.
      * @param sequenceData the nucleotide sequence.
      */
     public void setSequenceData(String sequenceData) {
         this.sequenceData = new StringBuilder(sequenceData);
+        this.packedData = null;
+        this.view = null;
+        this.shared = false;
+        this.subsequenceIndex = null;
+        this.cacheDigest = null;
+        this.validationReport = null;
     }
 
     /**
-     * Method to set the nucleotide sequence.
+     * Method to set the nucleotide sequence. The sequence is checked for non-nucleotide characters in one pass,
+     * see {@link #getValidationReport()}. Nothing is printed.
      * @param sequenceData the nucleotide sequence.
      */
     public void setSequenceData(StringBuilder sequenceData) {
+        this.sequenceData = sequenceData;
+        this.packedData = null;
+        this.view = null;
+        this.shared = false;
+        this.subsequenceIndex = null;
+        this.cacheDigest = null;
+
+        //Checks the sequence for non-nucleotide characters, see getValidationReport()
+        this.validationReport = VALIDATE.time(sequenceData.length(),
+                () -> new ParallelScanner().validate(sequenceData, SequenceValidator.STRICT));
+    }
+
+    /**
+     * Method to set the nucleotide sequence from packed storage. The DNA/RNA flag is matched to the sequence type.
+     * The masked runs are checked for non-nucleotide characters, see {@link #getValidationReport()}.
+     * @param packedData the packed nucleotide sequence.
+     */
+    public void setPackedData(PackedSequence packedData) {
+        this.packedData = packedData.withRNA(this.sequenceType.equals("RNA"));
+        this.sequenceData = null;
+        this.view = null;
+        this.shared = false;
+        this.subsequenceIndex = null;
+        this.cacheDigest = null;
+
+        //Only the masked runs need checking
+        this.validationReport = VALIDATE.time(packedData.length(), () -> SequenceValidator.STRICT.validate(this.packedData));
+    }
 
-        //Checks the sequence for non-nucleotide characters
-        for(int i = 0; i < sequenceData.length(); i++) {
-            if (sequenceData.charAt(i) != 'A' && sequenceData.charAt(i) != 'T' && sequenceData.charAt(i) != 'C' && sequenceData.charAt(i) != 'G' && sequenceData.charAt(i) != 'U') {
-                //Warns the user of a non-nucleotide character and provides index
-                System.out.println("Warning! A non-nucleotide character, \"" + sequenceData.charAt(i) + "\" was found at index: " + i);
+    /**
+     * Method to switch between packed (2 bits per nucleotide) and character storage.
+     * @param packed true to store the sequence packed.
+     */
+    public void setPacked(boolean packed) {
+        if (this.view != null) {
+            //Views are copied out straight into the chosen storage
+            if (packed) {
+                this.packedData = this.view.toPackedSequence(this.sequenceType.equals("RNA"));
+            } else {
+                this.sequenceData = this.view.toStringBuilder();
             }
+            this.view = null;
+        } else if (packed && this.packedData == null) {
+            this.packedData = PackedSequence.pack(this.sequenceData, this.sequenceType.equals("RNA"));
+            this.sequenceData = null;
+            this.shared = false;
+        } else if (!packed && this.packedData != null) {
+            this.sequenceData = this.packedData.toStringBuilder();
+            this.packedData = null;
         }
-        this.sequenceData = sequenceData;
+    }
+
+    /**
+     * Method to get the non-nucleotide characters in the sequence (anything but A, C, G, T and U).
+     * @return the report, made when the sequence was set or on the first call.
+     */
+    public ValidationReport getValidationReport() {
+        if (this.validationReport == null) {
+            this.validationReport = validate(SequenceValidator.STRICT);
+        }
+        return this.validationReport;
+    }
+
+    /**
+     * Method to check the sequence with other options, such as accepting ambiguity codes or soft-masking.
+     * @param validator decides which characters are accepted.
+     * @return the report.
+     */
+    public ValidationReport validate(SequenceValidator validator) {
+        return VALIDATE.time(length(), () -> {
+            if (this.view == null && this.packedData != null) {
+                return validator.validate(this.packedData);
+            }
+            return new ParallelScanner().validate(data(), validator);
+        });
     }
 
     /**
@@ -156,29 +321,93 @@ public class Sequence {
     }
 
     /**
-     * Method to get the nucleotide sequence.
+     * Method to get the name of the sequence.
+     * @return the name of the sequence, empty if it has none.
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Method to get whether the sequence is held in packed storage.
+     * @return true if the sequence is packed.
+     */
+    public boolean isPacked() {
+        return this.packedData != null;
+    }
+
+    /**
+     * Method to get whether the sequence is a lazy view over another sequence's storage.
+     * @return true if the sequence is a view.
+     */
+    public boolean isView() {
+        return this.view != null;
+    }
+
+    /**
+     * Method to get the nucleotide sequence. Packed sequences return an unpacked copy, and views are copied out
+     * into this sequence's own storage the first time this is called. Cached results are matched to the sequence
+     * again on their next use, as the caller may change what it gets, but the subsequence index is kept.
      * @return the nucleotide sequence.
      */
     public StringBuilder getSequenceData() {
+        if (this.view != null) {
+            this.sequenceData = COPY.time(this.view.length(), () -> this.view.toStringBuilder());
+            this.view = null;
+        } else if (this.packedData != null) {
+            return COPY.time(this.packedData.length(), () -> this.packedData.toStringBuilder());
+        } else if (this.shared) {
+            //Views still read the old StringBuilder, so the caller gets a copy it is free to change
+            this.sequenceData = COPY.time(this.sequenceData.length(), () -> new StringBuilder(this.sequenceData));
+            this.shared = false;
+        }
+        this.cacheDigest = null;
         return this.sequenceData;
     }
 
     /**
-     * Method to get the sequence in a DNA format.
-     * @return the sequence in a DNA format.
+     * Method to get the packed nucleotide sequence.
+     * @return the packed sequence, or null if the sequence is not packed.
      */
-    public Sequence getDNA () {
-        //Temporary copy of the sequenceData
-        StringBuilder output = new StringBuilder(this.sequenceData.toString());
+    public PackedSequence getPackedData() {
+        return this.packedData;
+    }
 
-        //Replaces U's with T's
-        for(int i = 0; i < output.length(); i++) {
-            if(output.charAt(i) == 'U') {
-                output.replace(i, i + 1, "T");
-            }
+    /**
+     * Method to get the sequence in packed storage, packing it if it isn't already.
+     * @return the packed sequence, shared with this sequence if it is already packed.
+     */
+    PackedSequence toPackedSequence() {
+        boolean rna = this.sequenceType.equals("RNA");
+        if (this.view != null) {
+            return this.view.toPackedSequence(rna);
         }
+        return this.packedData != null ? this.packedData : PackedSequence.pack(this.sequenceData, rna);
+    }
+
+    /**
+     * Method to get the length of the sequence without copying packed storage.
+     * @return the number of nucleotides.
+     */
+    public int length() {
+        return data().length();
+    }
 
-        return new Sequence(!this.forwardStrand, computeOtherReadingFrame(), "DNA", output.toString());
+    /**
+     * Method to get a single nucleotide without copying packed storage.
+     * @param index the index of the nucleotide.
+     * @return the nucleotide.
+     */
+    public char charAt(int index) {
+        return data().charAt(index);
+    }
+
+    /**
+     * Method to get the sequence in a DNA format. The result is a view, nothing is copied.
+     * @return the sequence in a DNA format.
+     */
+    public Sequence getDNA () {
+        return trusted(!this.forwardStrand, computeOtherReadingFrame(), "DNA", currentView().withRNA(false));
     }
 
     /**
@@ -186,39 +415,37 @@ public class Sequence {
      * @return the sequence in a DNA format.
      */
     public Sequence toDNA () {
-        //Replaces U's with T's
-        for(int i = 0; i < this.sequenceData.length(); i++) {
-            if(this.sequenceData.charAt(i) == 'U') {
-                this.sequenceData.replace(i, i + 1, "T");
-            }
+        //Replaces U's with T's in place, packed sequences and views only need a flag changed
+        if (this.view != null) {
+            this.view = this.view.withRNA(false);
+        } else if (this.packedData == null) {
+            CONVERT.time(this.sequenceData.length(), () -> {
+                unshare();
+                NucleotideTransforms.toDNA(this.sequenceData);
+            });
         }
 
         //Switches variables to DNA format
+        this.subsequenceIndex = null;
+        this.cacheDigest = null;
+        this.validationReport = null;
         this.setSequenceType("DNA");
+        if (this.packedData != null) {
+            this.packedData = this.packedData.withRNA(false);
+        }
         this.readingFrame = computeOtherReadingFrame();
         this.forwardStrand = !this.forwardStrand;
 
         //Returns sequence
-        return new Sequence(!this.forwardStrand, this.readingFrame, "DNA", this.sequenceData.toString());
+        return trusted(!this.forwardStrand, this.readingFrame, "DNA", currentView());
     }
 
     /**
-     * Method to get the sequence in an RNA format.
+     * Method to get the sequence in an RNA format. The result is a view, nothing is copied.
      * @return the sequence in an RNA format.
      */
     public Sequence getRNA () {
-        //Temporary copy of sequenceData
-        StringBuilder output = new StringBuilder(this.sequenceData.toString());
-
-        //Replaces the T's with U's
-        for(int i = 0; i < output.length(); i++) {
-            if(output.charAt(i) == 'T') {
-                output.replace(i, i + 1, "U");
-            }
-        }
-
-        //Returns sequence
-        return new Sequence(!this.forwardStrand, computeOtherReadingFrame(), "RNA", output.toString());
+        return trusted(!this.forwardStrand, computeOtherReadingFrame(), "RNA", currentView().withRNA(true));
     }
 
     /**
@@ -226,106 +453,210 @@ public class Sequence {
      * @return the sequence in an RNA format.
      */
     public Sequence toRNA () {
-        //Replaces the T's with U's
-        for(int i = 0; i < this.sequenceData.length(); i++) {
-            if(this.sequenceData.charAt(i) == 'T') {
-                this.sequenceData.replace(i, i + 1, "U");
-            }
+        //Replaces the T's with U's in place, packed sequences and views only need a flag changed
+        if (this.view != null) {
+            this.view = this.view.withRNA(true);
+        } else if (this.packedData == null) {
+            CONVERT.time(this.sequenceData.length(), () -> {
+                unshare();
+                NucleotideTransforms.toRNA(this.sequenceData);
+            });
         }
 
         //Switches variables to RNA format
+        this.subsequenceIndex = null;
+        this.cacheDigest = null;
+        this.validationReport = null;
         this.setSequenceType("RNA");
+        if (this.packedData != null) {
+            this.packedData = this.packedData.withRNA(true);
+        }
         this.readingFrame = computeOtherReadingFrame();
         this.forwardStrand = !this.forwardStrand;
 
         //Returns sequence
-        return new Sequence(this.forwardStrand, this.readingFrame, "RNA", this.sequenceData.toString());
+        return trusted(this.forwardStrand, this.readingFrame, "RNA", currentView());
     }
 
     /**
-     * Method to get the complimentary strand.
+     * Method to get the complimentary strand. The result is a view, nothing is copied.
      * @return the complimentary strand.
      */
     public Sequence getComplimentary () {
-        //Temporary String to fill in with complimentary strand
-        StringBuilder output = new StringBuilder();
-
-        //Goes through each nucleotide and adds base-pair to output
-        for (int i = 0; i < this.sequenceData.length(); i++) {
-            switch(this.sequenceData.charAt(i)) {
-                case 'A':
-                    if(this.sequenceType.equalsIgnoreCase("DNA")) {
-                        output.append("T");
-                    } else if (this.sequenceType.equalsIgnoreCase("RNA")) {
-                        output.append("U");
-                    }
-                    break;
-                case 'T', 'U':
-                    output.append("A");
-                    break;
-                case 'C':
-                    output.append("G");
-                    break;
-                case 'G':
-                    output.append("C");
-                    break;
-            }
-        }
-
-        //Returns sequence
-        return new Sequence(!this.forwardStrand, computeOtherReadingFrame(), this.sequenceType, output.toString());
+        SequenceView output = currentView().getComplimentary(this.sequenceType.equals("RNA"));
+        return trusted(!this.forwardStrand, computeOtherReadingFrame(), this.sequenceType, output);
     }
 
     /**
-     * Method to get the reverse complimentary strand.
+     * Method to get the reverse complimentary strand. The result is a view, nothing is copied.
      * @return the reverse complimentary strand.
      */
     public Sequence getComplimentaryReverse () {
-        //Temporary String to fill in with complimentary strand
-        StringBuilder output = new StringBuilder();
-
-        //Goes through each nucleotide and adds base-pair to output
-        for (int i = 0; i < this.sequenceData.length(); i++) {
-            switch(this.sequenceData.charAt(i)) {
-                case 'A':
-                    if(this.sequenceType.equalsIgnoreCase("DNA")) {
-                        output.append("T");
-                    } else if (this.sequenceType.equalsIgnoreCase("RNA")) {
-                        output.append("U");
-                    }
-                    break;
-                case 'T', 'U':
-                    output.append("A");
-                    break;
-                case 'C':
-                    output.append("G");
-                    break;
-                case 'G':
-                    output.append("C");
-                    break;
-            }
-        }
-
-        //Returns sequence
-        return new Sequence(!this.forwardStrand, this.readingFrame, this.sequenceType, output.toString()).getReverse();
+        //Same strand and reading frame as taking the complimentary strand and then its reverse
+        int reverseFrame = computeOtherReadingFrame(!this.forwardStrand, this.readingFrame, this.length());
+        SequenceView output = currentView().getComplimentary(this.sequenceType.equals("RNA")).getReverse();
+        return trusted(this.forwardStrand, reverseFrame, this.sequenceType, output);
     }
 
     /**
-     * Method to get the reverse strand of the sequence.
+     * Method to get the reverse strand of the sequence. The result is a view, nothing is copied.
      * @return the reverse strand.
      */
 
     public Sequence getReverse () {
-        //Creates temporary String to add to
-        StringBuilder output = new StringBuilder();
+        return trusted(!this.forwardStrand, computeOtherReadingFrame(), this.sequenceType, currentView().getReverse());
+    }
 
-        //Goes through the sequence backwards and adds each nucleotide to the output
-        for(int i = this.sequenceData.length() - 1; i >= 0; i--) {
-            output.append(this.sequenceData.charAt(i));
+    /**
+     * Method to get a region of the sequence as a new sequence. The region is copied, so it stays the same if this
+     * sequence changes, and it is not checked for non-nucleotide characters again.
+     * @param start the index of the first nucleotide.
+     * @param end the index after the last nucleotide.
+     * @return the region, with the same strand, reading frame and type as this sequence.
+     */
+    public Sequence getRegion (int start, int end) {
+        if (start < 0 || end > length() || start > end) {
+            throw new IndexOutOfBoundsException("Region " + start + "-" + end + " is outside of a sequence of length " + length());
         }
+        return COPY.time(end - start, () -> {
+            StringBuilder region = new StringBuilder(end - start).append(data(), start, end);
+            return trusted(this.forwardStrand, this.readingFrame, this.sequenceType, new SequenceView(region));
+        });
+    }
 
-        //Returns sequence
-        return new Sequence(!this.forwardStrand, computeOtherReadingFrame(), this.sequenceType, output.toString());
+    /**
+     * Method to build a subsequence index so that {@link #getIndex(String)}, {@link #getIndexes(String)} and
+     * {@link #countSubsequence(String)} take time proportional to the subsequence length. The index is dropped
+     * when the sequence is changed through this class, call this again after editing {@link #getSequenceData()}.
+     */
+    public void buildSubsequenceIndex() {
+        this.subsequenceIndex = BUILD_INDEX.time(length(), () -> cached(ResultCache.INDEX, () -> FMIndex.build(data()),
+                "subsequenceIndex"));
+    }
+
+    /**
+     * Method to save the subsequence index so it does not need to be rebuilt on the next run.
+     * @param file the index file.
+     */
+    public void saveSubsequenceIndex(File file) throws IOException {
+        if (this.subsequenceIndex == null) {
+            buildSubsequenceIndex();
+        }
+        this.subsequenceIndex.save(file);
+    }
+
+    /**
+     * Method to load a subsequence index saved by {@link #saveSubsequenceIndex(File)}.
+     * @param file the index file.
+     * @throws IOException if the file cannot be read or was built from a different sequence.
+     */
+    public void loadSubsequenceIndex(File file) throws IOException {
+        FMIndex loaded = FMIndex.load(file);
+        if (loaded.length() != this.length() || !MessageDigest.isEqual(loaded.getTextDigest(), getContentDigest())) {
+            throw new IOException("Index file " + file + " was built from a different sequence");
+        }
+        this.subsequenceIndex = loaded;
+    }
+
+    /**
+     * Method to get the subsequence index, used to store it in a {@link SequenceArchive}.
+     * @return the index, or null if none has been built or loaded.
+     */
+    FMIndex getSubsequenceIndex() {
+        return this.subsequenceIndex;
+    }
+
+    /**
+     * Method to use an index that was stored with the sequence, skipping the digest check of
+     * {@link #loadSubsequenceIndex(File)}.
+     * @param index the index of this sequence.
+     */
+    void setSubsequenceIndex(FMIndex index) {
+        if (index.length() != this.length()) {
+            throw new IllegalArgumentException("Index of " + index.length() + " nucleotides doesn't match a sequence of " + this.length());
+        }
+        this.subsequenceIndex = index;
+    }
+
+    /**
+     * Method to check whether a subsequence index has been built or loaded.
+     * @return true if there is a subsequence index.
+     */
+    public boolean hasSubsequenceIndex() {
+        return this.subsequenceIndex != null;
+    }
+
+    /**
+     * Method to get a hash of the nucleotides. It is quick but different sequences can share it, use
+     * {@link #getContentDigest()} to tell sequences apart.
+     * @return the content hash.
+     */
+    public long getContentHash() {
+        return contentHash(data());
+    }
+
+    /**
+     * Method to get a SHA-256 digest of the nucleotides, used to match saved indexes to their sequence,
+     * see {@link ParallelScanner#digest(CharSequence)}.
+     * @return the 32-byte digest.
+     */
+    public byte[] getContentDigest() {
+        return HASH.time(length(), () -> new ParallelScanner().digest(data()));
+    }
+
+    /**
+     * Method to hash a nucleotide sequence (64-bit FNV-1a over the characters).
+     * @param sequenceData the nucleotide sequence.
+     * @return the content hash.
+     */
+    public static long contentHash(CharSequence sequenceData) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < sequenceData.length(); i++) {
+            hash = (hash ^ sequenceData.charAt(i)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Method to cache the results of translation, amino acid and k-mer counting, open reading frame searches and
+     * subsequence indexes for every sequence, see {@link ResultCache}. Results are matched to sequences by content,
+     * so sequences with the same nucleotides share them. Edits made through {@link #getSequenceData()} after a result
+     * is cached aren't seen, as with the subsequence index.
+     * @param cache the cache, or null to stop caching.
+     */
+    public static void setResultCache(ResultCache cache) {
+        resultCache = cache;
+    }
+
+    /**
+     * Method to get the cache set with {@link #setResultCache(ResultCache)}.
+     * @return the cache, or null if results aren't cached.
+     */
+    public static ResultCache getResultCache() {
+        return resultCache;
+    }
+
+    /**
+     * Method to get every index where a subsequence appears, overlapping ones included.
+     * @param subsequence the subsequence to search for.
+     * @return the sorted indexes, empty if not found.
+     */
+    public int[] getIndexes (String subsequence) {
+        return SEARCH.time(searchedLength(), () -> indexes(subsequence.toUpperCase()));
+    }
+
+    /**
+     * Method to count how many times a subsequence appears, overlapping ones included.
+     * @param subsequence the subsequence to search for.
+     * @return the number of times the subsequence appears.
+     */
+    public int countSubsequence (String subsequence) {
+        return SEARCH.time(searchedLength(), () -> {
+            if (this.subsequenceIndex != null) {
+                return this.subsequenceIndex.count(subsequence.toUpperCase());
+            }
+            return indexes(subsequence.toUpperCase()).length;
+        });
     }
 
     /**
@@ -334,86 +665,241 @@ public class Sequence {
      * @return the index the subsequence appears. -1 if not found.
      */
     public int getIndex (String subsequence) {
-        return this.sequenceData.indexOf(subsequence.toUpperCase());
+        return SEARCH.time(searchedLength(), () -> {
+            if (this.subsequenceIndex != null) {
+                return this.subsequenceIndex.locateFirst(subsequence.toUpperCase());
+            }
+            return indexOf(subsequence.toUpperCase(), 0);
+        });
+    }
+
+    private int[] indexes (String pattern) {
+        if (this.subsequenceIndex != null) {
+            return this.subsequenceIndex.locateAll(pattern);
+        }
+
+        //Without an index every match is found by scanning
+        int[] output = new int[16];
+        int count = 0;
+        int index = indexOf(pattern, 0);
+        while (index != -1) {
+            if (count == output.length) {
+                output = Arrays.copyOf(output, count * 2);
+            }
+            output[count++] = index;
+            index = indexOf(pattern, index + 1);
+        }
+        return Arrays.copyOf(output, count);
+    }
+
+    private long searchedLength() {
+        //Indexed searches don't scan the sequence, so they count as no nucleotides processed
+        return this.subsequenceIndex != null ? 0 : length();
     }
 
     /**
-     * Method to print the nucleotide sequence in the console.
+     * Method to find every occurrence of several motifs on both strands in a single pass, see {@link MotifSearcher}.
+     * @param motifs the motifs to search for. Case is ignored.
+     * @param listener receives each hit as it is found.
+     * @return the number of hits.
      */
-    public void printSequence() {
-        System.out.println(this.getSequenceData());
+    public long searchMotifs (Collection<String> motifs, MotifListener listener) {
+        return SEARCH_MOTIFS.time(length(),
+                () -> new MotifSearcher(motifs, this.sequenceType.equals("RNA")).search(data(), listener));
     }
 
     /**
-     * Method to print the amounts of the different types of amino acids in the console.
+     * Method to find every place a pattern appears on either strand with a few mismatches or edits, see {@link ApproximateSearcher}.
+     * @param pattern the pattern, up to 64 nucleotides or IUPAC codes.
+     * @param maxDistance the most mismatches or edits a hit may have.
+     * @param allowIndels false to count only mismatches, true to count insertions and deletions as well.
+     * @param listener receives each hit as it is found.
+     * @return the number of hits.
      */
-    public void printAminoAcids() {
-        //Gets the DNA format of the sequence to read
-        Sequence dnaFormat = this;
-        if (this.sequenceType == "RNA") {
-            dnaFormat = this.getDNA();
-        }
-
-        //Initializes all the amino acids
-        int alanine = 0, arginine = 0, aspartic = 0, cysteine = 0, glutamic = 0, glutamine = 0, glycine = 0,
-                histadine = 0, isoleucine = 0, leucine = 0, lysine = 0, methionine = 0, phenyalanine = 0, proline = 0,
-                serine = 0, asparagine = 0, stop = 0, threonine = 0, tyrosine = 0, tryptophan = 0, valine = 0;
-
-        //Notes the reading frame and goes through the nucleotides by 3s and counts the amino acids that would be produced
-        for (int i = dnaFormat.readingFrame - 1; i < dnaFormat.getSequenceData().length(); i += 3)
-        {
-            if (i + 3 <= dnaFormat.getSequenceData().length())
-            {
-
-                switch (dnaFormat.getSequenceData().substring(i, i + 3)) {
-                    case "GCT", "GCC", "GCA", "GCG" -> alanine++;
-                    case "CGA", "AGA", "AGG", "CGT", "CGC", "CGG" -> arginine++;
-                    case "GAT", "GAC" -> aspartic++;
-                    case "TGT", "TGC" -> cysteine++;
-                    case "GAG", "GAA" -> glutamic++;
-                    case "CAA", "CAG" -> glutamine++;
-                    case "GGT", "GGC", "GGA" -> glycine++;
-                    case "CAC", "CAT" -> histadine++;
-                    case "ATA", "ATC", "ATT" -> isoleucine++;
-                    case "CTT", "CTG", "CTA", "CTC", "TTA", "TTG" -> leucine++;
-                    case "AAG" -> lysine++;
-                    case "ATG" -> methionine++;
-                    case "TTC" -> phenyalanine++;
-                    case "CCT", "CCG", "CCA" -> proline++;
-                    case "TCA", "TCC", "TCT", "TCG", "AGT", "AGC" -> serine++;
-                    case "AAC", "AAT" -> asparagine++;
-                    case "TAA", "TAG", "TGA" -> stop++;
-                    case "ACT", "ACA", "ACG", "ACC" -> threonine++;
-                    case "TAT", "TAC" -> tyrosine++;
-                    case "TGG" -> tryptophan++;
-                    case "GTC", "GTA", "GTG", "GTT" -> valine++;
+    public long searchApproximate (String pattern, int maxDistance, boolean allowIndels, ApproximateMatchListener listener) {
+        return SEARCH_APPROXIMATE.time(length(),
+                () -> new ApproximateSearcher(pattern, maxDistance, allowIndels).search(data(), listener));
+    }
+
+    private int indexOf (String subsequence, int fromIndex) {
+        if (this.view != null) {
+            //Views are searched in place rather than copied out
+            int last = this.view.length() - subsequence.length();
+            for (int i = Math.max(fromIndex, 0); i <= last; i++) {
+                int j = 0;
+                while (j < subsequence.length() && this.view.charAt(i + j) == subsequence.charAt(j)) {
+                    j++;
+                }
+                if (j == subsequence.length()) {
+                    return i;
                 }
             }
+            return -1;
         }
+        if (this.packedData != null) {
+            return this.packedData.indexOf(subsequence, fromIndex);
+        }
+        return this.sequenceData.indexOf(subsequence, fromIndex);
+    }
+
+    /**
+     * Method to print the nucleotide sequence in the console. It is written a buffer at a time, so nothing the size
+     * of the sequence is made, even for views.
+     */
+    public void printSequence() {
+        try {
+            SequenceWriter writer = new SequenceWriter(System.out, 0, false);
+            writeSequence(writer);
+            if (length() == 0) {
+                //Still ends the line, as println did
+                writer.write("\n");
+            }
+            writer.flush();
+        } catch (IOException e) {
+            //PrintStream never throws
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Method to write the nucleotide sequence, wrapped the way the writer is set up to. Views are written without
+     * being copied out.
+     * @param writer where the sequence is written.
+     */
+    public void writeSequence(SequenceWriter writer) throws IOException {
+        writer.writeSequence(data());
+    }
+
+    /**
+     * Method to translate the sequence from its reading frame, using the standard genetic code.
+     * @return the protein, one letter per codon with '*' for stop codons.
+     */
+    public String getProtein() {
+        return getProtein(GeneticCode.STANDARD);
+    }
+
+    /**
+     * Method to translate the sequence from its reading frame.
+     * @param geneticCode the translation table to use.
+     * @return the protein, one letter per codon with '*' for stop codons.
+     */
+    public String getProtein(GeneticCode geneticCode) {
+        int start = Math.abs(this.readingFrame) - 1;
+        return TRANSLATE.time(length(), () -> cached(ResultCache.TEXT, () -> new ParallelScanner().translate(geneticCode, data(), start),
+                "translate", geneticCode.getTableId(), start));
+    }
+
+    /**
+     * Method to count the amino acids coded from the reading frame, using the standard genetic code.
+     * @return the counts, indexed the same as {@link GeneticCode#AMINO_ACIDS}.
+     */
+    public int[] countAminoAcids() {
+        return countAminoAcids(GeneticCode.STANDARD);
+    }
+
+    /**
+     * Method to count the amino acids coded from the reading frame. U's are read as T's so RNA needs no conversion.
+     * @param geneticCode the translation table to use.
+     * @return the counts, indexed the same as {@link GeneticCode#AMINO_ACIDS}.
+     */
+    public int[] countAminoAcids(GeneticCode geneticCode) {
+        int start = Math.abs(this.readingFrame) - 1;
+        return COUNT_AMINO_ACIDS.time(length(), () -> cached(ResultCache.COUNTS,
+                () -> new ParallelScanner().countAminoAcids(geneticCode, data(), start), "countAminoAcids", geneticCode.getTableId(), start));
+    }
+
+    /**
+     * Method to find the open reading frames in all six frames, using the standard genetic code.
+     * @param minimumLength the fewest amino acids an open reading frame needs, not counting the stop codon.
+     * @return the open reading frames, with coordinates on this sequence.
+     */
+    public List<OpenReadingFrame> findOpenReadingFrames(int minimumLength) {
+        return FIND_ORFS.time(length(), () -> cached(ResultCache.READING_FRAMES, () -> new OrfFinder(minimumLength).find(data()),
+                "findOpenReadingFrames", GeneticCode.STANDARD.getTableId(), minimumLength));
+    }
+
+    /**
+     * Method to find the open reading frames in all six frames, see {@link OrfFinder}.
+     * @param geneticCode the translation table, which decides the start and stop codons.
+     * @param minimumLength the fewest amino acids an open reading frame needs, not counting the stop codon.
+     * @return the open reading frames, with coordinates on this sequence.
+     */
+    public List<OpenReadingFrame> findOpenReadingFrames(GeneticCode geneticCode, int minimumLength) {
+        return FIND_ORFS.time(length(), () -> cached(ResultCache.READING_FRAMES,
+                () -> new OrfFinder(geneticCode, minimumLength, ForkJoinPool.commonPool()).find(data()), "findOpenReadingFrames",
+                geneticCode.getTableId(), minimumLength));
+    }
+
+    /**
+     * Method to count every k-mer in the sequence, see {@link KmerCounter}.
+     * @param k the k-mer length, 1 to 31.
+     * @param canonical true to count each k-mer together with its reverse compliment.
+     * @return the counts, keyed by packed k-mer.
+     */
+    public KmerTable countKmers(int k, boolean canonical) {
+        return COUNT_KMERS.time(length(), () -> cached(ResultCache.KMERS, () -> new KmerCounter(k, canonical).count(data()),
+                "countKmers", k, canonical));
+    }
+
+    /**
+     * Method to sketch the canonical k-mers of the sequence, for fast comparison with other sequences, see
+     * {@link MinHashSketch}.
+     * @param k the k-mer length, 1 to 31.
+     * @param size the most hashes kept, more give closer estimates.
+     * @return the sketch, named after the sequence.
+     */
+    public MinHashSketch sketch(int k, int size) {
+        return SKETCH.time(length(), () -> MinHashSketch.sketch(getName(), data(), k, size));
+    }
+
+    /**
+     * Method to profile the composition of the sequence in sliding windows, see {@link WindowProfiler}.
+     * @param windowSize the length of each window.
+     * @param stepSize the distance between the starts of neighbouring windows.
+     * @param listener receives each window in order.
+     * @return the number of windows.
+     */
+    public long profileWindows(int windowSize, int stepSize, WindowListener listener) {
+        return PROFILE_WINDOWS.time(length(), () -> new WindowProfiler(windowSize, stepSize).profile(data(), listener));
+    }
+
+    /**
+     * Method to align this sequence, and its reverse compliment, to another sequence, see {@link Aligner}.
+     * @param target the sequence to align to.
+     * @param aligner the alignment mode and scoring.
+     * @return the better scoring of the two alignments. For the reverse strand, query coordinates are on the reverse
+     * compliment of this sequence.
+     */
+    public Alignment align(Sequence target, Aligner aligner) {
+        //Counted as the nucleotides of both sequences, on both strands
+        return ALIGN.time(2L * (length() + target.length()), () -> {
+            Alignment forward = aligner.align(data(), target.data());
+            Alignment reverse = aligner.align(getComplimentaryReverse().data(), target.data()).onReverseStrand();
+            return reverse.getScore() > forward.getScore() ? reverse : forward;
+        });
+    }
+
+    /**
+     * Method to print the amounts of the different types of amino acids in the console.
+     */
+    public void printAminoAcids() {
+        printAminoAcids(GeneticCode.STANDARD);
+    }
+
+    /**
+     * Method to print the amounts of the different types of amino acids in the console.
+     * @param geneticCode the translation table to use.
+     */
+    public void printAminoAcids(GeneticCode geneticCode) {
+        //Counts the amino acids from the reading frame
+        int[] counts = countAminoAcids(geneticCode);
 
         //Prints the results
-        System.out.println("Alanine: " + alanine);
-        System.out.println("Arginine: " + arginine);
-        System.out.println("Aspartic acid: " + aspartic);
-        System.out.println("Cysteine: " + cysteine);
-        System.out.println("Glutamic acid: " + glutamic);
-        System.out.println("Glutamine: " + glutamine);
-        System.out.println("Glycine: " + glycine);
-        System.out.println("Histadine: " + histadine);
-        System.out.println("Isoleucine: " + isoleucine);
-        System.out.println("Leucine: " + leucine);
-        System.out.println("Lysine: " + lysine);
-        System.out.println("Methionine: " + methionine);
-        System.out.println("Phenyalanine: " + phenyalanine);
-        System.out.println("Proline: " + proline);
-        System.out.println("Serine: " + serine);
-        System.out.println("Asparagine: " + asparagine);
-        System.out.println("Stop codon: " + stop);
-        System.out.println("Threonine: " + threonine);
-        System.out.println("Tyrosine: " + tyrosine);
-        System.out.println("Tryptophan: " + tryptophan);
-        System.out.println("Valine: " + valine);
+        for (int i = 0; i < counts.length; i++) {
+            System.out.println(GeneticCode.AMINO_ACID_NAMES[i] + ": " + counts[i]);
+        }
     }
+
     /**
      * Method to print the amounts of the different type of nucleotides in console.
      */
@@ -422,15 +908,22 @@ public class Sequence {
         //Initializes the nucleotides
         int adenine = 0, thymine = 0, guanine = 0, cytosine = 0, uracil = 0;
 
-        //Goes through each nucleotide and counts it
-        for (int i = 0; i < this.sequenceData.length(); i++) {
-            switch (this.sequenceData.charAt(i)) {
-                case 'A' -> adenine++;
-                case 'T' -> thymine++;
-                case 'C' -> cytosine++;
-                case 'G' -> guanine++;
-                case 'U' -> uracil++;
-            }
+        //Goes through each nucleotide and counts it, packed sequences are counted a word at a time and the others by
+        //character in chunks across all cores
+        long[] counts = COUNT_NUCLEOTIDES.time(length(), () -> this.packedData != null ? this.packedData.countBases()
+                : new ParallelScanner().countSymbols(data()));
+        if (this.packedData != null) {
+            adenine = (int) counts[PackedSequence.A];
+            cytosine = (int) counts[PackedSequence.C];
+            guanine = (int) counts[PackedSequence.G];
+            thymine = (int) counts[PackedSequence.T];
+            uracil = thymine;
+        } else {
+            adenine = (int) counts['A'];
+            thymine = (int) counts['T'];
+            cytosine = (int) counts['C'];
+            guanine = (int) counts['G'];
+            uracil = (int) counts['U'];
         }
 
         //Prints the results
@@ -445,10 +938,65 @@ public class Sequence {
     }
 
     private int computeOtherReadingFrame() {
-        if (this.forwardStrand) {
-            return ((this.sequenceData.length() + this.readingFrame - 1) % 3 + 1) * -1;
+        return computeOtherReadingFrame(this.forwardStrand, this.readingFrame, this.length());
+    }
+
+    private static int computeOtherReadingFrame(boolean forwardStrand, int readingFrame, int length) {
+        if (forwardStrand) {
+            return ((length + readingFrame - 1) % 3 + 1) * -1;
         } else {
-            return (this.sequenceData.length() + this.readingFrame + 1) % 3 + 1;
+            return (length + readingFrame + 1) % 3 + 1;
+        }
+    }
+
+    private static Sequence trusted(boolean forwardStrand, int readingFrame, String sequenceType, SequenceView view) {
+        //Builds a view made inside this class, which skips validating it again
+        Sequence output = new Sequence();
+        output.forwardStrand = forwardStrand;
+        output.setReadingFrame(readingFrame);
+        output.sequenceType = sequenceType;
+        output.sequenceData = null;
+        output.view = view;
+        return output;
+    }
+
+    private SequenceView currentView() {
+        //Views of views share the original storage, so a StringBuilder being viewed is marked as shared
+        if (this.view != null) {
+            return this.view;
+        }
+        if (this.packedData != null) {
+            return new SequenceView(this.packedData);
+        }
+        this.shared = true;
+        return new SequenceView(this.sequenceData);
+    }
+
+    private <T> T cached(ResultCache.Type<T> type, Supplier<T> supplier, String operation, Object... parameters) {
+        ResultCache cache = resultCache;
+        if (cache == null) {
+            return supplier.get();
+        }
+
+        //The digest is worked out once and kept until the sequence changes
+        if (this.cacheDigest == null) {
+            this.cacheDigest = getContentDigest();
+        }
+        return cache.get(ResultCache.key(this.cacheDigest, length(), operation, parameters), type, supplier);
+    }
+
+    private void unshare() {
+        //Copies the StringBuilder before changing it if views are still reading it
+        if (this.shared) {
+            this.sequenceData = new StringBuilder(this.sequenceData);
+            this.shared = false;
+        }
+    }
+
+    private CharSequence data() {
+        if (this.view != null) {
+            return this.view;
         }
+        return this.packedData != null ? this.packedData : this.sequenceData;
     }
 }
\ No newline at end of file
@@ -0,0 +1,629 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Binary file (".jgs") of preprocessed sequences that loads without parsing a single base. Each record keeps its name,
+ * strand, reading frame and type, its bases packed 2 bits each in blocks of {@link #BLOCK_BASES}, the runs of
+ * non-ACGTU symbols (see {@link PackedSequence}), and optionally its subsequence index (see {@link FMIndex}). Blocks are
+ * deflated if that makes them smaller, and every block (as stored), mask and index has a CRC-32C that is checked when it is read.
+ * <p>
+ * The file is memory-mapped when read. Stored blocks are copied straight into the packed words and deflated ones
+ * are inflated in parallel, and {@link #fetchBases(String, int, int)} only reads the blocks a region touches.
+ * All numbers are little-endian. The layout is:
+ * <pre>
+ *     header   magic, version, record count, block size, table of contents offset, length and CRC
+ *     records  for each record its blocks, then its masked runs, then its index
+ *     contents for each record its name, metadata and where each of its parts is
+ * </pre>
+ */
+public class SequenceArchive implements Closeable {
+    //Usual file extension
+    public static final String EXTENSION = ".jgs";
+
+    //Nucleotides per block, 1 Mbp or 256 KiB of packed words
+    public static final int BLOCK_BASES = 1 << 20;
+    private static final int BLOCK_WORDS = BLOCK_BASES / 32;
+
+    //Format of the file
+    private static final int MAGIC = 0x4A475341;
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 32;
+
+    //Timing of reading and writing, see Metrics
+    private static final OperationMetrics WRITE = Metrics.operation("SequenceArchive.write");
+    private static final OperationMetrics LOAD = Metrics.operation("SequenceArchive.load");
+
+    //List variables
+    private final File file;
+    private final FileChannel channel;
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+    /**
+     * Constructor for reading an archive. Only the header and table of contents are read until records are loaded.
+     * @param file the archive.
+     * @throws IOException if the file can't be read or isn't an archive.
+     */
+    public SequenceArchive(File file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            if (this.channel.size() < HEADER_SIZE) {
+                throw new IOException("Not a sequence archive: " + file);
+            }
+            ByteBuffer header = map(0, HEADER_SIZE);
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a sequence archive: " + file);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported sequence archive version " + version + ": " + file);
+            }
+            int recordCount = header.getInt();
+            if (header.getInt() != BLOCK_BASES) {
+                throw new IOException("Unsupported block size in " + file);
+            }
+            long contentsOffset = header.getLong();
+            int contentsLength = header.getInt();
+            int contentsCrc = header.getInt();
+
+            //The table of contents is checked before anything in it is trusted
+            if (contentsOffset < HEADER_SIZE || contentsOffset + contentsLength > this.channel.size()) {
+                throw new IOException("Sequence archive is truncated: " + file);
+            }
+            ByteBuffer contents = map(contentsOffset, contentsLength);
+            if (crc(contents.duplicate()) != contentsCrc) {
+                throw new IOException("Checksum mismatch in the table of contents of " + file);
+            }
+            for (int i = 0; i < recordCount; i++) {
+                Entry entry = Entry.read(contents);
+                this.entries.put(entry.name, entry);
+            }
+        } catch (IOException | RuntimeException e) {
+            this.channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Method to write sequences to an archive, compressing the blocks where it helps.
+     * @param file the archive to write, replaced if it exists.
+     * @param sequences the sequences, stored under their names, which must be unique. Subsequence indexes are stored too.
+     */
+    public static void write(File file, List<Sequence> sequences) throws IOException {
+        write(file, sequences, true);
+    }
+
+    /**
+     * Method to write sequences to an archive.
+     * @param file the archive to write, replaced if it exists.
+     * @param sequences the sequences, stored under their names, which must be unique. Subsequence indexes are stored too.
+     * @param compressed true to deflate blocks where it makes them smaller, false to store every block as it is.
+     */
+    public static void write(File file, List<Sequence> sequences, boolean compressed) throws IOException {
+        Set<String> names = new HashSet<>();
+        long nucleotides = 0;
+        for (Sequence sequence : sequences) {
+            if (!names.add(sequence.getName())) {
+                throw new IllegalArgumentException("Two sequences are named \"" + sequence.getName() + "\"");
+            }
+            nucleotides += sequence.length();
+        }
+
+        WRITE.time(nucleotides, () -> {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                channel.position(HEADER_SIZE);
+                List<Entry> entries = new ArrayList<>();
+                for (Sequence sequence : sequences) {
+                    entries.add(writeRecord(channel, sequence, compressed));
+                }
+
+                //Table of contents after the records, so nothing has to be known before they are written
+                int contentsLength = 0;
+                for (Entry entry : entries) {
+                    contentsLength += entry.size();
+                }
+                ByteBuffer contents = ByteBuffer.allocate(contentsLength).order(ByteOrder.LITTLE_ENDIAN);
+                for (Entry entry : entries) {
+                    entry.write(contents);
+                }
+                contents.flip();
+                int contentsCrc = crc(contents.duplicate());
+                long contentsOffset = channel.position();
+                writeFully(channel, contents);
+
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(MAGIC).putInt(VERSION).putInt(entries.size()).putInt(BLOCK_BASES)
+                        .putLong(contentsOffset).putInt(contentsLength).putInt(contentsCrc).flip();
+                channel.position(0);
+                writeFully(channel, header);
+            }
+        });
+    }
+
+    /**
+     * Method to get the names of the records.
+     * @return the names in file order.
+     */
+    public List<String> getNames() {
+        return new ArrayList<>(this.entries.keySet());
+    }
+
+    /**
+     * Method to get the length of a record without loading it.
+     * @param name the record name.
+     * @return the number of nucleotides.
+     */
+    public int getLength(String name) {
+        return entry(name).length;
+    }
+
+    /**
+     * Method to check whether a record has a stored subsequence index.
+     * @param name the record name.
+     * @return true if {@link #load(String)} gives the sequence with its index.
+     */
+    public boolean hasSubsequenceIndex(String name) {
+        return entry(name).indexLength > 0;
+    }
+
+    /**
+     * Method to load a record as it was saved, in packed storage and with its subsequence index if one was stored.
+     * @param name the record name.
+     * @return the sequence.
+     * @throws IOException if the record can't be read or fails its checksums.
+     */
+    public Sequence load(String name) throws IOException {
+        Entry entry = entry(name);
+        Sequence output = new Sequence(entry.forwardStrand, entry.readingFrame, entry.sequenceType, loadPacked(name));
+        output.setName(name);
+        if (entry.indexLength > 0) {
+            output.setSubsequenceIndex(readIndex(entry));
+        }
+        return output;
+    }
+
+    /**
+     * Method to load every record, see {@link #load(String)}.
+     * @return the sequences in file order.
+     */
+    public List<Sequence> loadAll() throws IOException {
+        List<Sequence> output = new ArrayList<>();
+        for (String name : this.entries.keySet()) {
+            output.add(load(name));
+        }
+        return output;
+    }
+
+    /**
+     * Method to load only the bases of a record.
+     * @param name the record name.
+     * @return the packed bases, read as RNA if the record was saved as RNA.
+     * @throws IOException if the record can't be read or fails its checksums.
+     */
+    public PackedSequence loadPacked(String name) throws IOException {
+        Entry entry = entry(name);
+        return LOAD.time(entry.length, () -> {
+            long[] words = readBlocks(entry, 0, entry.blockOffsets.length);
+            Mask mask = readMask(entry);
+            return PackedSequence.of(words, entry.length, entry.sequenceType.equals("RNA"), mask.starts, mask.lengths, mask.symbols);
+        });
+    }
+
+    /**
+     * Method to get the bases of a region, reading only the blocks it touches.
+     * @param name the record name.
+     * @param start the 0-based first position.
+     * @param end the 0-based position after the last base. Values past the end of the record are clipped.
+     * @return the bases of the region.
+     * @throws IOException if the blocks can't be read or fail their checksums.
+     */
+    public StringBuilder fetchBases(String name, int start, int end) throws IOException {
+        Entry entry = entry(name);
+        end = Math.min(end, entry.length);
+        if (start < 0 || start > end) {
+            throw new IllegalArgumentException("Invalid range " + (start + 1) + "-" + end + " for \"" + name + "\" of length " + entry.length);
+        }
+        if (start == end) {
+            return new StringBuilder();
+        }
+
+        //Unpacks the touched blocks with the masked runs moved to match, then trims to the region
+        int firstBlock = start / BLOCK_BASES, lastBlock = (end - 1) / BLOCK_BASES + 1;
+        int offset = firstBlock * BLOCK_BASES;
+        int length = (int) Math.min(entry.length, (long) lastBlock * BLOCK_BASES) - offset;
+        long[] words = readBlocks(entry, firstBlock, lastBlock);
+        Mask mask = readMask(entry).clip(offset, offset + length);
+        StringBuilder output = PackedSequence.of(words, length, entry.sequenceType.equals("RNA"), mask.starts, mask.lengths, mask.symbols).toStringBuilder();
+        output.setLength(end - offset);
+        output.delete(0, start - offset);
+        return output;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+    private Entry entry(String name) {
+        Entry entry = this.entries.get(name);
+        if (entry == null) {
+            throw new IllegalArgumentException("No sequence named \"" + name + "\" in " + this.file);
+        }
+        return entry;
+    }
+
+    private static Entry writeRecord(FileChannel channel, Sequence sequence, boolean compressed) throws IOException {
+        PackedSequence packed = sequence.toPackedSequence();
+        long[] words = packed.getWords();
+        Entry entry = new Entry(sequence.getName(), sequence.isForwardStrand(), sequence.getReadingFrame(), sequence.getSequenceType(),
+                packed.length(), (words.length + BLOCK_WORDS - 1) / BLOCK_WORDS);
+
+        //Blocks are compressed in parallel and written in order, with a few in flight per thread
+        ArrayDeque<Future<Block>> pending = new ArrayDeque<>();
+        int capacity = 2 * ForkJoinPool.getCommonPoolParallelism();
+        int written = 0;
+        for (int i = 0; i < entry.blockOffsets.length; i++) {
+            int first = i * BLOCK_WORDS;
+            pending.add(ForkJoinPool.commonPool().submit(() -> Block.encode(words, first, Math.min(BLOCK_WORDS, words.length - first), compressed)));
+            while (pending.size() >= capacity || (i == entry.blockOffsets.length - 1 && !pending.isEmpty())) {
+                Block block = join(pending.poll());
+                entry.blockOffsets[written] = channel.position();
+                entry.blockLengths[written] = block.data.length;
+                entry.blockCrcs[written] = block.crc;
+                entry.blockCompressed[written] = block.compressed;
+                writeFully(channel, ByteBuffer.wrap(block.data));
+                written++;
+            }
+        }
+
+        //Masked runs as all the starts, then all the lengths, then all the symbols
+        int runs = packed.getMaskRunCount();
+        ByteBuffer mask = ByteBuffer.allocate(10 * runs).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < runs; i++) {
+            mask.putInt(packed.getMaskRunStart(i));
+        }
+        for (int i = 0; i < runs; i++) {
+            mask.putInt(packed.getMaskRunLength(i));
+        }
+        for (int i = 0; i < runs; i++) {
+            mask.putChar(packed.getMaskRunSymbol(i));
+        }
+        mask.flip();
+        entry.maskCount = runs;
+        entry.maskOffset = channel.position();
+        entry.maskCrc = crc(mask.duplicate());
+        writeFully(channel, mask);
+
+        //The subsequence index in the same format as its own files
+        FMIndex index = sequence.getSubsequenceIndex();
+        if (index != null) {
+            entry.indexOffset = channel.position();
+            CheckedOutputStream checked = new CheckedOutputStream(Channels.newOutputStream(channel), new CRC32C());
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(checked, 1 << 16));
+            index.write(out);
+            out.flush();
+            entry.indexLength = channel.position() - entry.indexOffset;
+            entry.indexCrc = (int) checked.getChecksum().getValue();
+        }
+        return entry;
+    }
+
+    private long[] readBlocks(Entry entry, int firstBlock, int lastBlock) throws IOException {
+        //Maps the blocks as one region and fills the words a block per task
+        int totalWords = (entry.length + 31) / 32;
+        int firstWord = firstBlock * BLOCK_WORDS;
+        long[] words = new long[Math.min(totalWords, lastBlock * BLOCK_WORDS) - firstWord];
+        if (firstBlock == lastBlock) {
+            return words;
+        }
+        long regionStart = entry.blockOffsets[firstBlock];
+        long regionEnd = entry.blockOffsets[lastBlock - 1] + entry.blockLengths[lastBlock - 1];
+        ByteBuffer region = map(regionStart, regionEnd - regionStart);
+        try {
+            ForkJoinPool.commonPool().invoke(new ReadTask(entry, region, regionStart, firstBlock, firstBlock, lastBlock, words));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return words;
+    }
+
+    private Mask readMask(Entry entry) throws IOException {
+        ByteBuffer buffer = map(entry.maskOffset, 10L * entry.maskCount);
+        if (crc(buffer.duplicate()) != entry.maskCrc) {
+            throw new IOException("Checksum mismatch in the masked runs of \"" + entry.name + "\" in " + this.file);
+        }
+        Mask output = new Mask(entry.maskCount);
+        buffer.asIntBuffer().get(output.starts);
+        buffer.position(4 * entry.maskCount);
+        buffer.asIntBuffer().get(output.lengths);
+        buffer.position(8 * entry.maskCount);
+        buffer.asCharBuffer().get(output.symbols);
+        return output;
+    }
+
+    private synchronized FMIndex readIndex(Entry entry) throws IOException {
+        //Checks the index before parsing it, a mapped part at a time since it can be larger than a single mapping
+        CRC32C crc = new CRC32C();
+        for (long offset = 0; offset < entry.indexLength; offset += 1 << 30) {
+            crc.update(map(entry.indexOffset + offset, Math.min(1 << 30, entry.indexLength - offset)));
+        }
+        if ((int) crc.getValue() != entry.indexCrc) {
+            throw new IOException("Checksum mismatch in the subsequence index of \"" + entry.name + "\" in " + this.file);
+        }
+
+        //Streaming moves the shared channel position, so this method is synchronized
+        InputStream in = Channels.newInputStream(this.channel.position(entry.indexOffset));
+        return FMIndex.read(new DataInputStream(new BufferedInputStream(in, 1 << 16)), entry.name + " in " + this.file);
+    }
+
+    private ByteBuffer map(long offset, long length) throws IOException {
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Section of " + length + " bytes is too large to map in " + this.file);
+        }
+        if (offset + length > this.channel.size()) {
+            throw new IOException("Sequence archive is truncated: " + this.file);
+        }
+        return this.channel.map(FileChannel.MapMode.READ_ONLY, offset, length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static int crc(ByteBuffer buffer) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer);
+        return (int) crc.getValue();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static <T> T join(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to compress a block", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+
+    /**
+     * A block as stored in the file.
+     */
+    private static class Block {
+        private final byte[] data;
+        private final int crc;
+        private final boolean compressed;
+
+        private Block(byte[] data, int crc, boolean compressed) {
+            this.data = data;
+            this.crc = crc;
+            this.compressed = compressed;
+        }
+
+        static Block encode(long[] words, int first, int count, boolean compress) {
+            ByteBuffer raw = ByteBuffer.allocate(8 * count).order(ByteOrder.LITTLE_ENDIAN);
+            raw.asLongBuffer().put(words, first, count);
+            if (compress) {
+                //Kept only if deflating makes the block smaller
+                Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+                try {
+                    deflater.setInput(raw.array());
+                    deflater.finish();
+                    byte[] output = new byte[raw.capacity()];
+                    int size = deflater.deflate(output);
+                    if (deflater.finished() && size < output.length) {
+                        byte[] data = Arrays.copyOf(output, size);
+                        return new Block(data, crc(ByteBuffer.wrap(data)), true);
+                    }
+                } finally {
+                    deflater.end();
+                }
+            }
+            return new Block(raw.array(), crc(raw), false);
+        }
+    }
+
+    /**
+     * Unpacks a range of blocks into the words, splitting in half until the range is a single block.
+     */
+    private class ReadTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Entry entry;
+        private final ByteBuffer region;
+        private final long regionStart;
+        private final int firstBlock;
+        private final int from;
+        private final int to;
+        private final long[] words;
+
+        ReadTask(Entry entry, ByteBuffer region, long regionStart, int firstBlock, int from, int to, long[] words) {
+            this.entry = entry;
+            this.region = region;
+            this.regionStart = regionStart;
+            this.firstBlock = firstBlock;
+            this.from = from;
+            this.to = to;
+            this.words = words;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from > 1) {
+                int middle = (this.from + this.to) >>> 1;
+                invokeAll(new ReadTask(this.entry, this.region, this.regionStart, this.firstBlock, this.from, middle, this.words),
+                        new ReadTask(this.entry, this.region, this.regionStart, this.firstBlock, middle, this.to, this.words));
+                return;
+            }
+            int block = this.from;
+            int first = (block - this.firstBlock) * BLOCK_WORDS;
+            int count = Math.min(BLOCK_WORDS, this.words.length - first);
+            ByteBuffer stored = this.region.slice((int) (this.entry.blockOffsets[block] - this.regionStart), this.entry.blockLengths[block])
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            if (crc(stored.duplicate()) != this.entry.blockCrcs[block]) {
+                throw failure("Checksum mismatch", block, null);
+            }
+
+            //Deflated blocks are also checked by the Adler-32 at the end of their zlib stream
+            ByteBuffer raw = stored;
+            if (this.entry.blockCompressed[block]) {
+                raw = ByteBuffer.allocate(8 * count).order(ByteOrder.LITTLE_ENDIAN);
+                Inflater inflater = new Inflater();
+                try {
+                    inflater.setInput(stored);
+                    inflater.inflate(raw);
+                    if (!inflater.finished() || raw.hasRemaining()) {
+                        throw failure("Wrong length", block, null);
+                    }
+                } catch (DataFormatException e) {
+                    throw failure("Corrupt data", block, e);
+                } finally {
+                    inflater.end();
+                }
+                raw.flip();
+            }
+            if (raw.remaining() != 8 * count) {
+                throw failure("Wrong length", block, null);
+            }
+            raw.asLongBuffer().get(this.words, first, count);
+        }
+
+        private UncheckedIOException failure(String problem, int block, Throwable cause) {
+            return new UncheckedIOException(new IOException(problem + " in block " + block + " of \"" + this.entry.name + "\" in "
+                    + SequenceArchive.this.file, cause));
+        }
+    }
+
+    /**
+     * Masked runs of a record.
+     */
+    private static class Mask {
+        private final int[] starts;
+        private final int[] lengths;
+        private final char[] symbols;
+
+        Mask(int count) {
+            this.starts = new int[count];
+            this.lengths = new int[count];
+            this.symbols = new char[count];
+        }
+
+        Mask clip(int start, int end) {
+            //Keeps the parts of the runs inside the range, moved to start at 0
+            int first = 0;
+            while (first < this.starts.length && this.starts[first] + this.lengths[first] <= start) {
+                first++;
+            }
+            int last = first;
+            while (last < this.starts.length && this.starts[last] < end) {
+                last++;
+            }
+            Mask output = new Mask(last - first);
+            for (int i = first; i < last; i++) {
+                int runStart = Math.max(this.starts[i], start), runEnd = Math.min(this.starts[i] + this.lengths[i], end);
+                output.starts[i - first] = runStart - start;
+                output.lengths[i - first] = runEnd - runStart;
+                output.symbols[i - first] = this.symbols[i];
+            }
+            return output;
+        }
+    }
+
+    /**
+     * Table of contents entry of a record.
+     */
+    private static class Entry {
+        private final String name;
+        private final boolean forwardStrand;
+        private final int readingFrame;
+        private final String sequenceType;
+        private final int length;
+        private final long[] blockOffsets;
+        private final int[] blockLengths;
+        private final int[] blockCrcs;
+        private final boolean[] blockCompressed;
+        private int maskCount;
+        private long maskOffset;
+        private int maskCrc;
+        private long indexOffset;
+        private long indexLength;
+        private int indexCrc;
+
+        Entry(String name, boolean forwardStrand, int readingFrame, String sequenceType, int length, int blockCount) {
+            this.name = name;
+            this.forwardStrand = forwardStrand;
+            this.readingFrame = readingFrame;
+            this.sequenceType = sequenceType;
+            this.length = length;
+            this.blockOffsets = new long[blockCount];
+            this.blockLengths = new int[blockCount];
+            this.blockCrcs = new int[blockCount];
+            this.blockCompressed = new boolean[blockCount];
+        }
+
+        int size() {
+            return 4 + this.name.getBytes(StandardCharsets.UTF_8).length + 4 + 4 + 4 + 8 + 4 + 8 + 8 + 4 + 4 + 17 * this.blockOffsets.length;
+        }
+
+        void write(ByteBuffer out) {
+            byte[] nameBytes = this.name.getBytes(StandardCharsets.UTF_8);
+            out.putInt(nameBytes.length).put(nameBytes);
+            out.put((byte) (this.forwardStrand ? 1 : 0)).put((byte) this.readingFrame).put((byte) (this.sequenceType.equals("RNA") ? 1 : 0)).put((byte) 0);
+            out.putInt(this.length);
+            out.putInt(this.maskCount).putLong(this.maskOffset).putInt(this.maskCrc);
+            out.putLong(this.indexOffset).putLong(this.indexLength).putInt(this.indexCrc);
+            out.putInt(this.blockOffsets.length);
+            for (int i = 0; i < this.blockOffsets.length; i++) {
+                out.putLong(this.blockOffsets[i]).putInt(this.blockLengths[i]).putInt(this.blockCrcs[i]).put((byte) (this.blockCompressed[i] ? 1 : 0));
+            }
+        }
+
+        static Entry read(ByteBuffer in) {
+            byte[] nameBytes = new byte[in.getInt()];
+            in.get(nameBytes);
+            boolean forwardStrand = in.get() != 0;
+            int readingFrame = in.get();
+            String sequenceType = in.get() != 0 ? "RNA" : "DNA";
+            in.get();
+            int length = in.getInt();
+            int maskCount = in.getInt();
+            long maskOffset = in.getLong();
+            int maskCrc = in.getInt();
+            long indexOffset = in.getLong();
+            long indexLength = in.getLong();
+            int indexCrc = in.getInt();
+            Entry entry = new Entry(new String(nameBytes, StandardCharsets.UTF_8), forwardStrand, readingFrame, sequenceType, length, in.getInt());
+            entry.maskCount = maskCount;
+            entry.maskOffset = maskOffset;
+            entry.maskCrc = maskCrc;
+            entry.indexOffset = indexOffset;
+            entry.indexLength = indexLength;
+            entry.indexCrc = indexCrc;
+            for (int i = 0; i < entry.blockOffsets.length; i++) {
+                entry.blockOffsets[i] = in.getLong();
+                entry.blockLengths[i] = in.getInt();
+                entry.blockCrcs[i] = in.getInt();
+                entry.blockCompressed[i] = in.get() != 0;
+            }
+            return entry;
+        }
+    }
+}
@@ -0,0 +1,495 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Long-running local HTTP server that keeps reference sequences loaded, so many small queries share one warm process
+ * instead of each starting a JVM and parsing the references again. Every endpoint takes GET parameters and answers
+ * with JSON, which is streamed as it is produced:
+ * <pre>
+ *     GET /references                                    names, lengths and types of the loaded references
+ *     GET /sequence?ref=chr1&amp;start=0&amp;end=100&amp;strand=revcomp&amp;type=rna
+ *     GET /search?ref=chr1&amp;pattern=GAATTC,GGATCC[&amp;mismatches=1 or &amp;edits=1]
+ *     GET /count?ref=chr1[&amp;frames=1|3|6&amp;frame=1&amp;table=1]
+ *     GET /metrics                                       the metrics table as text, see {@link Metrics}
+ * </pre>
+ * Regions are 0-based with the end excluded, like the rest of the Sequence class, and default to the whole reference.
+ * Hits are given on the reference. Each request runs on its own virtual thread when the runtime has them (Java 21 and
+ * later) or on a bounded pool of threads otherwise. At most a set number of requests compute at once and a set number
+ * more wait for their turn, anything past that is turned away at once with 503 so an overloaded server stays responsive.
+ */
+public class SequenceServer implements Closeable {
+    //Port used when none is given
+    public static final int DEFAULT_PORT = 8765;
+
+    //Timing of each endpoint, and a count of the requests turned away
+    private static final OperationMetrics SEQUENCE = Metrics.operation("Server.sequence");
+    private static final OperationMetrics SEARCH = Metrics.operation("Server.search");
+    private static final OperationMetrics COUNT = Metrics.operation("Server.count");
+    private static final OperationMetrics REJECTED = Metrics.operation("Server.rejected");
+
+    //Characters written to a response at a time
+    private static final int CHUNK_SIZE = 1 << 13;
+
+    //Turned away requests waiting for their 503, past this their connections are closed without an answer
+    private static final int REJECTED_QUEUE_LENGTH = 1024;
+
+    //Set on the thread answering a request that was turned away
+    private static final ThreadLocal<Boolean> TURNED_AWAY = ThreadLocal.withInitial(() -> false);
+
+    //List variables
+    private final Map<String, Sequence> references;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ExecutorService rejecter;
+    private final boolean virtualThreads;
+    private final Semaphore admitted;
+    private final Semaphore running;
+    private final CountDownLatch stopped = new CountDownLatch(1);
+
+    /**
+     * Constructor for a server, which doesn't answer until {@link #start()} is called.
+     * @param references the references by name. They must not be changed while the server runs.
+     * @param address the address to listen on, usually the loopback address.
+     * @param concurrency the most requests computed at once.
+     * @param queueLength the most requests waiting for their turn.
+     * @throws IOException if the address can't be bound.
+     */
+    public SequenceServer(Map<String, Sequence> references, InetSocketAddress address, int concurrency, int queueLength) throws IOException {
+        if (concurrency < 1 || queueLength < 0) {
+            throw new IllegalArgumentException("A server needs at least one thread and a queue that isn't negative");
+        }
+        this.references = new LinkedHashMap<>(references);
+        this.admitted = new Semaphore(concurrency + queueLength);
+        this.running = new Semaphore(concurrency);
+        ExecutorService virtual = newVirtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        this.executor = virtual != null ? virtual : newBoundedExecutor(concurrency + queueLength);
+        this.rejecter = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new ArrayBlockingQueue<>(REJECTED_QUEUE_LENGTH),
+                daemonThreads("sequence-server-rejecter"), new ThreadPoolExecutor.AbortPolicy());
+        this.server = HttpServer.create(address, queueLength);
+        this.server.setExecutor(this::dispatch);
+        this.server.createContext("/", this::handle);
+    }
+
+    /**
+     * Method to start answering requests.
+     */
+    public void start() {
+        this.server.start();
+    }
+
+    /**
+     * Method to get the address the server listens on, which has the port chosen when port 0 was asked for.
+     * @return the address.
+     */
+    public InetSocketAddress getAddress() {
+        return this.server.getAddress();
+    }
+
+    /**
+     * Method to check whether requests run on virtual threads.
+     * @return true on Java 21 and later, false if a pool of platform threads is used.
+     */
+    public boolean usesVirtualThreads() {
+        return this.virtualThreads;
+    }
+
+    /**
+     * Method to wait until the server is closed.
+     * @throws InterruptedException if the waiting thread is interrupted.
+     */
+    public void awaitClose() throws InterruptedException {
+        this.stopped.await();
+    }
+
+    @Override
+    public void close() {
+        //Requests being answered get a second to finish
+        this.server.stop(1);
+        this.executor.shutdownNow();
+        this.rejecter.shutdownNow();
+        this.stopped.countDown();
+    }
+
+    private static ExecutorService newVirtualThreadExecutor() {
+        //Looked up by reflection so the code still builds and runs on Java 17
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static ExecutorService newBoundedExecutor(int threads) {
+        //One thread per admitted request, so the queue only holds a request for the moment a finished one takes to
+        //give its thread back
+        return new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                daemonThreads("sequence-server"), new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private void dispatch(Runnable exchange) {
+        //Runs on the thread accepting connections, so it only admits the request and hands it on. A request that is
+        //turned away is answered by the rejecter, and if even that is full the server closes the connection
+        if (!this.admitted.tryAcquire()) {
+            REJECTED.record(0, 0, 0);
+            this.rejecter.execute(() -> {
+                TURNED_AWAY.set(true);
+                try {
+                    exchange.run();
+                } finally {
+                    TURNED_AWAY.remove();
+                }
+            });
+            return;
+        }
+        try {
+            this.executor.execute(() -> {
+                //The permit goes back only once the exchange is closed
+                try {
+                    exchange.run();
+                } finally {
+                    this.admitted.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            this.admitted.release();
+            throw e;
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                exchange.getResponseHeaders().set("Allow", "GET");
+                sendError(exchange, 405, "Only GET is supported");
+                return;
+            }
+            if (TURNED_AWAY.get()) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                sendError(exchange, 503, "Too many requests, try again shortly");
+                return;
+            }
+            try {
+                this.running.acquire();
+                try {
+                    route(exchange);
+                } finally {
+                    this.running.release();
+                }
+            } catch (InterruptedException e) {
+                //Server closing while the request waited
+                sendError(exchange, 503, "Server is stopping");
+            }
+        } catch (RequestError e) {
+            sendError(exchange, e.status, e.getMessage());
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            sendError(exchange, 400, e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void route(HttpExchange exchange) throws IOException {
+        Map<String, String> query = parseQuery(exchange.getRequestURI());
+        switch (exchange.getRequestURI().getPath()) {
+            case "/references" -> writeReferences(exchange);
+            case "/sequence" -> writeSequence(exchange, query);
+            case "/search" -> writeHits(exchange, query);
+            case "/count" -> writeCounts(exchange, query);
+            case "/metrics" -> {
+                byte[] report = Metrics.getReport().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+                exchange.sendResponseHeaders(200, report.length);
+                exchange.getResponseBody().write(report);
+            }
+            default -> throw new RequestError(404, "No endpoint " + exchange.getRequestURI().getPath());
+        }
+    }
+
+    private void writeReferences(HttpExchange exchange) throws IOException {
+        try (Writer writer = startJson(exchange)) {
+            writer.write("{\"references\":[");
+            boolean first = true;
+            for (Map.Entry<String, Sequence> entry : this.references.entrySet()) {
+                writer.write(first ? "" : ",");
+                writer.write("{\"name\":" + quote(entry.getKey()) + ",\"length\":" + entry.getValue().length()
+                        + ",\"type\":" + quote(entry.getValue().getSequenceType()) + "}");
+                first = false;
+            }
+            writer.write("]}\n");
+        }
+    }
+
+    private void writeSequence(HttpExchange exchange, Map<String, String> query) throws IOException {
+        //Everything is checked before the response starts, so errors still get their status
+        String name = query.get("ref");
+        Sequence sequence = region(name, query);
+        String strand = query.getOrDefault("strand", "forward");
+        Sequence stranded = switch (strand) {
+            case "forward" -> sequence;
+            case "reverse" -> sequence.getReverse();
+            case "complement" -> sequence.getComplimentary();
+            case "revcomp" -> sequence.getComplimentaryReverse();
+            default -> throw new IllegalArgumentException("strand must be forward, reverse, complement or revcomp");
+        };
+        String type = query.getOrDefault("type", sequence.getSequenceType()).toUpperCase();
+        Sequence output = switch (type) {
+            case "DNA" -> stranded.getDNA();
+            case "RNA" -> stranded.getRNA();
+            default -> throw new IllegalArgumentException("type must be DNA or RNA");
+        };
+        SEQUENCE.time(output.length(), () -> {
+            try (Writer writer = startJson(exchange)) {
+                writer.write("{\"reference\":" + quote(name) + ",\"start\":" + start(query) + ",\"end\":" + (start(query) + output.length())
+                        + ",\"strand\":" + quote(strand) + ",\"type\":" + quote(type) + ",\"sequence\":\"");
+                char[] chunk = new char[Math.max(1, Math.min(CHUNK_SIZE, output.length()))];
+                for (int i = 0; i < output.length(); i += chunk.length) {
+                    int length = Math.min(chunk.length, output.length() - i);
+                    for (int j = 0; j < length; j++) {
+                        chunk[j] = output.charAt(i + j);
+                    }
+                    writer.write(chunk, 0, length);
+                }
+                writer.write("\"}\n");
+            }
+        });
+    }
+
+    private void writeHits(HttpExchange exchange, Map<String, String> query) throws IOException {
+        String name = query.get("ref");
+        Sequence sequence = region(name, query);
+        int offset = start(query);
+        String patterns = query.get("pattern");
+        if (patterns == null || patterns.isEmpty()) {
+            throw new IllegalArgumentException("search needs pattern");
+        }
+        int maxDistance = query.containsKey("edits") ? intParameter(query, "edits", 0) : intParameter(query, "mismatches", -1);
+        boolean allowIndels = query.containsKey("edits");
+        List<ApproximateSearcher> searchers = new ArrayList<>();
+        if (maxDistance >= 0) {
+            for (String pattern : patterns.split(",")) {
+                searchers.add(new ApproximateSearcher(pattern, maxDistance, allowIndels));
+            }
+        }
+
+        //Hits are written as they are found, and reach the client whenever the buffer fills
+        SEARCH.time(sequence.length(), () -> {
+            try (Writer writer = startJson(exchange)) {
+                writer.write("{\"reference\":" + quote(name) + ",\"hits\":[");
+                long[] hits = new long[1];
+                if (maxDistance < 0) {
+                    sequence.searchMotifs(Arrays.asList(patterns.split(",")), (motif, index, forwardStrand) ->
+                            writeJson(writer, (hits[0]++ == 0 ? "" : ",") + "{\"motif\":" + quote(motif) + ",\"index\":" + (offset + index)
+                                    + ",\"strand\":\"" + (forwardStrand ? '+' : '-') + "\"}"));
+                } else {
+                    for (ApproximateSearcher searcher : searchers) {
+                        searcher.search(sequenceData(sequence), (hit, start, end, distance, forwardStrand) ->
+                                writeJson(writer, (hits[0]++ == 0 ? "" : ",") + "{\"pattern\":" + quote(hit) + ",\"start\":" + (offset + start)
+                                        + ",\"end\":" + (offset + end) + ",\"distance\":" + distance + ",\"strand\":\"" + (forwardStrand ? '+' : '-') + "\"}"));
+                    }
+                }
+                writer.write("],\"count\":" + hits[0] + "}\n");
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        });
+    }
+
+    private void writeCounts(HttpExchange exchange, Map<String, String> query) throws IOException {
+        String name = query.get("ref");
+        Sequence sequence = region(name, query);
+        int frames = intParameter(query, "frames", 0);
+        int readingFrame = intParameter(query, "frame", 1);
+        GeneticCode geneticCode = GeneticCode.forTable(intParameter(query, "table", 1));
+        if (frames != 0 && frames != 1 && frames != 3 && frames != 6) {
+            throw new IllegalArgumentException("frames must be 1, 3 or 6");
+        }
+        if (readingFrame == 0 || Math.abs(readingFrame) > 3) {
+            throw new IllegalArgumentException("frame must be 1 to 3 or -1 to -3");
+        }
+        COUNT.time(sequence.length(), () -> {
+            try (Writer writer = startJson(exchange)) {
+                writer.write("{\"reference\":" + quote(name));
+                if (frames == 0) {
+                    long[] counts = new ParallelScanner().countSymbols(sequenceData(sequence));
+                    long adenine = counts['A'], cytosine = counts['C'], guanine = counts['G'], thymine = counts['T'] + counts['U'];
+                    writer.write(",\"A\":" + adenine + ",\"C\":" + cytosine + ",\"G\":" + guanine + ",\""
+                            + (sequence.getSequenceType().equals("RNA") ? "U" : "T") + "\":" + thymine
+                            + ",\"other\":" + (sequence.length() - adenine - cytosine - guanine - thymine));
+                } else {
+                    //Reverse frames are counted on a reverse complimentary view, which copies nothing. The references are
+                    //shared by every request, so their reading frame is never set
+                    int[] readingFrames = switch (frames) {
+                        case 1 -> new int[]{readingFrame};
+                        case 3 -> new int[]{1, 2, 3};
+                        default -> new int[]{1, 2, 3, -1, -2, -3};
+                    };
+                    writer.write(",\"frames\":[");
+                    for (int i = 0; i < readingFrames.length; i++) {
+                        Sequence strand = readingFrames[i] < 0 ? sequence.getComplimentaryReverse() : sequence;
+                        int[] counts = new ParallelScanner().countAminoAcids(geneticCode, sequenceData(strand), Math.abs(readingFrames[i]) - 1);
+                        writer.write((i == 0 ? "" : ",") + "{\"frame\":" + quote(String.format("%+d", readingFrames[i])) + ",\"counts\":{");
+                        for (int j = 0; j < counts.length; j++) {
+                            writer.write((j == 0 ? "" : ",") + quote(String.valueOf(GeneticCode.AMINO_ACIDS.charAt(j))) + ":" + counts[j]);
+                        }
+                        writer.write("}}");
+                    }
+                    writer.write("]");
+                }
+                writer.write("}\n");
+            }
+        });
+    }
+
+    private Sequence region(String name, Map<String, String> query) {
+        //The whole reference is used as it is, a region is copied out of it
+        if (name == null) {
+            throw new IllegalArgumentException("ref is needed");
+        }
+        Sequence reference = this.references.get(name);
+        if (reference == null) {
+            throw new RequestError(404, "No reference named \"" + name + "\"");
+        }
+        int start = start(query);
+        int end = Math.min(intParameter(query, "end", reference.length()), reference.length());
+        if (start == 0 && end == reference.length()) {
+            return reference;
+        }
+        return reference.getRegion(start, end);
+    }
+
+    private static CharSequence sequenceData(Sequence sequence) {
+        //Characters of a sequence without copying it, for the searches and counts that take a CharSequence. Unlike
+        //getSequenceData() this never changes the sequence, so it is safe on a reference other requests are reading
+        return new CharSequence() {
+            @Override
+            public int length() {
+                return sequence.length();
+            }
+
+            @Override
+            public char charAt(int index) {
+                return sequence.charAt(index);
+            }
+
+            @Override
+            public CharSequence subSequence(int start, int end) {
+                return sequence.getRegion(start, end).getSequenceData();
+            }
+
+            @Override
+            public String toString() {
+                return subSequence(0, length()).toString();
+            }
+        };
+    }
+
+    private static int start(Map<String, String> query) {
+        int start = intParameter(query, "start", 0);
+        if (start < 0) {
+            throw new IllegalArgumentException("start can't be negative");
+        }
+        return start;
+    }
+
+    private static int intParameter(Map<String, String> query, String name, int defaultValue) {
+        String value = query.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number for " + name + ": " + value);
+        }
+    }
+
+    private static Map<String, String> parseQuery(URI uri) {
+        Map<String, String> query = new HashMap<>();
+        String raw = uri.getRawQuery();
+        if (raw == null) {
+            return query;
+        }
+        for (String parameter : raw.split("&")) {
+            int split = parameter.indexOf('=');
+            String key = split < 0 ? parameter : parameter.substring(0, split);
+            String value = split < 0 ? "" : parameter.substring(split + 1);
+            query.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+
+    private static Writer startJson(HttpExchange exchange) throws IOException {
+        //A length of 0 sends the response in chunks, so it can be written before its length is known
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(200, 0);
+        return new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8), CHUNK_SIZE);
+    }
+
+    private static void writeJson(Appendable json, String text) {
+        try {
+            json.append(text);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        byte[] body = ("{\"error\":" + quote(message == null ? "Bad request" : message) + "}\n").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    private static String quote(String text) {
+        StringBuilder output = new StringBuilder(text.length() + 2).append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"' -> output.append("\\\"");
+                case '\\' -> output.append("\\\\");
+                case '\n' -> output.append("\\n");
+                case '\r' -> output.append("\\r");
+                case '\t' -> output.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        output.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        output.append(c);
+                    }
+                }
+            }
+        }
+        return output.append('"').toString();
+    }
+
+    /**
+     * A request that can't be answered, with the HTTP status to answer with.
+     */
+    private static class RequestError extends IllegalArgumentException {
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        RequestError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+import java.util.Arrays;
+
+/**
+ * Checks sequences for characters that are not nucleotides with a 256-entry lookup table, one table read per
+ * character. IUPAC ambiguity codes and lowercase (soft-masked) nucleotides can be accepted as options. Long
+ * sequences are checked in parallel chunks, see {@link ParallelScanner#validate(CharSequence, SequenceValidator)}.
+ */
+public class SequenceValidator {
+    //Flags in the lookup table
+    private static final byte INVALID = 1, GAP = 2;
+
+    //Accepts only A, C, G, T and U
+    public static final SequenceValidator STRICT = new SequenceValidator(false, false);
+
+    //List variables
+    private final boolean allowAmbiguity;
+    private final boolean allowSoftMasking;
+    private final byte[] table = new byte[256];
+
+    /**
+     * Constructor for a validator.
+     * @param allowAmbiguity true to accept the IUPAC ambiguity codes (R, Y, S, W, K, M, B, D, H, V and N).
+     * @param allowSoftMasking true to accept lowercase letters for anything that is accepted in uppercase.
+     */
+    public SequenceValidator(boolean allowAmbiguity, boolean allowSoftMasking) {
+        this.allowAmbiguity = allowAmbiguity;
+        this.allowSoftMasking = allowSoftMasking;
+
+        //Everything is invalid unless accepted below, N's are marked as gaps either way
+        Arrays.fill(this.table, INVALID);
+        String accepted = "ACGTU" + (allowAmbiguity ? "RYSWKMBDHVN" : "");
+        for (char symbol : accepted.toCharArray()) {
+            this.table[symbol] = 0;
+            if (allowSoftMasking) {
+                this.table[Character.toLowerCase(symbol)] = 0;
+            }
+        }
+        this.table['N'] |= GAP;
+        this.table['n'] |= GAP;
+    }
+
+    /**
+     * Method to get whether IUPAC ambiguity codes are accepted.
+     * @return true if ambiguity codes are accepted.
+     */
+    public boolean isAllowAmbiguity() {
+        return this.allowAmbiguity;
+    }
+
+    /**
+     * Method to get whether lowercase nucleotides are accepted.
+     * @return true if soft-masked nucleotides are accepted.
+     */
+    public boolean isAllowSoftMasking() {
+        return this.allowSoftMasking;
+    }
+
+    /**
+     * Method to check part of a sequence on the calling thread.
+     * @param sequenceData the sequence.
+     * @param from the index to start at.
+     * @param to the index to stop at.
+     * @return the report for the part checked.
+     */
+    public ValidationReport validate(CharSequence sequenceData, int from, int to) {
+        ValidationReport report = new ValidationReport(to - from);
+        for (int i = from; i < to; i++) {
+            char symbol = sequenceData.charAt(i);
+            byte flags = symbol < 256 ? this.table[symbol] : INVALID;
+            if (flags != 0) {
+                //Runs of the same symbol, such as long N blocks, are added at once
+                int start = i;
+                while (i + 1 < to && sequenceData.charAt(i + 1) == symbol) {
+                    i++;
+                }
+                report.add(symbol, start, i - start + 1, (flags & INVALID) != 0, (flags & GAP) != 0);
+            }
+        }
+        return report;
+    }
+
+    /**
+     * Method to check a packed sequence. Only the masked runs can hold anything other than A, C, G and T, so only
+     * they are checked.
+     * @param packedData the packed sequence.
+     * @return the report.
+     */
+    public ValidationReport validate(PackedSequence packedData) {
+        ValidationReport report = new ValidationReport(packedData.length());
+        for (int run = 0; run < packedData.getMaskRunCount(); run++) {
+            char symbol = packedData.getMaskRunSymbol(run);
+            byte flags = symbol < 256 ? this.table[symbol] : INVALID;
+            if (flags != 0) {
+                report.add(symbol, packedData.getMaskRunStart(run), packedData.getMaskRunLength(run), (flags & INVALID) != 0, (flags & GAP) != 0);
+            }
+        }
+        return report;
+    }
+}
@@ -0,0 +1,139 @@
+/**
+ * Read-only view of a nucleotide sequence that is reversed, complimented and/or converted between DNA and RNA
+ * without copying it. Nucleotides are worked out on demand in {@link #charAt(int)}, and chaining views only
+ * changes flags over the same underlying storage. A view is copied out with {@link #toStringBuilder()} or
+ * {@link #toPackedSequence()} only when it has to be.
+ */
+public class SequenceView implements CharSequence {
+    //Alphabet conversions applied after the other transforms
+    private static final int KEEP = 0, DNA = 1, RNA = 2;
+
+    //List variables
+    private final CharSequence base;
+    private final boolean reversed;
+    private final boolean complimented;
+    private final int alphabet;
+
+    /**
+     * Constructor for an unchanged view of a sequence.
+     * @param base the nucleotides to view. They must not be changed while the view is in use.
+     */
+    public SequenceView(CharSequence base) {
+        this(base, false, false, KEEP);
+    }
+
+    private SequenceView(CharSequence base, boolean reversed, boolean complimented, int alphabet) {
+        this.base = base;
+        this.reversed = reversed;
+        this.complimented = complimented;
+        this.alphabet = alphabet;
+    }
+
+    /**
+     * Method to get the storage the view reads from.
+     * @return the underlying nucleotides.
+     */
+    public CharSequence getBase() {
+        return this.base;
+    }
+
+    @Override
+    public int length() {
+        return this.base.length();
+    }
+
+    @Override
+    public char charAt(int index) {
+        char nucleotide = this.base.charAt(this.reversed ? this.base.length() - 1 - index : index);
+        if (this.complimented) {
+            nucleotide = NucleotideTransforms.compliment(nucleotide, false);
+        }
+        if (this.alphabet != KEEP) {
+            nucleotide = NucleotideTransforms.convert(nucleotide, this.alphabet == RNA);
+        }
+        return nucleotide;
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        StringBuilder output = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            output.append(charAt(i));
+        }
+        return output;
+    }
+
+    /**
+     * Method to get a view of the reverse strand.
+     * @return the reversed view.
+     */
+    public SequenceView getReverse() {
+        return new SequenceView(this.base, !this.reversed, this.complimented, this.alphabet);
+    }
+
+    /**
+     * Method to get a view of the complimentary strand.
+     * @param rna true if A's should pair with U's instead of T's.
+     * @return the complimented view.
+     */
+    public SequenceView getComplimentary(boolean rna) {
+        return new SequenceView(this.base, this.reversed, !this.complimented, rna ? RNA : DNA);
+    }
+
+    /**
+     * Method to get a view in DNA or RNA format.
+     * @param rna true for RNA, false for DNA.
+     * @return the converted view.
+     */
+    public SequenceView withRNA(boolean rna) {
+        return new SequenceView(this.base, this.reversed, this.complimented, rna ? RNA : DNA);
+    }
+
+    /**
+     * Method to copy the view out into characters, using the single-pass transform kernels.
+     * @return a new StringBuilder holding the viewed nucleotides.
+     */
+    public StringBuilder toStringBuilder() {
+        StringBuilder output;
+        if (this.reversed && this.complimented) {
+            output = NucleotideTransforms.getComplimentaryReverse(this.base, false);
+        } else if (this.reversed) {
+            output = NucleotideTransforms.getReverse(this.base);
+        } else if (this.complimented) {
+            output = NucleotideTransforms.getComplimentary(this.base, false);
+        } else {
+            output = new StringBuilder(this.base);
+        }
+        if (this.alphabet == DNA) {
+            NucleotideTransforms.toDNA(output);
+        } else if (this.alphabet == RNA) {
+            NucleotideTransforms.toRNA(output);
+        }
+        return output;
+    }
+
+    /**
+     * Method to copy the view out into packed storage. Packed bases are transformed a word at a time.
+     * @param rna true if T's should be read back as U's when the view does not set the format itself.
+     * @return the packed nucleotides.
+     */
+    public PackedSequence toPackedSequence(boolean rna) {
+        boolean packedRNA = this.alphabet == KEEP ? rna : this.alphabet == RNA;
+        if (!(this.base instanceof PackedSequence packed)) {
+            return PackedSequence.pack(this, packedRNA);
+        }
+        if (this.reversed && this.complimented) {
+            packed = packed.getComplimentaryReverse();
+        } else if (this.reversed) {
+            packed = packed.getReverse();
+        } else if (this.complimented) {
+            packed = packed.getComplimentary();
+        }
+        return packed.withRNA(packedRNA);
+    }
+
+    @Override
+    public String toString() {
+        return toStringBuilder().toString();
+    }
+}
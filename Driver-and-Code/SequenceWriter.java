@@ -0,0 +1,246 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes sequences to a channel a buffer at a time, so a sequence is never copied into one string on the way out.
+ * Nucleotides are read from any {@link CharSequence}, including the views returned by {@link Sequence#getReverse()}
+ * and the like, and encoded as ASCII straight into a fixed buffer, so writing the reverse compliment of a whole
+ * genome takes no more memory than the buffer. Sequences can be wrapped into FASTA lines and the output can be
+ * gzip compressed.
+ */
+public class SequenceWriter implements Closeable, Flushable {
+    //Bytes buffered before they are written to the channel
+    public static final int BUFFER_SIZE = 1 << 16;
+
+    //Usual FASTA line width, 0 writes each sequence on one line
+    public static final int LINE_WIDTH = 60;
+
+    //List variables
+    private final WritableByteChannel channel;
+    private final OutputStream stream;
+    private final GZIPOutputStream gzip;
+    private final int lineWidth;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final char[] characters = new char[BUFFER_SIZE];
+
+    /**
+     * Constructor for a writer to a channel.
+     * @param channel where the bytes are written.
+     * @param lineWidth the nucleotides on each line, or 0 to write each sequence on one line.
+     */
+    public SequenceWriter(WritableByteChannel channel, int lineWidth) {
+        this(channel, null, null, lineWidth);
+    }
+
+    /**
+     * Constructor for a writer to a stream, such as System.out. Closing the writer closes the stream.
+     * @param out where the bytes are written.
+     * @param lineWidth the nucleotides on each line, or 0 to write each sequence on one line.
+     * @param gzip true to gzip compress what is written. Call {@link #finish()} or {@link #close()} to end the
+     * compressed data.
+     */
+    public SequenceWriter(OutputStream out, int lineWidth, boolean gzip) throws IOException {
+        this(out, gzip ? new GZIPOutputStream(out, BUFFER_SIZE) : null, lineWidth);
+    }
+
+    private SequenceWriter(OutputStream out, GZIPOutputStream gzip, int lineWidth) {
+        //Files are written through their own channel, other streams through a wrapper
+        this(gzip == null && out instanceof FileOutputStream file ? file.getChannel() : Channels.newChannel(gzip == null ? out : gzip),
+                gzip == null ? out : gzip, gzip, lineWidth);
+    }
+
+    private SequenceWriter(WritableByteChannel channel, OutputStream stream, GZIPOutputStream gzip, int lineWidth) {
+        if (lineWidth < 0) {
+            throw new IllegalArgumentException("Line width can't be negative");
+        }
+        this.channel = channel;
+        this.stream = stream;
+        this.gzip = gzip;
+        this.lineWidth = lineWidth;
+    }
+
+    /**
+     * Method to open a file to write sequences to, gzip compressed if its name ends in ".gz".
+     * @param file the file.
+     * @param lineWidth the nucleotides on each line, or 0 to write each sequence on one line.
+     * @return the writer, which must be closed.
+     */
+    public static SequenceWriter open(File file, int lineWidth) throws IOException {
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            return new SequenceWriter(out, lineWidth, file.getName().endsWith(".gz"));
+        } catch (IOException e) {
+            out.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Method to write a FASTA record, a header line followed by the wrapped sequence.
+     * @param header the name and description of the record, without the '&gt;'.
+     * @param sequence the sequence.
+     */
+    public void writeRecord(String header, Sequence sequence) throws IOException {
+        writeHeader(header);
+        sequence.writeSequence(this);
+    }
+
+    /**
+     * Method to write a FASTA record, a header line followed by the wrapped sequence.
+     * @param header the name and description of the record, without the '&gt;'.
+     * @param sequenceData the nucleotides.
+     */
+    public void writeRecord(String header, CharSequence sequenceData) throws IOException {
+        writeHeader(header);
+        writeSequence(sequenceData);
+    }
+
+    /**
+     * Method to write a FASTA header line.
+     * @param header the name and description of the record, without the '&gt;'.
+     */
+    public void writeHeader(String header) throws IOException {
+        writeByte('>');
+        encode(header, 0, header.length());
+        writeByte('\n');
+    }
+
+    /**
+     * Method to write nucleotides, wrapped into lines, ending with a line break unless there are none. Characters
+     * outside of ASCII are written as '?'.
+     * @param sequenceData the nucleotides.
+     */
+    public void writeSequence(CharSequence sequenceData) throws IOException {
+        int length = sequenceData.length();
+        int column = 0;
+        for (int i = 0; i < length; ) {
+            int lineEnd = this.lineWidth == 0 ? length : Math.min(length, i + this.lineWidth - column);
+            encode(sequenceData, i, lineEnd);
+            column += lineEnd - i;
+            i = lineEnd;
+            if (column == this.lineWidth) {
+                writeByte('\n');
+                column = 0;
+            }
+        }
+        if (column > 0) {
+            writeByte('\n');
+        }
+    }
+
+    /**
+     * Method to write bytes that are already encoded, such as text or the bases of a {@link ReadBatch}, as they are.
+     * @param bytes the bytes from their position to their limit, which are all consumed.
+     */
+    public void write(ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            if (!this.buffer.hasRemaining()) {
+                drain();
+            }
+            int count = Math.min(bytes.remaining(), this.buffer.remaining());
+            ByteBuffer slice = bytes.slice();
+            slice.limit(count);
+            this.buffer.put(slice);
+            bytes.position(bytes.position() + count);
+        }
+    }
+
+    /**
+     * Method to write text, such as a line of a table. Characters outside of ASCII are written as '?'.
+     * @param text the text.
+     */
+    public void write(CharSequence text) throws IOException {
+        encode(text, 0, text.length());
+    }
+
+    /**
+     * Method to write out what is buffered and flush the stream underneath, if any.
+     */
+    @Override
+    public void flush() throws IOException {
+        drain();
+        if (this.stream != null) {
+            this.stream.flush();
+        }
+    }
+
+    /**
+     * Method to write out what is buffered and end the compressed data, without closing the stream underneath.
+     * Nothing more can be written to a gzip compressed writer after this.
+     */
+    public void finish() throws IOException {
+        flush();
+        if (this.gzip != null) {
+            this.gzip.finish();
+            this.gzip.flush();
+        }
+    }
+
+    /**
+     * Method to write out what is buffered and close the channel or stream.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            drain();
+        } finally {
+            //Closing the gzip stream ends the compressed data
+            if (this.stream != null) {
+                this.stream.close();
+            }
+            this.channel.close();
+        }
+    }
+
+    private void encode(CharSequence text, int start, int end) throws IOException {
+        //Copies the characters into the buffer a buffer at a time, in bulk where the class allows it
+        byte[] bytes = this.buffer.array();
+        while (start < end) {
+            if (!this.buffer.hasRemaining()) {
+                drain();
+            }
+            int position = this.buffer.position();
+            int count = Math.min(end - start, this.buffer.remaining());
+            if (text instanceof String string) {
+                string.getChars(start, start + count, this.characters, 0);
+                encode(this.characters, count, bytes, position);
+            } else if (text instanceof StringBuilder builder) {
+                builder.getChars(start, start + count, this.characters, 0);
+                encode(this.characters, count, bytes, position);
+            } else {
+                for (int i = 0; i < count; i++) {
+                    char c = text.charAt(start + i);
+                    bytes[position + i] = c < 128 ? (byte) c : (byte) '?';
+                }
+            }
+            this.buffer.position(position + count);
+            start += count;
+        }
+    }
+
+    private static void encode(char[] characters, int count, byte[] bytes, int offset) {
+        for (int i = 0; i < count; i++) {
+            char c = characters[i];
+            bytes[offset + i] = c < 128 ? (byte) c : (byte) '?';
+        }
+    }
+
+    private void writeByte(char c) throws IOException {
+        if (!this.buffer.hasRemaining()) {
+            drain();
+        }
+        this.buffer.put((byte) c);
+    }
+
+    private void drain() throws IOException {
+        //Channels can write less than asked, so this loops until the buffer is empty
+        this.buffer.flip();
+        while (this.buffer.hasRemaining()) {
+            this.channel.write(this.buffer);
+        }
+        this.buffer.clear();
+    }
+}
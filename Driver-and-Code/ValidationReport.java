@@ -0,0 +1,233 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Summary of the characters a {@link SequenceValidator} did not accept: how many of each symbol, the first few
+ * indexes they were found at, and the ranges of N blocks (assembly gaps). Building it writes nothing to the console.
+ */
+public class ValidationReport {
+    //Number of invalid indexes kept, and shown by toString
+    public static final int MAX_INDEXES = 10;
+
+    //List variables
+    private int length;
+    private final long[] symbolCounts = new long[256];
+    private Map<Character, Long> otherSymbolCounts;
+    private long invalidCount;
+    private int[] firstIndexes = new int[MAX_INDEXES];
+    private int indexCount;
+    private final List<Range> gaps = new ArrayList<>();
+
+    /**
+     * Constructor for an empty report.
+     * @param length the length of the sequence checked.
+     */
+    ValidationReport(int length) {
+        this.length = length;
+    }
+
+    /**
+     * Method to record a run of the same symbol.
+     * @param symbol the symbol.
+     * @param start the index of the first symbol of the run.
+     * @param count the length of the run.
+     * @param invalid true if the symbol was not accepted.
+     * @param gap true if the symbol is an N, which is kept as part of an N block.
+     */
+    void add(char symbol, int start, int count, boolean invalid, boolean gap) {
+        if (invalid) {
+            if (symbol < 256) {
+                this.symbolCounts[symbol] += count;
+            } else {
+                if (this.otherSymbolCounts == null) {
+                    this.otherSymbolCounts = new TreeMap<>();
+                }
+                this.otherSymbolCounts.merge(symbol, (long) count, Long::sum);
+            }
+            this.invalidCount += count;
+            for (int i = 0; i < count && this.indexCount < MAX_INDEXES; i++) {
+                this.firstIndexes[this.indexCount++] = start + i;
+            }
+        }
+        if (gap) {
+            addGap(start, start + count);
+        }
+    }
+
+    /**
+     * Method to add the report of the part of the sequence straight after this one.
+     * @param right the report of the following part.
+     * @return this report.
+     */
+    ValidationReport merge(ValidationReport right) {
+        this.length += right.length;
+        for (int i = 0; i < this.symbolCounts.length; i++) {
+            this.symbolCounts[i] += right.symbolCounts[i];
+        }
+        if (right.otherSymbolCounts != null) {
+            if (this.otherSymbolCounts == null) {
+                this.otherSymbolCounts = new TreeMap<>();
+            }
+            right.otherSymbolCounts.forEach((symbol, count) -> this.otherSymbolCounts.merge(symbol, count, Long::sum));
+        }
+        this.invalidCount += right.invalidCount;
+        for (int i = 0; i < right.indexCount && this.indexCount < MAX_INDEXES; i++) {
+            this.firstIndexes[this.indexCount++] = right.firstIndexes[i];
+        }
+        for (Range gap : right.gaps) {
+            addGap(gap.start, gap.end);
+        }
+        return this;
+    }
+
+    private void addGap(int start, int end) {
+        //Joins N blocks that touch, such as ones split across chunks
+        int last = this.gaps.size() - 1;
+        if (last >= 0 && this.gaps.get(last).end == start) {
+            this.gaps.set(last, new Range(this.gaps.get(last).start, end));
+        } else {
+            this.gaps.add(new Range(start, end));
+        }
+    }
+
+    /**
+     * Method to get whether every character was accepted.
+     * @return true if nothing invalid was found.
+     */
+    public boolean isValid() {
+        return this.invalidCount == 0;
+    }
+
+    /**
+     * Method to get the length of the sequence checked.
+     * @return the number of characters checked.
+     */
+    public int getLength() {
+        return this.length;
+    }
+
+    /**
+     * Method to get the number of characters that were not accepted.
+     * @return the number of invalid characters.
+     */
+    public long getInvalidCount() {
+        return this.invalidCount;
+    }
+
+    /**
+     * Method to get how many times each invalid symbol was found.
+     * @return the counts, sorted by symbol.
+     */
+    public Map<Character, Long> getInvalidSymbolCounts() {
+        Map<Character, Long> output = new TreeMap<>();
+        for (int i = 0; i < this.symbolCounts.length; i++) {
+            if (this.symbolCounts[i] > 0) {
+                output.put((char) i, this.symbolCounts[i]);
+            }
+        }
+        if (this.otherSymbolCounts != null) {
+            output.putAll(this.otherSymbolCounts);
+        }
+        return output;
+    }
+
+    /**
+     * Method to get the first indexes invalid characters were found at.
+     * @return up to {@link #MAX_INDEXES} indexes, in order.
+     */
+    public int[] getFirstInvalidIndexes() {
+        return Arrays.copyOf(this.firstIndexes, this.indexCount);
+    }
+
+    /**
+     * Method to get the N blocks, whether or not N's were accepted.
+     * @return the ranges of consecutive N's, in order.
+     */
+    public List<Range> getGaps() {
+        return Collections.unmodifiableList(this.gaps);
+    }
+
+    /**
+     * Method to get the total length of the N blocks.
+     * @return the number of N's.
+     */
+    public long getGapLength() {
+        long output = 0;
+        for (Range gap : this.gaps) {
+            output += gap.getLength();
+        }
+        return output;
+    }
+
+    @Override
+    public String toString() {
+        if (isValid() && this.gaps.isEmpty()) {
+            return "No non-nucleotide characters found";
+        }
+        StringBuilder output = new StringBuilder();
+        output.append(this.invalidCount).append(" non-nucleotide characters found");
+        if (!isValid()) {
+            StringBuilder symbols = new StringBuilder();
+            getInvalidSymbolCounts().forEach((symbol, count) -> symbols.append(symbols.length() == 0 ? "" : ", ").append('"').append(symbol).append("\": ").append(count));
+            output.append(" (").append(symbols).append(")\nFirst found at indexes: ");
+            for (int i = 0; i < this.indexCount; i++) {
+                output.append(i == 0 ? "" : ", ").append(this.firstIndexes[i]);
+            }
+            output.append(this.invalidCount > this.indexCount ? ", ..." : "");
+        }
+        if (!this.gaps.isEmpty()) {
+            output.append('\n').append(this.gaps.size()).append(" N blocks, ").append(getGapLength()).append(" nt in total: ");
+            for (int i = 0; i < Math.min(this.gaps.size(), MAX_INDEXES); i++) {
+                output.append(i == 0 ? "" : ", ").append(this.gaps.get(i));
+            }
+            output.append(this.gaps.size() > MAX_INDEXES ? ", ..." : "");
+        }
+        return output.toString();
+    }
+
+    /**
+     * A range of indexes, from the start up to but not including the end.
+     */
+    public static class Range {
+        private final int start;
+        private final int end;
+
+        Range(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        /**
+         * Method to get the start of the range.
+         * @return the first index in the range.
+         */
+        public int getStart() {
+            return this.start;
+        }
+
+        /**
+         * Method to get the end of the range.
+         * @return the index after the last one in the range.
+         */
+        public int getEnd() {
+            return this.end;
+        }
+
+        /**
+         * Method to get the length of the range.
+         * @return the number of indexes in the range.
+         */
+        public int getLength() {
+            return this.end - this.start;
+        }
+
+        @Override
+        public String toString() {
+            return this.start + "-" + this.end;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+/**
+ * Receives the composition of each window of a {@link WindowProfiler} as it is computed.
+ */
+public interface WindowListener {
+    /**
+     * Method called for every window. Measures with nothing to divide by (such as GC skew with no G's or C's) are NaN.
+     * @param start the index of the first nucleotide of the window.
+     * @param end the index just after the last nucleotide of the window.
+     * @param gcContent the fraction of A, C, G and T/U's that are G or C, 0 to 1.
+     * @param gcSkew (G - C) / (G + C), -1 to 1.
+     * @param cpgRatio observed over expected CpG dinucleotides, CpG * length / (C * G).
+     * @param entropy the Shannon entropy of the A, C, G and T/U frequencies in bits, 0 to 2.
+     */
+    void windowProfiled(int start, int end, double gcContent, double gcSkew, double cpgRatio, double entropy);
+}
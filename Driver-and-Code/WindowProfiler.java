@@ -0,0 +1,164 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Profiles the composition of a sequence in sliding windows: GC content, GC skew, CpG observed/expected and Shannon
+ * entropy. The nucleotide and CpG counts of each window are updated from the previous window by taking out the
+ * nucleotides that slide out and adding the ones that slide in, so every nucleotide is read twice at most no matter
+ * how much the windows overlap. Lowercase nucleotides are counted, anything other than A, C, G, T and U is not.
+ */
+public class WindowProfiler {
+    //Indexes of the counts, OTHER is anything that isn't a nucleotide
+    private static final int A = 0, C = 1, G = 2, T = 3, OTHER = 4;
+    private static final byte[] CODES = new byte[128];
+
+    static {
+        Arrays.fill(CODES, (byte) OTHER);
+        for (char nucleotide : "ACGTU".toCharArray()) {
+            CODES[nucleotide] = (byte) PackedSequence.codeOf(nucleotide);
+            CODES[Character.toLowerCase(nucleotide)] = (byte) PackedSequence.codeOf(nucleotide);
+        }
+    }
+
+    /**
+     * The measures that can be written as a BEDGraph track.
+     */
+    public enum Measure {
+        GC_CONTENT, GC_SKEW, CPG_RATIO, ENTROPY
+    }
+
+    //List variables
+    private final int windowSize;
+    private final int stepSize;
+
+    /**
+     * Constructor for a profiler.
+     * @param windowSize the length of each window.
+     * @param stepSize the distance between the starts of neighbouring windows.
+     */
+    public WindowProfiler(int windowSize, int stepSize) {
+        if (windowSize < 1 || stepSize < 1) {
+            throw new IllegalArgumentException("Window and step sizes must be at least 1");
+        }
+        this.windowSize = windowSize;
+        this.stepSize = stepSize;
+    }
+
+    /**
+     * Method to get the window size.
+     * @return the length of each window.
+     */
+    public int getWindowSize() {
+        return this.windowSize;
+    }
+
+    /**
+     * Method to get the step size.
+     * @return the distance between the starts of neighbouring windows.
+     */
+    public int getStepSize() {
+        return this.stepSize;
+    }
+
+    /**
+     * Method to profile every whole window of a sequence. A sequence shorter than the window gives no windows.
+     * @param sequenceData the nucleotide sequence.
+     * @param listener receives each window in order.
+     * @return the number of windows.
+     */
+    public long profile(CharSequence sequenceData, WindowListener listener) {
+        long[] counts = new long[5];
+        long cpg = 0;
+        int start = 0, end = 0;
+        long windows = 0;
+        while (start + this.windowSize <= sequenceData.length()) {
+            if (end <= start) {
+                //Windows that don't overlap the last one are counted from scratch
+                Arrays.fill(counts, 0);
+                cpg = 0;
+                end = start;
+            }
+
+            //Adds the nucleotides sliding in, and the CpG they close
+            for (int i = end; i < start + this.windowSize; i++) {
+                counts[code(sequenceData, i)]++;
+                if (i > start && isCpG(sequenceData, i - 1)) {
+                    cpg++;
+                }
+            }
+            end = start + this.windowSize;
+            report(start, end, counts, cpg, listener);
+            windows++;
+
+            //Takes out the nucleotides sliding out, and the CpG they open
+            int next = start + this.stepSize;
+            for (int i = start; i < Math.min(next, end); i++) {
+                counts[code(sequenceData, i)]--;
+                if (i + 1 < end && isCpG(sequenceData, i)) {
+                    cpg--;
+                }
+            }
+            start = next;
+        }
+        return windows;
+    }
+
+    /**
+     * Method to write one measure of every window as a BEDGraph track. Windows where the measure is NaN are left out.
+     * @param chromosome the name written in the first column, such as the FASTA record ID.
+     * @param sequenceData the nucleotide sequence.
+     * @param measure the measure to write.
+     * @param writer the output.
+     * @throws IOException if the output can't be written.
+     */
+    public void writeBedGraph(String chromosome, CharSequence sequenceData, Measure measure, Writer writer) throws IOException {
+        IOException[] error = new IOException[1];
+        profile(sequenceData, (start, end, gcContent, gcSkew, cpgRatio, entropy) -> {
+            double value = switch (measure) {
+                case GC_CONTENT -> gcContent;
+                case GC_SKEW -> gcSkew;
+                case CPG_RATIO -> cpgRatio;
+                case ENTROPY -> entropy;
+            };
+            if (error[0] != null || Double.isNaN(value)) {
+                return;
+            }
+            try {
+                writer.write(chromosome + '\t' + start + '\t' + end + '\t' + String.format(Locale.ROOT, "%.4f", value) + '\n');
+            } catch (IOException e) {
+                error[0] = e;
+            }
+        });
+        if (error[0] != null) {
+            throw error[0];
+        }
+    }
+
+    private static int code(CharSequence sequenceData, int index) {
+        char nucleotide = sequenceData.charAt(index);
+        return nucleotide < 128 ? CODES[nucleotide] : OTHER;
+    }
+
+    private static boolean isCpG(CharSequence sequenceData, int index) {
+        return code(sequenceData, index) == C && code(sequenceData, index + 1) == G;
+    }
+
+    private static void report(int start, int end, long[] counts, long cpg, WindowListener listener) {
+        long nucleotides = counts[A] + counts[C] + counts[G] + counts[T];
+        long strong = counts[G] + counts[C];
+        double entropy = 0;
+        for (int i = A; i <= T; i++) {
+            if (counts[i] > 0) {
+                double frequency = (double) counts[i] / nucleotides;
+                entropy -= frequency * Math.log(frequency) / Math.log(2);
+            }
+        }
+        listener.windowProfiled(start, end,
+                nucleotides == 0 ? Double.NaN : (double) strong / nucleotides,
+                strong == 0 ? Double.NaN : (double) (counts[G] - counts[C]) / strong,
+                counts[C] == 0 || counts[G] == 0 ? Double.NaN : (double) cpg * nucleotides / (counts[C] * counts[G]),
+                nucleotides == 0 ? Double.NaN : entropy);
+    }
+}
@@ -0,0 +1,4 @@
+@echo off
+rem Runs a batch command, for example: jgsmt revcomp --in x.fa --out y.fa
+javac -d "%~dp0classes" "%~dp0*.java"
+java -cp "%~dp0classes" Driver %*